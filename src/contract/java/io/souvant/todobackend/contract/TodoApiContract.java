@@ -0,0 +1,255 @@
+package io.souvant.todobackend.contract;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HTTP contract of /todos shared by the servlet and the reactive stacks. Each stack runs it from a test class
+ * that starts its application and gives the url it listens on.
+ */
+public abstract class TodoApiContract {
+
+    private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    protected abstract String baseUrl();
+
+    @BeforeEach
+    void deleteAllTodos() throws Exception {
+        assertEquals(204, send("DELETE", "/todos", null, Map.of()).statusCode());
+    }
+
+    @Test
+    @DisplayName("create a todo, not completed and readable at its url")
+    void createTodo() throws Exception {
+        // WHEN
+        HttpResponse<String> response = send("POST", "/todos", "{\"title\":\"new todo\"}", Map.of());
+
+        // THEN
+        assertEquals(201, response.statusCode());
+        JsonNode todo = json(response);
+        assertEquals("new todo", todo.get("title").asText());
+        assertFalse(todo.get("completed").asBoolean());
+        assertTrue(todo.get("order").isInt());
+        assertEquals(baseUrl() + "/todos/" + todo.get("id").asText(), todo.get("url").asText());
+        HttpResponse<String> readResponse = HTTP_CLIENT.send(HttpRequest.newBuilder(URI.create(todo.get("url").asText())).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, readResponse.statusCode());
+        assertEquals(todo, json(readResponse));
+    }
+
+    @Test
+    @DisplayName("reject a todo without a title")
+    void rejectTodoWithoutTitle() throws Exception {
+        // WHEN
+        HttpResponse<String> blankTitle = send("POST", "/todos", "{\"title\":\" \"}", Map.of());
+        HttpResponse<String> noTitle = send("POST", "/todos", "{}", Map.of());
+
+        // THEN
+        assertEquals(400, blankTitle.statusCode());
+        assertEquals(400, noTitle.statusCode());
+    }
+
+    @Test
+    @DisplayName("answer 404 for an unknown todo")
+    void notFindUnknownTodo() throws Exception {
+        // GIVEN
+        String path = "/todos/" + UUID.randomUUID();
+
+        // WHEN
+        HttpResponse<String> getResponse = send("GET", path, null, Map.of());
+        HttpResponse<String> putResponse = send("PUT", path, "{\"title\":\"title\",\"completed\":false,\"order\":1}", Map.of());
+        HttpResponse<String> patchResponse = send("PATCH", path, "{\"completed\":true}", Map.of());
+        HttpResponse<String> deleteResponse = send("DELETE", path, null, Map.of());
+
+        // THEN
+        assertEquals(404, getResponse.statusCode());
+        assertEquals(404, putResponse.statusCode());
+        assertEquals(404, patchResponse.statusCode());
+        assertEquals(404, deleteResponse.statusCode());
+    }
+
+    @Test
+    @DisplayName("answer 409 when a todo is moved to a rank already taken")
+    void rejectTakenRank() throws Exception {
+        // GIVEN
+        JsonNode first = createTodo("first");
+        JsonNode second = createTodo("second");
+        String secondPath = "/todos/" + second.get("id").asText();
+        int takenRank = first.get("order").asInt();
+
+        // WHEN
+        HttpResponse<String> patchResponse = send("PATCH", secondPath, "{\"order\":" + takenRank + "}", Map.of());
+        HttpResponse<String> putResponse = send("PUT", secondPath, "{\"title\":\"second\",\"completed\":false,\"order\":" + takenRank + "}", Map.of());
+
+        // THEN
+        assertEquals(409, patchResponse.statusCode());
+        assertEquals(409, putResponse.statusCode());
+        assertEquals(second.get("order"), json(send("GET", secondPath, null, Map.of())).get("order"));
+    }
+
+    @Test
+    @DisplayName("reject invalid updates")
+    void rejectInvalidUpdates() throws Exception {
+        // GIVEN
+        String path = "/todos/" + createTodo("todo").get("id").asText();
+
+        // WHEN
+        HttpResponse<String> negativeOrder = send("PATCH", path, "{\"order\":-1}", Map.of());
+        HttpResponse<String> emptyTitle = send("PATCH", path, "{\"title\":\"\"}", Map.of());
+        HttpResponse<String> noTitle = send("PUT", path, "{\"completed\":true,\"order\":1}", Map.of());
+
+        // THEN
+        assertEquals(400, negativeOrder.statusCode());
+        assertEquals(400, emptyTitle.statusCode());
+        assertEquals(400, noTitle.statusCode());
+    }
+
+    @Test
+    @DisplayName("update a todo only while its etag matches")
+    void updateWithIfMatch() throws Exception {
+        // GIVEN
+        String path = "/todos/" + createTodo("todo").get("id").asText();
+        String eTag = send("GET", path, null, Map.of()).headers().firstValue("ETag").orElseThrow();
+
+        // WHEN
+        HttpResponse<String> firstPatch = send("PATCH", path, "{\"completed\":true}", Map.of("If-Match", eTag));
+        HttpResponse<String> outdatedPatch = send("PATCH", path, "{\"title\":\"lost\"}", Map.of("If-Match", eTag));
+        HttpResponse<String> outdatedPut = send("PUT", path, "{\"title\":\"lost\",\"completed\":false,\"order\":1}", Map.of("If-Match", eTag));
+
+        // THEN
+        assertEquals(200, firstPatch.statusCode());
+        assertNotEquals(eTag, firstPatch.headers().firstValue("ETag").orElseThrow());
+        assertEquals(412, outdatedPatch.statusCode());
+        assertEquals(412, outdatedPut.statusCode());
+        assertEquals("todo", json(send("GET", path, null, Map.of())).get("title").asText());
+    }
+
+    @Test
+    @DisplayName("give each update the next version as its etag, with or without If-Match")
+    void versionEveryUpdate() throws Exception {
+        // GIVEN
+        JsonNode todo = createTodo("todo");
+        String path = "/todos/" + todo.get("id").asText();
+        String body = "{\"title\":\"updated\",\"completed\":false,\"order\":" + todo.get("order").asLong() + "}";
+        String eTag = send("GET", path, null, Map.of()).headers().firstValue("ETag").orElseThrow();
+
+        // WHEN
+        HttpResponse<String> put = send("PUT", path, body, Map.of());
+        String putETag = put.headers().firstValue("ETag").orElseThrow();
+        HttpResponse<String> conditionalPut = send("PUT", path, body, Map.of("If-Match", putETag + ", \"" + Long.MAX_VALUE + "\""));
+
+        // THEN
+        assertEquals(200, put.statusCode());
+        assertNotEquals(eTag, putETag);
+        assertEquals(200, conditionalPut.statusCode());
+        assertNotEquals(putETag, conditionalPut.headers().firstValue("ETag").orElseThrow());
+        assertEquals(conditionalPut.headers().firstValue("ETag"), send("GET", path, null, Map.of()).headers().firstValue("ETag"));
+    }
+
+    @Test
+    @DisplayName("answer 304 to a GET of an unchanged todo")
+    void notModified() throws Exception {
+        // GIVEN
+        String path = "/todos/" + createTodo("todo").get("id").asText();
+        String eTag = send("GET", path, null, Map.of()).headers().firstValue("ETag").orElseThrow();
+
+        // WHEN
+        HttpResponse<String> response = send("GET", path, null, Map.of("If-None-Match", eTag));
+
+        // THEN
+        assertEquals(304, response.statusCode());
+    }
+
+    @Test
+    @DisplayName("page todos by rank with a next cursor")
+    void pageTodos() throws Exception {
+        // GIVEN
+        createTodo("first");
+        createTodo("second");
+        createTodo("third");
+
+        // WHEN
+        HttpResponse<String> firstPage = send("GET", "/todos?limit=2", null, Map.of());
+        // the order of the last todo, only stable while no todo is moved or respaced
+        String nextCursor = firstPage.headers().firstValue("X-Next-Cursor").orElseThrow();
+        HttpResponse<String> lastPage = send("GET", "/todos?limit=2&after=" + nextCursor, null, Map.of());
+
+        // THEN
+        assertEquals(200, firstPage.statusCode());
+        assertEquals(2, json(firstPage).size());
+        assertEquals("first", json(firstPage).get(0).get("title").asText());
+        assertEquals(1, json(lastPage).size());
+        assertEquals("third", json(lastPage).get(0).get("title").asText());
+        assertTrue(lastPage.headers().firstValue("X-Next-Cursor").isEmpty());
+        assertEquals(400, send("GET", "/todos?limit=0", null, Map.of()).statusCode());
+    }
+
+    @Test
+    @DisplayName("delete completed todos and count them")
+    void deleteCompletedTodos() throws Exception {
+        // GIVEN
+        String completedPath = "/todos/" + createTodo("done").get("id").asText();
+        send("PATCH", completedPath, "{\"completed\":true}", Map.of());
+        createTodo("to do");
+
+        // WHEN
+        HttpResponse<String> response = send("DELETE", "/todos?completed=true", null, Map.of());
+
+        // THEN
+        assertEquals(204, response.statusCode());
+        assertEquals("1", response.headers().firstValue("X-Deleted-Count").orElseThrow());
+        JsonNode todos = json(send("GET", "/todos", null, Map.of()));
+        assertEquals(1, todos.size());
+        assertEquals("to do", todos.get(0).get("title").asText());
+    }
+
+    @Test
+    @DisplayName("stream todos as newline delimited json")
+    void streamTodos() throws Exception {
+        // GIVEN
+        createTodo("first");
+        createTodo("second");
+
+        // WHEN
+        HttpResponse<String> response = send("GET", "/todos", null, Map.of("Accept", "application/x-ndjson"));
+
+        // THEN
+        assertEquals(200, response.statusCode());
+        String[] lines = response.body().trim().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("first", OBJECT_MAPPER.readTree(lines[0]).get("title").asText());
+        assertEquals("second", OBJECT_MAPPER.readTree(lines[1]).get("title").asText());
+    }
+
+    private JsonNode createTodo(String title) throws Exception {
+        HttpResponse<String> response = send("POST", "/todos", OBJECT_MAPPER.writeValueAsString(Map.of("title", title)), Map.of());
+        assertEquals(201, response.statusCode());
+        return json(response);
+    }
+
+    private HttpResponse<String> send(String method, String path, String body, Map<String, String> headers) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        if (body != null) {
+            request.header("Content-Type", "application/json");
+        }
+        headers.forEach(request::header);
+        return HTTP_CLIENT.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static JsonNode json(HttpResponse<String> response) throws Exception {
+        return OBJECT_MAPPER.readTree(response.body());
+    }
+}
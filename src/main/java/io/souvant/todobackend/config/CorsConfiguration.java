@@ -14,6 +14,7 @@ public class CorsConfiguration implements WebMvcConfigurer {
                 .allowedOrigins(
                         "https://www.todobackend.com",
                         "http://localhost:4200"
-                        );
+                        )
+                .exposedHeaders("X-Next-Cursor", "Link", "X-Deleted-Count", "ETag");
     }
 }
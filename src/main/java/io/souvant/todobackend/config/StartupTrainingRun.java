@@ -0,0 +1,28 @@
+package io.souvant.todobackend.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Stops the application once ready when todo.startup.training-run is set, after a GET /todos so that the
+ * classes of the request path are loaded too: the run the appcds Maven profile records its class-data sharing
+ * archive from.
+ */
+@Component
+@ConditionalOnProperty("todo.startup.training-run")
+public class StartupTrainingRun implements ApplicationListener<ApplicationReadyEvent> {
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        ConfigurableApplicationContext context = event.getApplicationContext();
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        new RestTemplate().getForObject("http://localhost:" + port + "/todos", String.class);
+        System.exit(SpringApplication.exit(context));
+    }
+}
@@ -1,29 +1,67 @@
 package io.souvant.todobackend.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.souvant.todobackend.controller.model.request.TodoBulkOperation;
+import io.souvant.todobackend.controller.model.request.TodoMoveBody;
 import io.souvant.todobackend.controller.model.request.TodoPartialUpdateBody;
 import io.souvant.todobackend.controller.model.request.TodoSaveBody;
 import io.souvant.todobackend.controller.model.request.TodoUpdateBody;
+import io.souvant.todobackend.controller.model.response.TodoBulkResultResponse;
+import io.souvant.todobackend.controller.model.response.TodoListSnapshot;
 import io.souvant.todobackend.controller.model.response.TodoResponse;
+import io.souvant.todobackend.service.TodoBulkException;
+import io.souvant.todobackend.service.TodoBulkService;
 import io.souvant.todobackend.service.TodoService;
 import io.souvant.todobackend.service.model.Todo;
+import io.souvant.todobackend.service.model.TodoBulkResult;
+import io.souvant.todobackend.service.model.TodoPage;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.validation.Valid;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.SecureRandom;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/todos")
 @CrossOrigin
 public class TodoController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String DELETED_COUNT_HEADER = "X-Deleted-Count";
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private static final int STREAM_FLUSH_INTERVAL = 256;
+
+    // list versions start again from zero with the process, the prefix keeps the etags of two processes apart
+    private final String eTagPrefix = Long.toHexString(new SecureRandom().nextLong());
+
     private final TodoService todoService;
+    private final TodoBulkService todoBulkService;
+    private final ObjectMapper objectMapper;
+    private final TodoListSnapshots todoListSnapshots;
 
-    public TodoController(TodoService todoService) {
+    public TodoController(TodoService todoService, TodoBulkService todoBulkService, ObjectMapper objectMapper,
+                          TodoListSnapshots todoListSnapshots) {
         this.todoService = todoService;
+        this.todoBulkService = todoBulkService;
+        this.objectMapper = objectMapper;
+        this.todoListSnapshots = todoListSnapshots;
     }
 
     @PostMapping
@@ -33,31 +71,82 @@ public class TodoController {
         return generateTodoResponse(todoSaved);
     }
 
+    // the cursor is the rank of the last todo of a page, not a position: a move or a respacing between two pages
+    // can skip or repeat todos, and changes the list etag
     @GetMapping
-    @ResponseStatus(HttpStatus.OK)
-    public List<TodoResponse> getAllTodos() {
-        List<Todo> todos = todoService.getAllTodos();
-        return todos.stream().map(TodoController::generateTodoResponse).collect(Collectors.toList());
+    public ResponseEntity<byte[]> getAllTodos(@RequestParam(required = false) Optional<Long> after,
+                                              @RequestParam(required = false) Optional<Integer> limit,
+                                              WebRequest webRequest) {
+        // read before the todos, a write completed in between only makes the etag older than the body
+        String eTag = formatListETag(todoService.getListVersion());
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
+        // the request url holds the page parameters and the host the todo urls are built with
+        String requestUrl = ServletUriComponentsBuilder.fromCurrentRequest().toUriString();
+        TodoListSnapshot snapshot = todoListSnapshots.get(requestUrl, todoService::getListVersion,
+                version -> generateTodoListSnapshot(version, after, limit));
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).eTag(eTag);
+        if (snapshot.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, snapshot.getNextCursor().toString());
+            response.header(HttpHeaders.LINK, "<" + snapshot.getNextPageUrl() + ">; rel=\"next\"");
+        }
+        return response.body(snapshot.getBody());
+    }
+
+    @GetMapping(produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllTodos() {
+        // resolved on the request thread, the body is written on an async one
+        TodoJsonWriter todoJsonWriter = new TodoJsonWriter(formatTodosUrl());
+        StreamingResponseBody body = outputStream -> {
+            JsonGenerator jsonGenerator = objectMapper.getFactory().createGenerator(outputStream);
+            jsonGenerator.setRootValueSeparator(null);
+            AtomicInteger written = new AtomicInteger();
+            todoService.streamAllTodos(todo -> {
+                try {
+                    todoJsonWriter.writeTodo(jsonGenerator, todo);
+                    jsonGenerator.writeRaw('\n');
+                    if (written.getAndIncrement() % STREAM_FLUSH_INTERVAL == 0) {
+                        jsonGenerator.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            jsonGenerator.close();
+        };
+        return ResponseEntity.ok().header(HttpHeaders.CONTENT_TYPE, APPLICATION_NDJSON_VALUE).body(body);
     }
 
     @DeleteMapping
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void deleteTodos(@RequestParam(required = false) Optional<Boolean> completed) { // Todo: mettre boolean
-        todoService.deleteTodos(completed);
+    public ResponseEntity<Void> deleteTodos(@RequestParam(required = false) Optional<Boolean> completed) { // Todo: mettre boolean
+        int deletedCount = todoService.deleteTodos(completed);
+        return ResponseEntity.noContent().header(DELETED_COUNT_HEADER, String.valueOf(deletedCount)).build();
     }
 
     @GetMapping("/{id}")
-    @ResponseStatus(HttpStatus.OK)
-    public TodoResponse getTodo(@PathVariable UUID id) {
+    public ResponseEntity<TodoResponse> getTodo(@PathVariable UUID id, WebRequest webRequest) {
+        // the etag is the version of the row: a cached todo is checked without a query, any other one with the
+        // query that caches it
         Todo todo = todoService.getTodo(id);
-        return generateTodoResponse(todo);
+        // a todo with a pending write-behind completion has no version yet
+        if (todo.getVersion() == null) {
+            return ResponseEntity.ok(generateTodoResponse(todo));
+        }
+        String eTag = formatTodoETag(todo);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(generateTodoResponse(todo));
     }
 
     @PutMapping("/{id}")
-    @ResponseStatus(HttpStatus.OK)
-    public TodoResponse updateTodo(@PathVariable UUID id, @RequestBody @Valid TodoUpdateBody todoUpdateBody) {
-        Todo todo = todoService.updateTodo(id, todoUpdateBody);
-        return generateTodoResponse(todo);
+    public ResponseEntity<TodoResponse> updateTodo(@PathVariable UUID id, @RequestBody @Valid TodoUpdateBody todoUpdateBody,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Todo todo = todoService.updateTodo(id, todoUpdateBody, parseIfMatch(ifMatch));
+        return ResponseEntity.ok().eTag(formatTodoETag(todo)).body(generateTodoResponse(todo));
     }
 
 
@@ -70,10 +159,22 @@ public class TodoController {
     } */
 
     @PatchMapping("/{id}")
-    @ResponseStatus(HttpStatus.OK)
-    public TodoResponse patchTodo(@PathVariable UUID id, @RequestBody @Valid TodoPartialUpdateBody todoPartialUpdateBody) {
-        Todo todoUpdated = todoService.patchTodo(id, todoPartialUpdateBody);
-        return generateTodoResponse(todoUpdated);
+    public ResponseEntity<TodoResponse> patchTodo(@PathVariable UUID id, @RequestBody @Valid TodoPartialUpdateBody todoPartialUpdateBody,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Optional<Set<Long>> expectedVersions = parseIfMatch(ifMatch);
+        Todo todoUpdated = todoService.toggleTodo(id, todoPartialUpdateBody, expectedVersions)
+                .orElseGet(() -> todoService.patchTodo(id, todoPartialUpdateBody, expectedVersions));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (todoUpdated.getVersion() != null) {
+            response.eTag(formatTodoETag(todoUpdated));
+        }
+        return response.body(generateTodoResponse(todoUpdated));
+    }
+
+    @PostMapping("/{id}/move")
+    public ResponseEntity<TodoResponse> moveTodo(@PathVariable UUID id, @RequestBody TodoMoveBody todoMoveBody) {
+        Todo todoMoved = todoService.moveTodo(id, todoMoveBody);
+        return ResponseEntity.ok().eTag(formatTodoETag(todoMoved)).body(generateTodoResponse(todoMoved));
     }
 
     @DeleteMapping("/{id}")
@@ -82,6 +183,47 @@ public class TodoController {
         todoService.deleteTodo(id);
     }
 
+    @PostMapping("/_bulk")
+    @ResponseStatus(HttpStatus.OK)
+    public List<TodoBulkResultResponse> bulkTodos(@RequestBody List<TodoBulkOperation> operations) {
+        List<TodoBulkResult> results = todoBulkService.applyOperations(operations);
+        String todosUrl = formatTodosUrl();
+        return results.stream().map(result -> generateTodoBulkResultResponse(result, todosUrl)).collect(Collectors.toList());
+    }
+
+    @ExceptionHandler(TodoBulkException.class)
+    public ResponseEntity<List<TodoBulkResultResponse>> handleFailedBulk(TodoBulkException exception) {
+        List<TodoBulkResultResponse> results = exception.getResults().stream().map(result -> generateTodoBulkResultResponse(result, null)).collect(Collectors.toList());
+        return ResponseEntity.status(exception.getStatus()).body(results);
+    }
+
+    private String formatListETag(long version) {
+        return "\"" + eTagPrefix + "-" + version + "\"";
+    }
+
+    private static String formatTodoETag(Todo todo) {
+        return "\"" + todo.getVersion() + "\"";
+    }
+
+    // no header or * sets no condition, weak or unknown tags match no version
+    private static Optional<Set<Long>> parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return Optional.empty();
+        }
+        Set<Long> versions = new HashSet<>();
+        for (String eTag : ifMatch.split(",")) {
+            eTag = eTag.trim();
+            if (eTag.length() > 2 && eTag.startsWith("\"") && eTag.endsWith("\"")) {
+                try {
+                    versions.add(Long.parseLong(eTag.substring(1, eTag.length() - 1)));
+                } catch (NumberFormatException e) {
+                    // not an etag of a todo version
+                }
+            }
+        }
+        return Optional.of(versions);
+    }
+
     private static String formatTodoGetUrl(Todo todoSaved) {
         return ServletUriComponentsBuilder.fromCurrentContextPath()
                 .pathSegment("todos", "{id}")
@@ -89,7 +231,40 @@ public class TodoController {
                 .toUriString();
     }
 
+    private static String formatTodosUrl() {
+        return ServletUriComponentsBuilder.fromCurrentContextPath()
+                .pathSegment("todos")
+                .toUriString();
+    }
+
+    private static String formatNextPageUrl(Long nextCursor) {
+        return ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("after", nextCursor)
+                .toUriString();
+    }
+
+    private TodoListSnapshot generateTodoListSnapshot(long version, Optional<Long> after, Optional<Integer> limit) {
+        TodoPage todoPage = todoService.getTodosPage(after, limit);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (JsonGenerator jsonGenerator = objectMapper.getFactory().createGenerator(body)) {
+            new TodoJsonWriter(formatTodosUrl()).writeTodos(jsonGenerator, todoPage.getTodos());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String nextPageUrl = todoPage.getNextCursor() == null ? null : formatNextPageUrl(todoPage.getNextCursor());
+        return new TodoListSnapshot(version, body.toByteArray(), todoPage.getNextCursor(), nextPageUrl);
+    }
+
     private static TodoResponse generateTodoResponse(Todo todo) {
         return new TodoResponse(todo.getId().toString(), todo.getTitle(), todo.getCompleted(), todo.getOrder(), formatTodoGetUrl(todo));
     }
+
+    private static TodoBulkResultResponse generateTodoBulkResultResponse(TodoBulkResult result, String todosUrl) {
+        TodoResponse todoResponse = result.getTodo() == null ? null : generateTodoResponse(result.getTodo(), todosUrl);
+        return new TodoBulkResultResponse(result.getStatus().value(), todoResponse);
+    }
+
+    private static TodoResponse generateTodoResponse(Todo todo, String todosUrl) {
+        return new TodoResponse(todo.getId().toString(), todo.getTitle(), todo.getCompleted(), todo.getOrder(), todosUrl + "/" + todo.getId());
+    }
 }
@@ -0,0 +1,96 @@
+package io.souvant.todobackend.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import io.souvant.todobackend.controller.model.response.TodoResponse;
+import io.souvant.todobackend.service.model.Todo;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes todos with the fields of {@link TodoResponse} straight to a generator. A writer serves one request:
+ * the url of the todos is copied once into a buffer the id of each todo is then formatted into, so writing
+ * a todo creates no String.
+ */
+public class TodoJsonWriter {
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString TITLE = new SerializedString("title");
+    private static final SerializedString COMPLETED = new SerializedString("completed");
+    private static final SerializedString ORDER = new SerializedString("order");
+    private static final SerializedString URL = new SerializedString("url");
+
+    private static final int UUID_LENGTH = 36;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final char[] urlBuffer;
+    private final int idOffset;
+
+    public TodoJsonWriter(String todosUrl) {
+        idOffset = todosUrl.length() + 1;
+        urlBuffer = new char[idOffset + UUID_LENGTH];
+        todosUrl.getChars(0, todosUrl.length(), urlBuffer, 0);
+        urlBuffer[idOffset - 1] = '/';
+    }
+
+    public void writeTodos(JsonGenerator jsonGenerator, List<Todo> todos) throws IOException {
+        jsonGenerator.writeStartArray();
+        for (Todo todo : todos) {
+            writeTodo(jsonGenerator, todo);
+        }
+        jsonGenerator.writeEndArray();
+    }
+
+    public void writeTodo(JsonGenerator jsonGenerator, Todo todo) throws IOException {
+        formatUuid(todo.getId(), urlBuffer, idOffset);
+
+        jsonGenerator.writeStartObject();
+        jsonGenerator.writeFieldName(ID);
+        jsonGenerator.writeString(urlBuffer, idOffset, UUID_LENGTH);
+        jsonGenerator.writeFieldName(TITLE);
+        if (todo.getTitle() == null) {
+            jsonGenerator.writeNull();
+        } else {
+            jsonGenerator.writeString(todo.getTitle());
+        }
+        jsonGenerator.writeFieldName(COMPLETED);
+        if (todo.getCompleted() == null) {
+            jsonGenerator.writeNull();
+        } else {
+            jsonGenerator.writeBoolean(todo.getCompleted());
+        }
+        jsonGenerator.writeFieldName(ORDER);
+        if (todo.getOrder() == null) {
+            jsonGenerator.writeNull();
+        } else {
+            jsonGenerator.writeNumber(todo.getOrder());
+        }
+        jsonGenerator.writeFieldName(URL);
+        jsonGenerator.writeString(urlBuffer, 0, urlBuffer.length);
+        jsonGenerator.writeEndObject();
+    }
+
+    // same text as UUID.toString()
+    static void formatUuid(UUID id, char[] buffer, int offset) {
+        long mostSignificantBits = id.getMostSignificantBits();
+        long leastSignificantBits = id.getLeastSignificantBits();
+        formatHex(mostSignificantBits >>> 32, 8, buffer, offset);
+        buffer[offset + 8] = '-';
+        formatHex(mostSignificantBits >>> 16, 4, buffer, offset + 9);
+        buffer[offset + 13] = '-';
+        formatHex(mostSignificantBits, 4, buffer, offset + 14);
+        buffer[offset + 18] = '-';
+        formatHex(leastSignificantBits >>> 48, 4, buffer, offset + 19);
+        buffer[offset + 23] = '-';
+        formatHex(leastSignificantBits, 12, buffer, offset + 24);
+    }
+
+    private static void formatHex(long value, int digits, char[] buffer, int offset) {
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer[offset + i] = HEX_DIGITS[(int) value & 0xf];
+            value >>>= 4;
+        }
+    }
+}
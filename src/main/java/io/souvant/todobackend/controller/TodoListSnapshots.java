@@ -0,0 +1,66 @@
+package io.souvant.todobackend.controller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.souvant.todobackend.controller.model.response.TodoListSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Serialized pages of the todo list, served as long as the list version has not changed. A single request
+ * rebuilds an outdated page, the others wait for it or, when stale pages may be served, get the previous one.
+ */
+@Component
+public class TodoListSnapshots {
+
+    private final Cache<String, Slot> slots;
+    private final boolean serveStale;
+
+    public TodoListSnapshots(@Value("${todo.list-snapshot.maximum-size:1000}") long maximumSize,
+                             @Value("${todo.list-snapshot.serve-stale:false}") boolean serveStale) {
+        this.slots = Caffeine.newBuilder().maximumSize(maximumSize).build();
+        this.serveStale = serveStale;
+    }
+
+    /**
+     * Returns the snapshot of the key, rebuilt first when it is older than the list version. The builder is
+     * given the version read before it runs, so a write completed during the build outdates the snapshot.
+     */
+    public TodoListSnapshot get(String key, LongSupplier listVersion, LongFunction<TodoListSnapshot> builder) {
+        Slot slot = slots.get(key, k -> new Slot());
+        TodoListSnapshot snapshot = slot.snapshot;
+        if (snapshot != null && snapshot.getVersion() == listVersion.getAsLong()) {
+            return snapshot;
+        }
+
+        if (serveStale && snapshot != null) {
+            if (!slot.rebuildLock.tryLock()) {
+                return snapshot;
+            }
+        } else {
+            slot.rebuildLock.lock();
+        }
+        try {
+            // another request may have rebuilt it while this one was waiting
+            long version = listVersion.getAsLong();
+            snapshot = slot.snapshot;
+            if (snapshot == null || snapshot.getVersion() != version) {
+                snapshot = builder.apply(version);
+                slot.snapshot = snapshot;
+            }
+            return snapshot;
+        } finally {
+            slot.rebuildLock.unlock();
+        }
+    }
+
+    private static final class Slot {
+
+        private final ReentrantLock rebuildLock = new ReentrantLock();
+        private volatile TodoListSnapshot snapshot;
+    }
+}
@@ -0,0 +1,65 @@
+package io.souvant.todobackend.controller.model.request;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Objects;
+import java.util.UUID;
+
+public class TodoBulkOperation {
+
+    public enum Type {
+        @JsonProperty("create") CREATE,
+        @JsonProperty("update") UPDATE,
+        @JsonProperty("patch") PATCH,
+        @JsonProperty("delete") DELETE
+    }
+
+    private final Type op;
+    private final UUID id;
+    private final String title;
+    private final Boolean completed;
+    private final Number order;
+
+    @JsonCreator
+    public TodoBulkOperation(Type op, UUID id, String title, Boolean completed, Number order) {
+        this.op = op;
+        this.id = id;
+        this.title = title;
+        this.completed = completed;
+        this.order = order;
+    }
+
+    public Type getOp() {
+        return op;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public Boolean getCompleted() {
+        return completed;
+    }
+
+    public Number getOrder() {
+        return order;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TodoBulkOperation that = (TodoBulkOperation) o;
+        return op == that.op && Objects.equals(id, that.id) && Objects.equals(title, that.title) && Objects.equals(completed, that.completed) && Objects.equals(order, that.order);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(op, id, title, completed, order);
+    }
+}
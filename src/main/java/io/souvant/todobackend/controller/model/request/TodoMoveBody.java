@@ -0,0 +1,44 @@
+package io.souvant.todobackend.controller.model.request;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Where a todo is moved: right after the todo {@code after}, right before the todo {@code before}, or between
+ * both when they are neighbours. At least one of them is given.
+ */
+public class TodoMoveBody {
+
+    private UUID before;
+
+    private UUID after;
+
+    @JsonCreator
+    public TodoMoveBody(UUID before, UUID after) {
+        this.before = before;
+        this.after = after;
+    }
+
+    public UUID getBefore() {
+        return before;
+    }
+
+    public UUID getAfter() {
+        return after;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TodoMoveBody that = (TodoMoveBody) o;
+        return Objects.equals(before, that.before) && Objects.equals(after, that.after);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(before, after);
+    }
+}
@@ -0,0 +1,34 @@
+package io.souvant.todobackend.controller.model.response;
+
+import java.util.Objects;
+
+public class TodoBulkResultResponse {
+    private final int status;
+    private final TodoResponse todo;
+
+    public TodoBulkResultResponse(int status, TodoResponse todo) {
+        this.status = status;
+        this.todo = todo;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public TodoResponse getTodo() {
+        return todo;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TodoBulkResultResponse that = (TodoBulkResultResponse) o;
+        return status == that.status && Objects.equals(todo, that.todo);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(status, todo);
+    }
+}
@@ -0,0 +1,34 @@
+package io.souvant.todobackend.controller.model.response;
+
+/**
+ * A page of the todo list already serialized to JSON, with the list version it was read at.
+ */
+public class TodoListSnapshot {
+    private final long version;
+    private final byte[] body;
+    private final Long nextCursor;
+    private final String nextPageUrl;
+
+    public TodoListSnapshot(long version, byte[] body, Long nextCursor, String nextPageUrl) {
+        this.version = version;
+        this.body = body;
+        this.nextCursor = nextCursor;
+        this.nextPageUrl = nextPageUrl;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public String getNextPageUrl() {
+        return nextPageUrl;
+    }
+}
@@ -9,7 +9,7 @@ public class TodoResponse {
     private final Number order;
     private String url;
 
-    public TodoResponse(String id, String title, Boolean completed, Integer order, String url) {
+    public TodoResponse(String id, String title, Boolean completed, Long order, String url) {
         this.id = id;
         this.title = title;
         this.completed = completed;
@@ -1,9 +1,23 @@
 package io.souvant.todobackend.repository;
 
+import io.souvant.todobackend.repository.memory.InMemoryDataConfiguration;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
 @Configuration
+@Profile("!" + InMemoryDataConfiguration.PROFILE + " & !" + InMemoryDataConfiguration.FILE_PROFILE)
 @EnableJpaRepositories
 public class DataConfiguration {
+
+    // a database that cannot be reached or mapped still fails the startup with spring.main.lazy-initialization
+    @Bean
+    public static LazyInitializationExcludeFilter eagerDataInitialization() {
+        return LazyInitializationExcludeFilter.forBeanTypes(DataSource.class, EntityManagerFactory.class);
+    }
 }
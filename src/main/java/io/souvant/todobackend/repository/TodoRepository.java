@@ -1,30 +1,118 @@
 package io.souvant.todobackend.repository;
 
 import io.souvant.todobackend.repository.entity.TodoEntity;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.query.Param;
-import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-@Repository
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+/**
+ * The todo queries and writes the services use, and only those: implemented by Spring Data JPA, the CRUD
+ * methods by its SimpleJpaRepository, and by InMemoryTodoRepository for the in-memory and file profiles.
+ */
 @Transactional(readOnly = true)
-public interface TodoRepository extends JpaRepository<TodoEntity, UUID> {
+public interface TodoRepository extends Repository<TodoEntity, UUID>, TodoRepositoryCustom {
+
+    Optional<TodoEntity> findById(UUID id);
+
+    List<TodoEntity> findAllById(Iterable<UUID> ids);
+
+    @Transactional
+    <S extends TodoEntity> S save(S entity);
+
+    @Transactional
+    <S extends TodoEntity> S saveAndFlush(S entity);
+
+    @Transactional
+    void flush();
+
+    @Transactional
+    void delete(TodoEntity entity);
 
-    List<TodoEntity> findAllByOrderByOrderAsc();
+    @Query("select t from TodoEntity t where t.order > :after order by t.order asc")
+    List<TodoEntity> findTodosAfterOrder(@Param("after") Long after, Pageable pageable);
 
-    @Query(value = "select max(rank) FROM TODO", nativeQuery = true)
-    Optional<Integer> getMaxOrder();
+    List<TodoEntity> findAllByOrderIn(Collection<Long> orders);
 
+    // the anchor then the todos after it, but the excluded one: none when the anchor does not exist
+    @Query("select t from TodoEntity t where t.order >= (select a.order from TodoEntity a where a.id = :anchor) and t.id <> :excluded order by t.order asc")
+    List<TodoEntity> findTodosFromOrderOf(@Param("anchor") UUID anchor, @Param("excluded") UUID excluded, Pageable pageable);
+
+    // the anchor then the todos before it, nearest first, but the excluded one
+    @Query("select t from TodoEntity t where t.order <= (select a.order from TodoEntity a where a.id = :anchor) and t.id <> :excluded order by t.order desc")
+    List<TodoEntity> findTodosUpToOrderOf(@Param("anchor") UUID anchor, @Param("excluded") UUID excluded, Pageable pageable);
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select t from TodoEntity t order by t.order asc")
+    Stream<TodoEntity> streamAllByOrderByOrderAsc();
+
+    @Transactional
+    @Query(value = "select next value for TODO_RANK_SEQ", nativeQuery = true)
+    Long nextRankBlock();
+
+    @Transactional
     @Modifying
     @Query(value = "delete from TODO where completed = 1", nativeQuery = true)
-    void deleteCompletedTodos();
+    int deleteCompletedTodos();
 
-    @Query(value = "SELECT * FROM TODO WHERE rank = :order and id != :id", nativeQuery = true)
-    Optional<TodoEntity> findTodoByOrder(@Param("order") Integer order, UUID id);
+    @Transactional
+    @Modifying
+    @Query(value = "delete from TODO where id in (select id from TODO where completed = 1 fetch first :limit rows only)", nativeQuery = true)
+    int deleteCompletedTodos(@Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from TODO", nativeQuery = true)
+    int deleteAllTodos();
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from TODO where id in (select id from TODO fetch first :limit rows only)", nativeQuery = true)
+    int deleteAllTodos(@Param("limit") int limit);
+
+    // unlike deleteById, which loads the todo to remove it
+    @Transactional
+    @Modifying
+    @Query("delete from TodoEntity t where t.id = :id")
+    int deleteTodo(@Param("id") UUID id);
+
+    @Query("select t.version from TodoEntity t where t.id = :id")
+    Optional<Long> findVersionById(@Param("id") UUID id);
+
+    @Transactional
+    @Modifying
+    @Query("update TodoEntity t set t.title = :title, t.completed = :completed, t.order = :order, t.version = t.version + 1 where t.id = :id")
+    int updateTodo(@Param("id") UUID id, @Param("title") String title, @Param("completed") Boolean completed, @Param("order") Long order);
+
+    @Transactional
+    @Modifying
+    @Query("update TodoEntity t set t.title = :title, t.completed = :completed, t.order = :order, t.version = t.version + 1 where t.id = :id and t.version in :versions")
+    int updateTodo(@Param("id") UUID id, @Param("versions") Collection<Long> versions,
+                   @Param("title") String title, @Param("completed") Boolean completed, @Param("order") Long order);
+
+    @Transactional
+    @Modifying
+    @Query("update TodoEntity t set t.order = :order, t.version = t.version + 1 where t.id = :id and t.version = :version")
+    int updateOrder(@Param("id") UUID id, @Param("version") Long version, @Param("order") Long order);
+
+    @Transactional
+    @Modifying
+    @Query("update TodoEntity t set t.completed = :completed, t.version = t.version + 1 where t.id in :ids")
+    int updateCompleted(@Param("ids") Collection<UUID> ids, @Param("completed") Boolean completed);
 }
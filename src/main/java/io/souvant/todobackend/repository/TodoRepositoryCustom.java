@@ -0,0 +1,8 @@
+package io.souvant.todobackend.repository;
+
+import io.souvant.todobackend.repository.entity.TodoEntity;
+
+public interface TodoRepositoryCustom {
+
+    void detach(TodoEntity todoEntity);
+}
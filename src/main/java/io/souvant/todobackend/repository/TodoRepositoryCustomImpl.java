@@ -0,0 +1,17 @@
+package io.souvant.todobackend.repository;
+
+import io.souvant.todobackend.repository.entity.TodoEntity;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+public class TodoRepositoryCustomImpl implements TodoRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void detach(TodoEntity todoEntity) {
+        entityManager.detach(todoEntity);
+    }
+}
@@ -7,33 +7,44 @@ import java.util.Objects;
 import java.util.UUID;
 
 @Entity
-@Table(name = "TODO")
+@Table(
+        name = "TODO",
+        uniqueConstraints = @UniqueConstraint(name = TodoEntity.RANK_CONSTRAINT, columnNames = "rank"),
+        indexes = @Index(name = "IDX_TODO_COMPLETED", columnList = "completed")
+)
 public class TodoEntity {
 
+    public static final String RANK_CONSTRAINT = "UK_TODO_RANK";
+
     @Id
     @GeneratedValue(generator = "UUID")
     @GenericGenerator(
             name = "UUID",
-            strategy = "org.hibernate.id.UUIDGenerator"
+            strategy = "io.souvant.todobackend.repository.entity.TodoIdGenerator"
     )
+    @Column(columnDefinition = "binary(16)")
     private UUID id;
     private String title;
 
     private Boolean completed;
 
     @Column(name = "rank")
-    private Integer order;
+    private Long order;
+
+    @Version
+    @Column(nullable = false)
+    private Long version;
 
     public TodoEntity() {
     }
 
-    public TodoEntity(String title, Boolean isCompleted, Integer order) {
+    public TodoEntity(String title, Boolean isCompleted, Long order) {
         this.title = title;
         this.completed = isCompleted;
         this.order = order;
     }
 
-    public TodoEntity(UUID id, String title, Boolean isCompleted, Integer order) {
+    public TodoEntity(UUID id, String title, Boolean isCompleted, Long order) {
         this.id = id;
         this.title = title;
         this.completed = isCompleted;
@@ -52,7 +63,7 @@ public class TodoEntity {
         return completed;
     }
 
-    public Integer getOrder() {
+    public Long getOrder() {
         return order;
     }
 
@@ -60,6 +71,10 @@ public class TodoEntity {
         return completed;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     public void setId(UUID id) {
         this.id = id;
     }
@@ -72,10 +87,14 @@ public class TodoEntity {
         this.completed = completed;
     }
 
-    public void setOrder(Integer order) {
+    public void setOrder(Long order) {
         this.order = order;
     }
 
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,70 @@
+package io.souvant.todobackend.repository.entity;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Generates todo ids either as time-ordered UUIDv7 (default) or as random UUIDv4, chosen with the
+ * todo.id.strategy Hibernate setting. Both kinds live in the same column, so existing v4 ids keep working.
+ */
+public class TodoIdGenerator implements IdentifierGenerator, Configurable {
+
+    public static final String STRATEGY_SETTING = "todo.id.strategy";
+    public static final String TIME_ORDERED_STRATEGY = "v7";
+    public static final String RANDOM_STRATEGY = "v4";
+
+    // last unix millis shifted left by 12, plus a counter keeping ids of the same millisecond ordered
+    private static final AtomicLong LAST_TIMESTAMP_AND_COUNTER = new AtomicLong();
+
+    private Supplier<UUID> uuidSupplier = TodoIdGenerator::timeOrderedUuid;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) {
+        String strategy = serviceRegistry.getService(ConfigurationService.class)
+                .getSetting(STRATEGY_SETTING, StandardConverters.STRING, TIME_ORDERED_STRATEGY);
+        switch (strategy) {
+            case TIME_ORDERED_STRATEGY:
+                uuidSupplier = TodoIdGenerator::timeOrderedUuid;
+                break;
+            case RANDOM_STRATEGY:
+                uuidSupplier = UUID::randomUUID;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown " + STRATEGY_SETTING + ": " + strategy);
+        }
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        return uuidSupplier.get();
+    }
+
+    public static UUID timeOrderedUuid() {
+        long candidate = System.currentTimeMillis() << 12;
+        long last;
+        long next;
+        do {
+            last = LAST_TIMESTAMP_AND_COUNTER.get();
+            // a counter overflow carries into the timestamp, which keeps the ids increasing
+            next = candidate > last ? candidate : last + 1;
+        } while (!LAST_TIMESTAMP_AND_COUNTER.compareAndSet(last, next));
+
+        long timestamp = next >>> 12;
+        long counter = next & 0xFFFL;
+        long mostSigBits = (timestamp << 16) | 0x7000L | counter;
+        long leastSigBits = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
@@ -0,0 +1,31 @@
+package io.souvant.todobackend.repository.file;
+
+import io.souvant.todobackend.repository.memory.InMemoryDataConfiguration;
+import io.souvant.todobackend.repository.memory.InMemoryTodoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Makes the in-memory repository durable with a {@link TodoFileStore} when the file profile is active.
+ */
+@Configuration
+@Profile(InMemoryDataConfiguration.FILE_PROFILE)
+public class FileDataConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public TodoFileStore todoFileStore(@Value("${todo.file-store.directory}") Path directory,
+                                       @Value("${todo.file-store.snapshot-interval:1m}") Duration snapshotInterval) {
+        return new TodoFileStore(directory, snapshotInterval);
+    }
+
+    @Bean
+    public InMemoryTodoRepository todoRepository(@Value("${spring.jpa.properties.todo.id.strategy:v7}") String idStrategy,
+                                                 TodoFileStore todoFileStore) {
+        return new InMemoryTodoRepository(idStrategy, todoFileStore);
+    }
+}
@@ -0,0 +1,67 @@
+package io.souvant.todobackend.repository.file;
+
+import io.souvant.todobackend.repository.entity.TodoEntity;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Binary form of a todo shared by the log and the snapshot: id, version, completed, rank and UTF-8 title.
+ */
+final class TodoCodec {
+
+    static final int ID_SIZE = 16;
+
+    private static final byte NULL_COMPLETED = -1;
+
+    private TodoCodec() {
+    }
+
+    static byte[] titleBytes(TodoEntity todoEntity) {
+        return todoEntity.getTitle() == null ? null : todoEntity.getTitle().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static int size(byte[] titleBytes) {
+        return ID_SIZE + Long.BYTES + 1 + Long.BYTES + Integer.BYTES + (titleBytes == null ? 0 : titleBytes.length);
+    }
+
+    static void writeTodo(ByteBuffer buffer, TodoEntity todoEntity, byte[] titleBytes) {
+        writeId(buffer, todoEntity.getId());
+        buffer.putLong(todoEntity.getVersion());
+        buffer.put(todoEntity.getCompleted() == null ? NULL_COMPLETED : (byte) (todoEntity.getCompleted() ? 1 : 0));
+        buffer.putLong(todoEntity.getOrder());
+        if (titleBytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(titleBytes.length);
+            buffer.put(titleBytes);
+        }
+    }
+
+    static TodoEntity readTodo(ByteBuffer buffer) {
+        UUID id = readId(buffer);
+        long version = buffer.getLong();
+        byte completed = buffer.get();
+        long order = buffer.getLong();
+        int titleLength = buffer.getInt();
+        String title = null;
+        if (titleLength >= 0) {
+            byte[] titleBytes = new byte[titleLength];
+            buffer.get(titleBytes);
+            title = new String(titleBytes, StandardCharsets.UTF_8);
+        }
+        TodoEntity todoEntity = new TodoEntity(id, title, completed == NULL_COMPLETED ? null : completed == 1, order);
+        todoEntity.setVersion(version);
+        return todoEntity;
+    }
+
+    static void writeId(ByteBuffer buffer, UUID id) {
+        buffer.putLong(id.getMostSignificantBits());
+        buffer.putLong(id.getLeastSignificantBits());
+    }
+
+    static UUID readId(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
@@ -0,0 +1,201 @@
+package io.souvant.todobackend.repository.file;
+
+import io.souvant.todobackend.repository.entity.TodoEntity;
+import io.souvant.todobackend.repository.memory.TodoJournal;
+import io.souvant.todobackend.repository.memory.TodoStoreState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Durable todos without an SQL engine: every commit is appended to a {@link TodoWriteAheadLog} and waited for
+ * until fsynced, and a {@link TodoSnapshotFile} of every todo is written periodically, after which the log
+ * segments it covers are deleted. Opening loads the snapshot and replays the log written after it.
+ */
+public class TodoFileStore implements TodoJournal, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TodoFileStore.class);
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte RANK_SEQUENCE = 3;
+
+    private final Path directory;
+    private final Duration snapshotInterval;
+
+    private FileChannel lockChannel;
+    private TodoWriteAheadLog writeAheadLog;
+    private ScheduledExecutorService snapshotExecutor;
+    private Supplier<TodoStoreState> stateSource;
+    private long snapshotPosition;
+
+    public TodoFileStore(Path directory, Duration snapshotInterval) {
+        this.directory = directory;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    @Override
+    public TodoStoreState open(Supplier<TodoStoreState> stateSource) {
+        try {
+            Files.createDirectories(directory);
+            lockChannel = FileChannel.open(directory.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock = lockChannel.tryLock();
+            if (lock == null) {
+                throw new IllegalStateException("The todo store " + directory + " is used by another process");
+            }
+
+            TodoStoreState snapshot = TodoSnapshotFile.read(directory);
+            Map<UUID, TodoEntity> todos = new LinkedHashMap<>();
+            snapshot.getTodos().forEach(todo -> todos.put(todo.getId(), todo));
+            long[] rankSequence = {snapshot.getRankSequence()};
+            long lastPosition = TodoWriteAheadLog.replay(directory, snapshot.getPosition(), body -> replayEntry(body, todos, rankSequence));
+            LOGGER.info("Recovered {} todos from {}: snapshot at {}, log replayed up to {}", todos.size(), directory, snapshot.getPosition(), lastPosition);
+
+            writeAheadLog = new TodoWriteAheadLog(directory, lastPosition);
+            this.stateSource = stateSource;
+            snapshotPosition = snapshot.getPosition();
+            snapshotExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "todo-snapshot"));
+            snapshotExecutor.scheduleWithFixedDelay(this::snapshotQuietly, snapshotInterval.toMillis(), snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+            return new TodoStoreState(new ArrayList<>(todos.values()), rankSequence[0], lastPosition);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the todo store " + directory, e);
+        }
+    }
+
+    @Override
+    public long append(Map<UUID, TodoEntity> todos) {
+        int size = Long.BYTES;
+        Map<UUID, byte[]> titles = new LinkedHashMap<>();
+        for (Map.Entry<UUID, TodoEntity> todo : todos.entrySet()) {
+            if (todo.getValue() == null) {
+                size += 1 + TodoCodec.ID_SIZE;
+            } else {
+                byte[] titleBytes = TodoCodec.titleBytes(todo.getValue());
+                titles.put(todo.getKey(), titleBytes);
+                size += 1 + TodoCodec.size(titleBytes);
+            }
+        }
+        ByteBuffer body = ByteBuffer.allocate(size).putLong(0);
+        todos.forEach((id, todo) -> {
+            if (todo == null) {
+                TodoCodec.writeId(body.put(DELETE), id);
+            } else {
+                TodoCodec.writeTodo(body.put(PUT), todo, titles.get(id));
+            }
+        });
+        return append(body);
+    }
+
+    @Override
+    public long appendRankSequence(long rankSequence) {
+        return append(ByteBuffer.allocate(Long.BYTES + 1 + Long.BYTES).putLong(0).put(RANK_SEQUENCE).putLong(rankSequence));
+    }
+
+    @Override
+    public void awaitDurable(long position) {
+        try {
+            writeAheadLog.awaitDurable(position);
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Could not write the todo log", e);
+        }
+    }
+
+    private long append(ByteBuffer body) {
+        try {
+            return writeAheadLog.append(body);
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Could not append to the todo log", e);
+        }
+    }
+
+    private static void replayEntry(ByteBuffer body, Map<UUID, TodoEntity> todos, long[] rankSequence) {
+        while (body.hasRemaining()) {
+            byte type = body.get();
+            switch (type) {
+                case PUT:
+                    TodoEntity todo = TodoCodec.readTodo(body);
+                    todos.put(todo.getId(), todo);
+                    break;
+                case DELETE:
+                    todos.remove(TodoCodec.readId(body));
+                    break;
+                case RANK_SEQUENCE:
+                    rankSequence[0] = Math.max(rankSequence[0], body.getLong());
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown todo log record " + type);
+            }
+        }
+    }
+
+    /**
+     * Writes a snapshot when the log grew since the last one, then deletes the segments it covers.
+     */
+    synchronized void snapshot() throws IOException {
+        if (writeAheadLog.lastPosition() == snapshotPosition) {
+            return;
+        }
+        // the segments written so far end at or before the appended position, which the state then covers:
+        // its todos hold every write appended before it is taken, its rank sequence every block appended
+        writeAheadLog.rotate();
+        long appendedPosition = writeAheadLog.lastPosition();
+        TodoStoreState state = stateSource.get();
+        long position = Math.max(appendedPosition, state.getPosition());
+
+        TodoSnapshotFile.write(directory, state.getTodos(), state.getRankSequence(), position);
+        writeAheadLog.deleteSegmentsUpTo(position);
+        snapshotPosition = position;
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Could not snapshot the todo store {}, the log keeps growing until the next one", directory, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writeAheadLog == null) {
+            return;
+        }
+        snapshotExecutor.shutdown();
+        try {
+            snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            snapshot();
+        } finally {
+            writeAheadLog.close();
+            lockChannel.close();
+        }
+    }
+
+    static void syncDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+}
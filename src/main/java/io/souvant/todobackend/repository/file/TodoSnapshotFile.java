@@ -0,0 +1,98 @@
+package io.souvant.todobackend.repository.file;
+
+import io.souvant.todobackend.repository.entity.TodoEntity;
+import io.souvant.todobackend.repository.memory.TodoStoreState;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Compact image of every todo as of a log position, written through a memory-mapped file and renamed into
+ * place once forced to disk. Layout: magic, format, position, rank sequence, todo count, the todos, then the
+ * CRC32 of everything before it.
+ */
+final class TodoSnapshotFile {
+
+    private static final int MAGIC = 0x544F444F;
+    private static final int FORMAT = 2;
+    private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES + Long.BYTES + Integer.BYTES;
+    private static final String FILE_NAME = "snapshot.dat";
+    private static final String TEMPORARY_FILE_NAME = "snapshot.tmp";
+
+    private TodoSnapshotFile() {
+    }
+
+    static void write(Path directory, Collection<TodoEntity> todos, long rankSequence, long position) throws IOException {
+        List<byte[]> titles = new ArrayList<>(todos.size());
+        long size = HEADER_SIZE + Integer.BYTES;
+        for (TodoEntity todo : todos) {
+            byte[] titleBytes = TodoCodec.titleBytes(todo);
+            titles.add(titleBytes);
+            size += TodoCodec.size(titleBytes);
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("A snapshot of " + todos.size() + " todos does not fit in one mapped file");
+        }
+
+        Path temporaryFile = directory.resolve(TEMPORARY_FILE_NAME);
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(FORMAT).putLong(position).putLong(rankSequence).putInt(todos.size());
+            int i = 0;
+            for (TodoEntity todo : todos) {
+                TodoCodec.writeTodo(buffer, todo, titles.get(i++));
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().flip());
+            buffer.putInt((int) crc.getValue());
+            buffer.force();
+        }
+        Files.move(temporaryFile, directory.resolve(FILE_NAME), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        TodoFileStore.syncDirectory(directory);
+    }
+
+    /**
+     * Returns the stored todos, or an empty state at position 0 when no snapshot was written yet.
+     */
+    static TodoStoreState read(Path directory) throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return new TodoStoreState(new ArrayList<>(), 1, 0);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + Integer.BYTES) {
+                throw new IOException("Truncated snapshot " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            ByteBuffer content = buffer.duplicate().limit((int) size - Integer.BYTES);
+            CRC32 crc = new CRC32();
+            crc.update(content.duplicate());
+            if ((int) crc.getValue() != buffer.getInt((int) size - Integer.BYTES)) {
+                throw new IOException("Corrupt snapshot " + file);
+            }
+            if (content.getInt() != MAGIC || content.getInt() != FORMAT) {
+                throw new IOException("Unknown snapshot format in " + file);
+            }
+            long position = content.getLong();
+            long rankSequence = content.getLong();
+            int count = content.getInt();
+            List<TodoEntity> todos = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                todos.add(TodoCodec.readTodo(content));
+            }
+            return new TodoStoreState(todos, rankSequence, position);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package io.souvant.todobackend.repository.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log in segment files named after the position of their first entry. An entry is its body length,
+ * the CRC32 of its body, then the body starting with the entry position. Appends are queued and one thread
+ * writes and fsyncs everything queued at once, so the commits waiting meanwhile share a single fsync.
+ */
+class TodoWriteAheadLog implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TodoWriteAheadLog.class);
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("wal-(\\d{19})\\.log");
+    private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES;
+
+    private final Path directory;
+    private final Thread writer;
+    private final Object monitor = new Object();
+
+    // guarded by the monitor
+    private List<ByteBuffer> queued = new ArrayList<>();
+    private long lastPosition;
+    private long durablePosition;
+    private boolean rotationRequested;
+    private boolean closed;
+    private IOException failure;
+
+    // only used by the writer thread once started
+    private FileChannel segment;
+    private long segmentFirstPosition;
+
+    /**
+     * Starts a new segment after the given position, the last one replayed.
+     */
+    TodoWriteAheadLog(Path directory, long lastPosition) throws IOException {
+        this.directory = directory;
+        this.lastPosition = lastPosition;
+        this.durablePosition = lastPosition;
+        openSegment(lastPosition + 1);
+        this.writer = new Thread(this::writeQueued, "todo-wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues an entry whose body starts with 8 bytes left for its position, and returns that position.
+     */
+    long append(ByteBuffer body) throws IOException {
+        synchronized (monitor) {
+            if (failure != null) {
+                throw new IOException("The todo log can not be written anymore", failure);
+            }
+            if (closed) {
+                throw new IOException("The todo log is closed");
+            }
+            long position = ++lastPosition;
+            body.putLong(0, position);
+            body.rewind();
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(body.remaining()).putInt((int) crc.getValue());
+            queued.add(header.flip());
+            queued.add(body);
+            monitor.notifyAll();
+            return position;
+        }
+    }
+
+    long lastPosition() {
+        synchronized (monitor) {
+            return lastPosition;
+        }
+    }
+
+    void awaitDurable(long position) throws IOException {
+        synchronized (monitor) {
+            while (durablePosition < position && failure == null) {
+                try {
+                    monitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            if (durablePosition < position) {
+                throw new IOException("The todo log could not be written", failure);
+            }
+        }
+    }
+
+    /**
+     * Starts a new segment once every entry queued so far is durable, then segments holding only entries
+     * up to a snapshot position can be deleted.
+     */
+    void rotate() throws IOException {
+        long position;
+        synchronized (monitor) {
+            rotationRequested = true;
+            position = lastPosition;
+            monitor.notifyAll();
+        }
+        awaitDurable(position);
+        synchronized (monitor) {
+            while (rotationRequested && failure == null) {
+                try {
+                    monitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+    }
+
+    void deleteSegmentsUpTo(long position) throws IOException {
+        List<Long> firstPositions = segmentFirstPositions(directory);
+        // a segment ends where the next one starts, the last one is being written
+        for (int i = 0; i + 1 < firstPositions.size(); i++) {
+            if (firstPositions.get(i + 1) - 1 <= position) {
+                Files.deleteIfExists(segmentPath(directory, firstPositions.get(i)));
+            }
+        }
+    }
+
+    private void writeQueued() {
+        while (true) {
+            List<ByteBuffer> batch;
+            long batchPosition;
+            boolean rotation;
+            synchronized (monitor) {
+                while (queued.isEmpty() && !rotationRequested && !closed) {
+                    try {
+                        monitor.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (queued.isEmpty() && !rotationRequested) {
+                    return;
+                }
+                batch = queued;
+                queued = new ArrayList<>();
+                batchPosition = lastPosition;
+                rotation = rotationRequested;
+            }
+            try {
+                if (!batch.isEmpty()) {
+                    ByteBuffer[] buffers = batch.toArray(new ByteBuffer[0]);
+                    while (buffers[buffers.length - 1].hasRemaining()) {
+                        segment.write(buffers);
+                    }
+                    segment.force(false);
+                }
+                if (rotation && segmentFirstPosition != batchPosition + 1) {
+                    segment.close();
+                    openSegment(batchPosition + 1);
+                }
+                synchronized (monitor) {
+                    durablePosition = batchPosition;
+                    if (rotation) {
+                        rotationRequested = false;
+                    }
+                    monitor.notifyAll();
+                }
+            } catch (IOException e) {
+                LOGGER.error("Could not write the todo log, the store is read only from now on", e);
+                synchronized (monitor) {
+                    failure = e;
+                    monitor.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    // a segment already named after the position holds no entry, or only the torn one cut by the replay
+    private void openSegment(long firstPosition) throws IOException {
+        segment = FileChannel.open(segmentPath(directory, firstPosition),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentFirstPosition = firstPosition;
+        TodoFileStore.syncDirectory(directory);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (monitor) {
+            closed = true;
+            monitor.notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        segment.close();
+    }
+
+    /**
+     * Hands the body of every entry after the given position to the consumer, positioned after the entry
+     * position, and returns the last position read. A torn entry ends the last segment, which is cut there.
+     */
+    static long replay(Path directory, long afterPosition, Consumer<ByteBuffer> entryConsumer) throws IOException {
+        List<Long> firstPositions = segmentFirstPositions(directory);
+        long lastPosition = afterPosition;
+        for (int i = 0; i < firstPositions.size(); i++) {
+            Path segmentPath = segmentPath(directory, firstPositions.get(i));
+            ByteBuffer segmentBuffer = ByteBuffer.wrap(Files.readAllBytes(segmentPath));
+            while (segmentBuffer.hasRemaining()) {
+                int entryStart = segmentBuffer.position();
+                ByteBuffer body = readEntry(segmentBuffer);
+                if (body == null) {
+                    if (i + 1 < firstPositions.size()) {
+                        throw new IOException("Corrupt entry in " + segmentPath + " at " + entryStart + ", before later segments");
+                    }
+                    LOGGER.warn("Cutting the torn end of {} at {}", segmentPath, entryStart);
+                    try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.WRITE)) {
+                        channel.truncate(entryStart);
+                        channel.force(true);
+                    }
+                    break;
+                }
+                long position = body.getLong();
+                if (position > lastPosition) {
+                    entryConsumer.accept(body);
+                    lastPosition = position;
+                }
+            }
+        }
+        return lastPosition;
+    }
+
+    private static ByteBuffer readEntry(ByteBuffer segmentBuffer) {
+        if (segmentBuffer.remaining() < HEADER_SIZE) {
+            return null;
+        }
+        int length = segmentBuffer.getInt();
+        int expectedCrc = segmentBuffer.getInt();
+        if (length < Long.BYTES || length > segmentBuffer.remaining()) {
+            return null;
+        }
+        ByteBuffer body = segmentBuffer.slice();
+        body.limit(length);
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != expectedCrc) {
+            return null;
+        }
+        segmentBuffer.position(segmentBuffer.position() + length);
+        return body;
+    }
+
+    private static List<Long> segmentFirstPositions(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> SEGMENT_NAME.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static Path segmentPath(Path directory, long firstPosition) {
+        return directory.resolve(String.format("wal-%019d.log", firstPosition));
+    }
+}
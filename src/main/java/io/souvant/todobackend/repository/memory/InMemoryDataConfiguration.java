@@ -0,0 +1,23 @@
+package io.souvant.todobackend.repository.memory;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Replaces JPA and H2 with {@link InMemoryTodoRepository} when the in-memory profile is active, or the file
+ * profile which makes it durable, see their properties for the auto-configurations they turn off.
+ */
+@Configuration
+@Profile({InMemoryDataConfiguration.PROFILE, InMemoryDataConfiguration.FILE_PROFILE})
+public class InMemoryDataConfiguration {
+
+    public static final String PROFILE = "in-memory";
+    public static final String FILE_PROFILE = "file";
+
+    @Bean
+    public PlatformTransactionManager transactionManager() {
+        return new InMemoryTransactionManager();
+    }
+}
@@ -0,0 +1,651 @@
+package io.souvant.todobackend.repository.memory;
+
+import io.souvant.todobackend.repository.TodoRepository;
+import io.souvant.todobackend.repository.entity.TodoEntity;
+import io.souvant.todobackend.repository.entity.TodoIdGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link TodoRepository} kept in process for the in-memory profile: todos by id in a hash map, by rank in a
+ * skip-list and the ids of the completed ones in a set. A lookup by id is O(1), by rank O(log n), a page
+ * O(log n + page size) and deleting the completed todos O(completed log n), the ranks come from a counter.
+ * <p>
+ * It behaves like the JPA repository in a transaction: todos read are managed, their changes are written at
+ * flush or commit and only over the version read, and every write is undone if the transaction rolls back.
+ * Transactions write one at a time, from their first write to their commit or rollback, so a write never lands
+ * on a row another transaction may still undo. Lists are read from a consistent state, but a reader sees the
+ * writes of the current writer before it commits: there is no isolation for reads beyond a single write.
+ * <p>
+ * With a {@link TodoJournal} the store is durable: it starts from the todos the journal stored, and each
+ * transaction appends its todos to the journal at commit in the order they were written.
+ */
+@Repository
+@Profile(InMemoryDataConfiguration.PROFILE)
+public class InMemoryTodoRepository implements TodoRepository {
+
+    // like the INCREMENT BY of TODO_RANK_SEQ in schema.sql, must match TodoRankAllocator.BLOCK_SIZE
+    static final int RANK_BLOCK_SIZE = 50;
+
+    private final Map<UUID, TodoEntity> todosById = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<Long, TodoEntity> todosByRank = new ConcurrentSkipListMap<>();
+    private final Set<UUID> completedIds = ConcurrentHashMap.newKeySet();
+    // stored todos are never modified, a write replaces them under the write lock
+    private final StampedLock lock = new StampedLock();
+    private final AtomicLong rankSequence = new AtomicLong(1);
+    private final Supplier<UUID> idGenerator;
+    private final TodoJournal journal;
+    // held by the transaction writing from its first write to its commit, or its append with a journal
+    private final ReentrantLock writerLock = new ReentrantLock();
+    private long journalPosition;
+
+    @Autowired
+    public InMemoryTodoRepository(@Value("${spring.jpa.properties.todo.id.strategy:v7}") String idStrategy) {
+        this(idStrategy, null);
+    }
+
+    public InMemoryTodoRepository(String idStrategy, TodoJournal journal) {
+        switch (idStrategy) {
+            case TodoIdGenerator.TIME_ORDERED_STRATEGY:
+                idGenerator = TodoIdGenerator::timeOrderedUuid;
+                break;
+            case TodoIdGenerator.RANDOM_STRATEGY:
+                idGenerator = UUID::randomUUID;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown " + TodoIdGenerator.STRATEGY_SETTING + ": " + idStrategy);
+        }
+        this.journal = journal;
+        if (journal != null) {
+            TodoStoreState state = journal.open(this::captureState);
+            state.getTodos().forEach(row -> replace(row.getId(), null, row));
+            rankSequence.set(Math.max(1, state.getRankSequence()));
+            journalPosition = state.getPosition();
+        }
+    }
+
+    @Override
+    public List<TodoEntity> findTodosAfterOrder(Long after, Pageable pageable) {
+        return query(session -> manageAll(session, read(() -> todosByRank.tailMap(after, false).values().stream()
+                .skip(pageable.isPaged() ? pageable.getOffset() : 0)
+                .limit(pageable.isPaged() ? pageable.getPageSize() : Long.MAX_VALUE)
+                .collect(Collectors.toList()))));
+    }
+
+    @Override
+    public List<TodoEntity> findAllByOrderIn(Collection<Long> orders) {
+        return query(session -> manageAll(session, read(() -> orders.stream()
+                .map(todosByRank::get)
+                .filter(todoEntity -> todoEntity != null)
+                .collect(Collectors.toList()))));
+    }
+
+    @Override
+    public List<TodoEntity> findTodosFromOrderOf(UUID anchor, UUID excluded, Pageable pageable) {
+        return query(session -> manageAll(session, read(() -> {
+            TodoEntity anchorRow = todosById.get(anchor);
+            return anchorRow == null ? List.<TodoEntity>of() : page(todosByRank.tailMap(anchorRow.getOrder(), true).values(), excluded, pageable);
+        })));
+    }
+
+    @Override
+    public List<TodoEntity> findTodosUpToOrderOf(UUID anchor, UUID excluded, Pageable pageable) {
+        return query(session -> manageAll(session, read(() -> {
+            TodoEntity anchorRow = todosById.get(anchor);
+            return anchorRow == null ? List.<TodoEntity>of() : page(todosByRank.headMap(anchorRow.getOrder(), true).descendingMap().values(), excluded, pageable);
+        })));
+    }
+
+    // rows stored meanwhile may be streamed or not, like a cursor over a table being written
+    @Override
+    public Stream<TodoEntity> streamAllByOrderByOrderAsc() {
+        Session session = currentSession();
+        if (session != null) {
+            flush(session);
+        }
+        return todosByRank.values().stream().map(row -> session == null ? copy(row) : manage(session, row));
+    }
+
+    @Override
+    public Long nextRankBlock() {
+        long rankBlock = rankSequence.getAndAdd(RANK_BLOCK_SIZE);
+        if (journal != null) {
+            // not waited for: a todo given a rank of the block commits after it
+            journal.appendRankSequence(rankBlock + RANK_BLOCK_SIZE);
+        }
+        return rankBlock;
+    }
+
+    @Override
+    public int deleteCompletedTodos() {
+        return deleteCompletedTodos(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int deleteCompletedTodos(int limit) {
+        return update(session -> {
+            int deletedCount = 0;
+            for (UUID id : new ArrayList<>(completedIds)) {
+                if (deletedCount == limit) {
+                    break;
+                }
+                write(session, id, null);
+                deletedCount++;
+            }
+            return deletedCount;
+        });
+    }
+
+    @Override
+    public int deleteAllTodos() {
+        return deleteAllTodos(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int deleteAllTodos(int limit) {
+        return update(session -> {
+            List<UUID> ids = todosByRank.values().stream().limit(limit).map(TodoEntity::getId).collect(Collectors.toList());
+            ids.forEach(id -> write(session, id, null));
+            return ids.size();
+        });
+    }
+
+    @Override
+    public int deleteTodo(UUID id) {
+        return update(session -> {
+            if (!todosById.containsKey(id)) {
+                return 0;
+            }
+            write(session, id, null);
+            return 1;
+        });
+    }
+
+    @Override
+    public Optional<Long> findVersionById(UUID id) {
+        return query(session -> Optional.ofNullable(todosById.get(id)).map(TodoEntity::getVersion));
+    }
+
+    @Override
+    public int updateTodo(UUID id, String title, Boolean completed, Long order) {
+        return update(session -> {
+            TodoEntity row = todosById.get(id);
+            if (row == null) {
+                return 0;
+            }
+            write(session, id, row(id, title, completed, order, row.getVersion() + 1));
+            return 1;
+        });
+    }
+
+    @Override
+    public int updateTodo(UUID id, Collection<Long> versions, String title, Boolean completed, Long order) {
+        return update(session -> {
+            TodoEntity row = todosById.get(id);
+            if (row == null || !versions.contains(row.getVersion())) {
+                return 0;
+            }
+            write(session, id, row(id, title, completed, order, row.getVersion() + 1));
+            return 1;
+        });
+    }
+
+    @Override
+    public int updateOrder(UUID id, Long version, Long order) {
+        return update(session -> {
+            TodoEntity row = todosById.get(id);
+            if (row == null || !row.getVersion().equals(version)) {
+                return 0;
+            }
+            write(session, id, row(id, row.getTitle(), row.getCompleted(), order, version + 1));
+            return 1;
+        });
+    }
+
+    @Override
+    public int updateCompleted(Collection<UUID> ids, Boolean completed) {
+        return update(session -> {
+            int updatedCount = 0;
+            for (UUID id : new HashSet<>(ids)) {
+                TodoEntity row = todosById.get(id);
+                if (row != null) {
+                    write(session, id, row(id, row.getTitle(), completed, row.getOrder(), row.getVersion() + 1));
+                    updatedCount++;
+                }
+            }
+            return updatedCount;
+        });
+    }
+
+    @Override
+    public void detach(TodoEntity todoEntity) {
+        Session session = currentSession();
+        if (session != null && session.managed.get(todoEntity.getId()) == todoEntity) {
+            session.managed.remove(todoEntity.getId());
+            session.loaded.remove(todoEntity.getId());
+        }
+    }
+
+    @Override
+    public Optional<TodoEntity> findById(UUID id) {
+        return inSession(session -> {
+            if (session.deleted.contains(id)) {
+                return Optional.empty();
+            }
+            TodoEntity managed = session.managed.get(id);
+            if (managed != null) {
+                return Optional.of(managed);
+            }
+            TodoEntity row = todosById.get(id);
+            return row == null ? Optional.empty() : Optional.of(manage(session, row));
+        });
+    }
+
+    @Override
+    public List<TodoEntity> findAllById(Iterable<UUID> ids) {
+        List<TodoEntity> todoEntities = new ArrayList<>();
+        ids.forEach(id -> findById(id).ifPresent(todoEntities::add));
+        return todoEntities;
+    }
+
+    @Override
+    public <S extends TodoEntity> S save(S entity) {
+        return inSession(session -> {
+            // new when it has no version yet, as decided by Spring Data for a versioned entity
+            if (entity.getVersion() == null) {
+                if (entity.getId() == null) {
+                    entity.setId(idGenerator.get());
+                }
+                entity.setVersion(0L);
+                session.deleted.remove(entity.getId());
+                session.inserted.add(entity.getId());
+                session.managed.put(entity.getId(), entity);
+                return entity;
+            }
+            TodoEntity managed = session.managed.get(entity.getId());
+            if (managed == null) {
+                TodoEntity row = todosById.get(entity.getId());
+                if (row == null || !row.getVersion().equals(entity.getVersion())) {
+                    throw new ObjectOptimisticLockingFailureException(TodoEntity.class, entity.getId());
+                }
+                managed = manage(session, row);
+            }
+            if (managed != entity) {
+                managed.setTitle(entity.getTitle());
+                managed.setCompleted(entity.getCompleted());
+                managed.setOrder(entity.getOrder());
+            }
+            @SuppressWarnings("unchecked")
+            S saved = (S) managed;
+            return saved;
+        });
+    }
+
+    @Override
+    public <S extends TodoEntity> S saveAndFlush(S entity) {
+        return inSession(session -> {
+            S saved = save(entity);
+            flush(session);
+            return saved;
+        });
+    }
+
+    @Override
+    public void flush() {
+        Session session = currentSession();
+        if (session != null) {
+            flush(session);
+        }
+    }
+
+    @Override
+    public void delete(TodoEntity entity) {
+        inSession(session -> {
+            UUID id = entity.getId();
+            if (entity.getVersion() == null || session.deleted.contains(id)) {
+                return null;
+            }
+            if (session.inserted.remove(id)) {
+                session.managed.remove(id);
+                return null;
+            }
+            if (!session.managed.containsKey(id)) {
+                TodoEntity row = todosById.get(id);
+                if (row == null) {
+                    return null;
+                }
+                if (!row.getVersion().equals(entity.getVersion())) {
+                    throw new ObjectOptimisticLockingFailureException(TodoEntity.class, id);
+                }
+                manage(session, row);
+            }
+            session.managed.remove(id);
+            session.deleted.add(id);
+            return null;
+        });
+    }
+
+    /*
+     * Sessions: the todos managed by the current transaction, or by a single call outside of one
+     */
+
+    private Session currentSession() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Session session = (Session) TransactionSynchronizationManager.getResource(this);
+        if (session == null) {
+            Session transactionSession = new Session();
+            TransactionSynchronizationManager.bindResource(this, transactionSession);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    InMemoryTodoRepository.this.flush(transactionSession);
+                    commit(transactionSession);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(InMemoryTodoRepository.this);
+                    try {
+                        if (status != STATUS_COMMITTED) {
+                            undo(transactionSession);
+                        }
+                    } finally {
+                        releaseWriter(transactionSession);
+                    }
+                }
+            });
+            session = transactionSession;
+        }
+        return session;
+    }
+
+    private <T> T inSession(Function<Session, T> work) {
+        Session session = currentSession();
+        if (session != null) {
+            return work.apply(session);
+        }
+        // outside of a transaction every call writes on its own, all or nothing
+        Session callSession = new Session();
+        try {
+            T result = work.apply(callSession);
+            flush(callSession);
+            commit(callSession);
+            return result;
+        } catch (RuntimeException e) {
+            undo(callSession);
+            throw e;
+        } finally {
+            releaseWriter(callSession);
+        }
+    }
+
+    // like Hibernate before a query, the pending changes are written first
+    private <T> T query(Function<Session, T> work) {
+        return inSession(session -> {
+            flush(session);
+            return work.apply(session);
+        });
+    }
+
+    private <T> T update(Function<Session, T> work) {
+        return query(session -> {
+            acquireWriter(session);
+            long stamp = lock.writeLock();
+            try {
+                return work.apply(session);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        });
+    }
+
+    private List<TodoEntity> manageAll(Session session, List<TodoEntity> rows) {
+        return rows.stream().map(row -> manage(session, row)).collect(Collectors.toList());
+    }
+
+    private static TodoEntity manage(Session session, TodoEntity row) {
+        TodoEntity managed = session.managed.get(row.getId());
+        if (managed == null) {
+            managed = copy(row);
+            session.managed.put(row.getId(), managed);
+            session.loaded.put(row.getId(), row);
+        }
+        return managed;
+    }
+
+    private void flush(Session session) {
+        List<TodoEntity> updated = session.managed.values().stream()
+                .filter(todoEntity -> !session.inserted.contains(todoEntity.getId()) && !todoEntity.equals(session.loaded.get(todoEntity.getId())))
+                .collect(Collectors.toList());
+        if (session.inserted.isEmpty() && updated.isEmpty() && session.deleted.isEmpty()) {
+            return;
+        }
+
+        acquireWriter(session);
+        long stamp = lock.writeLock();
+        try {
+            // inserts, updates then deletes, in the order Hibernate flushes them
+            for (UUID id : session.inserted) {
+                if (todosById.containsKey(id)) {
+                    throw new DataIntegrityViolationException("Unique index or primary key violation: PRIMARY KEY ON TODO(ID) VALUES " + id);
+                }
+                TodoEntity row = copy(session.managed.get(id));
+                write(session, id, row);
+                session.loaded.put(id, row);
+            }
+            session.inserted.clear();
+            for (TodoEntity todoEntity : updated) {
+                TodoEntity loadedRow = checkVersion(session, todoEntity.getId());
+                TodoEntity row = row(todoEntity.getId(), todoEntity.getTitle(), todoEntity.getCompleted(), todoEntity.getOrder(), loadedRow.getVersion() + 1);
+                write(session, todoEntity.getId(), row);
+                todoEntity.setVersion(row.getVersion());
+                session.loaded.put(todoEntity.getId(), row);
+            }
+            for (UUID id : session.deleted) {
+                checkVersion(session, id);
+                write(session, id, null);
+                session.loaded.remove(id);
+            }
+            session.deleted.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private TodoEntity checkVersion(Session session, UUID id) {
+        TodoEntity loadedRow = session.loaded.get(id);
+        TodoEntity row = todosById.get(id);
+        if (row == null || !row.getVersion().equals(loadedRow.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(TodoEntity.class, id);
+        }
+        return loadedRow;
+    }
+
+    /*
+     * Journal: the writes of a transaction are appended while it is the only writer, and waited for once it is not
+     */
+
+    private void commit(Session session) {
+        if (journal == null) {
+            return;
+        }
+        long position = -1;
+        if (!session.written.isEmpty()) {
+            long stamp = lock.writeLock();
+            try {
+                Map<UUID, TodoEntity> todos = new LinkedHashMap<>();
+                session.written.forEach(id -> todos.put(id, todosById.get(id)));
+                position = journal.append(todos);
+                journalPosition = position;
+                session.written.clear();
+                // once appended the writes are kept: the journal replays them whether or not the wait below succeeds
+                session.undoLog.clear();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+        releaseWriter(session);
+        if (position >= 0) {
+            journal.awaitDurable(position);
+        }
+    }
+
+    private void acquireWriter(Session session) {
+        if (!session.writer) {
+            writerLock.lock();
+            session.writer = true;
+        }
+    }
+
+    private void releaseWriter(Session session) {
+        if (session.writer) {
+            session.writer = false;
+            writerLock.unlock();
+        }
+    }
+
+    private TodoStoreState captureState() {
+        writerLock.lock();
+        try {
+            long stamp = lock.readLock();
+            try {
+                // the position before the sequence: a rank block appended after the position is replayed
+                long position = journalPosition;
+                return new TodoStoreState(new ArrayList<>(todosById.values()), rankSequence.get(), position);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    private void undo(Session session) {
+        if (session.undoLog.isEmpty()) {
+            return;
+        }
+        acquireWriter(session);
+        long stamp = lock.writeLock();
+        try {
+            for (int i = session.undoLog.size() - 1; i >= 0; i--) {
+                Map.Entry<UUID, TodoEntity> previous = session.undoLog.get(i);
+                replace(previous.getKey(), todosById.get(previous.getKey()), previous.getValue());
+            }
+            session.undoLog.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /*
+     * Rows: only replaced under the write lock, a null row deletes the todo
+     */
+
+    private void write(Session session, UUID id, TodoEntity row) {
+        if (row != null) {
+            TodoEntity rankOwner = todosByRank.get(row.getOrder());
+            if (rankOwner != null && !rankOwner.getId().equals(id)) {
+                // the message names the constraint like the database one, conflicts are recognized by it
+                throw new DataIntegrityViolationException("Unique index or primary key violation: " + TodoEntity.RANK_CONSTRAINT + " ON TODO(RANK) VALUES " + row.getOrder());
+            }
+        }
+        TodoEntity previous = todosById.get(id);
+        session.written.add(id);
+        session.undoLog.add(new AbstractMap.SimpleImmutableEntry<>(id, previous));
+        replace(id, previous, row);
+    }
+
+    private void replace(UUID id, TodoEntity previous, TodoEntity row) {
+        if (previous != null) {
+            todosByRank.remove(previous.getOrder(), previous);
+            completedIds.remove(id);
+        }
+        if (row == null) {
+            todosById.remove(id);
+            return;
+        }
+        todosById.put(id, row);
+        todosByRank.put(row.getOrder(), row);
+        if (Boolean.TRUE.equals(row.getCompleted())) {
+            completedIds.add(id);
+        }
+    }
+
+    // a list read concurrently with a write is read again under the read lock
+    private <T> T read(Supplier<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        T result = reader.get();
+        if (lock.validate(stamp)) {
+            return result;
+        }
+        stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static List<TodoEntity> page(Collection<TodoEntity> rows, UUID excluded, Pageable pageable) {
+        return rows.stream()
+                .filter(row -> !row.getId().equals(excluded))
+                .skip(pageable.isPaged() ? pageable.getOffset() : 0)
+                .limit(pageable.isPaged() ? pageable.getPageSize() : Long.MAX_VALUE)
+                .collect(Collectors.toList());
+    }
+
+    private static TodoEntity row(UUID id, String title, Boolean completed, Long order, Long version) {
+        TodoEntity row = new TodoEntity(id, title, completed, order);
+        row.setVersion(version);
+        return row;
+    }
+
+    private static TodoEntity copy(TodoEntity todoEntity) {
+        return row(todoEntity.getId(), todoEntity.getTitle(), todoEntity.getCompleted(), todoEntity.getOrder(), todoEntity.getVersion());
+    }
+
+    private static final class Session {
+
+        private final Map<UUID, TodoEntity> managed = new LinkedHashMap<>();
+        // the stored row each managed todo was read from, for the dirty check and the version check
+        private final Map<UUID, TodoEntity> loaded = new HashMap<>();
+        private final Set<UUID> inserted = new LinkedHashSet<>();
+        private final Set<UUID> deleted = new LinkedHashSet<>();
+        private final List<Map.Entry<UUID, TodoEntity>> undoLog = new ArrayList<>();
+        // ids written since the last append to the journal
+        private final Set<UUID> written = new LinkedHashSet<>();
+        private boolean writer;
+    }
+}
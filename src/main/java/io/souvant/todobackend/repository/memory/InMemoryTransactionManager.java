@@ -0,0 +1,90 @@
+package io.souvant.todobackend.repository.memory;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.SmartTransactionObject;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Transaction manager of the in-memory profile. It holds no connection: a transaction is only the scope of
+ * its synchronizations, through which {@link InMemoryTodoRepository} writes its changes at commit and undoes
+ * them at rollback.
+ */
+class InMemoryTransactionManager extends AbstractPlatformTransactionManager {
+
+    @Override
+    protected Object doGetTransaction() {
+        return new InMemoryTransaction((TransactionScope) TransactionSynchronizationManager.getResource(this));
+    }
+
+    @Override
+    protected boolean isExistingTransaction(Object transaction) {
+        return ((InMemoryTransaction) transaction).scope != null;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        InMemoryTransaction inMemoryTransaction = (InMemoryTransaction) transaction;
+        inMemoryTransaction.scope = new TransactionScope();
+        inMemoryTransaction.newScope = true;
+        TransactionSynchronizationManager.bindResource(this, inMemoryTransaction.scope);
+    }
+
+    @Override
+    protected Object doSuspend(Object transaction) {
+        ((InMemoryTransaction) transaction).scope = null;
+        return TransactionSynchronizationManager.unbindResource(this);
+    }
+
+    @Override
+    protected void doResume(Object transaction, Object suspendedResources) {
+        TransactionSynchronizationManager.bindResource(this, suspendedResources);
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+        // the repository writes from its beforeCommit synchronization
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+        // the repository undoes from its afterCompletion synchronization
+    }
+
+    @Override
+    protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+        ((InMemoryTransaction) status.getTransaction()).scope.rollbackOnly = true;
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        if (((InMemoryTransaction) transaction).newScope) {
+            TransactionSynchronizationManager.unbindResource(this);
+        }
+    }
+
+    private static final class TransactionScope {
+
+        private volatile boolean rollbackOnly;
+    }
+
+    private static final class InMemoryTransaction implements SmartTransactionObject {
+
+        private TransactionScope scope;
+        private boolean newScope;
+
+        private InMemoryTransaction(TransactionScope scope) {
+            this.scope = scope;
+        }
+
+        @Override
+        public boolean isRollbackOnly() {
+            return scope != null && scope.rollbackOnly;
+        }
+
+        @Override
+        public void flush() {
+        }
+    }
+}
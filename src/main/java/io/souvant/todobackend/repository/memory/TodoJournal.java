@@ -0,0 +1,30 @@
+package io.souvant.todobackend.repository.memory;
+
+import io.souvant.todobackend.repository.entity.TodoEntity;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Makes {@link InMemoryTodoRepository} durable. With a journal the repository writes one transaction at a time,
+ * appends the todos each one wrote when it commits, and completes the commit once they are durable.
+ */
+public interface TodoJournal {
+
+    /**
+     * Returns the state stored by the previous runs. The journal may then snapshot the state given by the
+     * source, which covers every append up to its position.
+     */
+    TodoStoreState open(Supplier<TodoStoreState> stateSource);
+
+    /**
+     * Appends the todos written by a transaction, null for a deleted one, as a whole. Returns the position to
+     * wait for, appends are ordered by position.
+     */
+    long append(Map<UUID, TodoEntity> todos);
+
+    long appendRankSequence(long rankSequence);
+
+    void awaitDurable(long position);
+}
@@ -0,0 +1,33 @@
+package io.souvant.todobackend.repository.memory;
+
+import io.souvant.todobackend.repository.entity.TodoEntity;
+
+import java.util.Collection;
+
+/**
+ * Todos and rank sequence of an {@link InMemoryTodoRepository}, as of a {@link TodoJournal} position.
+ */
+public final class TodoStoreState {
+
+    private final Collection<TodoEntity> todos;
+    private final long rankSequence;
+    private final long position;
+
+    public TodoStoreState(Collection<TodoEntity> todos, long rankSequence, long position) {
+        this.todos = todos;
+        this.rankSequence = rankSequence;
+        this.position = position;
+    }
+
+    public Collection<TodoEntity> getTodos() {
+        return todos;
+    }
+
+    public long getRankSequence() {
+        return rankSequence;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+}
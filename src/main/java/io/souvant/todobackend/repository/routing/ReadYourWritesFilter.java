@@ -0,0 +1,96 @@
+package io.souvant.todobackend.repository.routing;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Sends the reads of a client to the primary for a while after it wrote, longer than a replica read from may
+ * lag. The time of its last write is kept in a cookie so that any instance serving the client knows it.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE_NAME = "todo-last-write";
+
+    private final long windowMillis;
+    private final ThreadLocal<ClientWrites> currentClient = new ThreadLocal<>();
+
+    ReadYourWritesFilter(Duration window) {
+        this.windowMillis = window.toMillis();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        currentClient.set(new ClientWrites(response, lastWriteMillis(request)));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            currentClient.remove();
+        }
+    }
+
+    boolean requiresPrimary() {
+        ClientWrites client = currentClient.get();
+        return client != null && System.currentTimeMillis() - client.lastWriteMillis < windowMillis;
+    }
+
+    /**
+     * Called when a transaction of the current request takes a connection to the primary: once committed, the
+     * client is answered with the time of its write, the response being still uncommitted then.
+     */
+    void recordWrite() {
+        ClientWrites client = currentClient.get();
+        if (client == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                client.lastWriteMillis = System.currentTimeMillis();
+                if (!client.response.isCommitted()) {
+                    Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(client.lastWriteMillis));
+                    cookie.setPath("/");
+                    cookie.setMaxAge((int) Math.max(1, (windowMillis + 999) / 1000));
+                    cookie.setHttpOnly(true);
+                    client.response.addCookie(cookie);
+                }
+            }
+        });
+    }
+
+    private static long lastWriteMillis(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return 0;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static final class ClientWrites {
+
+        private final HttpServletResponse response;
+        private long lastWriteMillis;
+
+        private ClientWrites(HttpServletResponse response, long lastWriteMillis) {
+            this.response = response;
+            this.lastWriteMillis = lastWriteMillis;
+        }
+    }
+}
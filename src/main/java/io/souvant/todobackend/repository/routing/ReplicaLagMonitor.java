@@ -0,0 +1,77 @@
+package io.souvant.todobackend.repository.routing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Measures periodically how far each replica is behind the primary, with a query returning milliseconds, and
+ * tells which ones are within the lag tolerated. Without a query the replicas are trusted to be; a replica
+ * whose query fails is not read from until it succeeds again.
+ */
+class ReplicaLagMonitor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final List<? extends DataSource> replicas;
+    private final String lagQuery;
+    private final long maxLagMillis;
+    private final AtomicLongArray lagsMillis;
+    private final ScheduledExecutorService checkExecutor;
+
+    ReplicaLagMonitor(List<? extends DataSource> replicas, String lagQuery, Duration maxLag, Duration checkInterval) {
+        this.replicas = replicas;
+        this.lagQuery = lagQuery;
+        this.maxLagMillis = maxLag.toMillis();
+        this.lagsMillis = new AtomicLongArray(replicas.size());
+        if (lagQuery.isBlank()) {
+            checkExecutor = null;
+            return;
+        }
+        for (int i = 0; i < replicas.size(); i++) {
+            lagsMillis.set(i, Long.MAX_VALUE);
+        }
+        checkExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "todo-replica-lag");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkExecutor.scheduleWithFixedDelay(this::check, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    boolean isWithinMaxLag(int replica) {
+        return lagsMillis.get(replica) <= maxLagMillis;
+    }
+
+    void check() {
+        for (int i = 0; i < replicas.size(); i++) {
+            try (Connection connection = replicas.get(i).getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                resultSet.next();
+                lagsMillis.set(i, resultSet.getLong(1));
+            } catch (SQLException e) {
+                if (lagsMillis.getAndSet(i, Long.MAX_VALUE) != Long.MAX_VALUE) {
+                    LOGGER.warn("Could not measure the lag of replica {}, it is read from no more", i, e);
+                }
+            }
+        }
+    }
+
+    void close() {
+        if (checkExecutor != null) {
+            checkExecutor.shutdownNow();
+        }
+    }
+}
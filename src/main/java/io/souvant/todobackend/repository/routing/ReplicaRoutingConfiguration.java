@@ -0,0 +1,75 @@
+package io.souvant.todobackend.repository.routing;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends read-only transactions to replicas of spring.datasource when the replicas profile is active, see
+ * {@link ReplicaRoutingDataSource} and its properties.
+ */
+@Configuration
+@Profile(ReplicaRoutingConfiguration.PROFILE)
+public class ReplicaRoutingConfiguration {
+
+    public static final String PROFILE = "replicas";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    // a replica may lag up to the maximum, and further until it is next checked
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(@Value("${todo.datasource.replica-max-lag:5s}") Duration maxLag,
+                                                     @Value("${todo.datasource.replica-lag-check-interval:1s}") Duration checkInterval) {
+        return new ReadYourWritesFilter(maxLag.plus(checkInterval));
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource, ReadYourWritesFilter readYourWritesFilter,
+                                                             ObjectProvider<MeterRegistry> meterRegistry,
+                                                             @Value("${todo.datasource.replica-urls}") List<String> replicaUrls,
+                                                             @Value("${todo.datasource.replica-lag-query:}") String lagQuery,
+                                                             @Value("${todo.datasource.replica-max-lag:5s}") Duration maxLag,
+                                                             @Value("${todo.datasource.replica-lag-check-interval:1s}") Duration checkInterval) {
+        List<HikariDataSource> replicas = new ArrayList<>(replicaUrls.size());
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariConfig replicaConfig = new HikariConfig();
+            primaryDataSource.copyStateTo(replicaConfig);
+            replicaConfig.setJdbcUrl(replicaUrls.get(i));
+            replicaConfig.setPoolName("todo-replica-" + i);
+            // an unreachable replica is left to the lag checks rather than failing the startup
+            replicaConfig.setInitializationFailTimeout(-1);
+            if (replicaConfig.getMetricsTrackerFactory() == null && replicaConfig.getMetricRegistry() == null) {
+                meterRegistry.ifAvailable(registry -> replicaConfig.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+            }
+            replicas.add(new HikariDataSource(replicaConfig));
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, new ReplicaLagMonitor(replicas, lagQuery, maxLag, checkInterval),
+                readYourWritesFilter);
+    }
+
+    // the connection is only taken at the first statement, once the transaction is known to be read-only or not
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
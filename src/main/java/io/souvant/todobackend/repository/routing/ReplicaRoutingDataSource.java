@@ -0,0 +1,74 @@
+package io.souvant.todobackend.repository.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gives the connections of read-only transactions to a replica, in turn, and every other one to the primary.
+ * A read goes to the primary as well when no replica is within the lag tolerated, or when its client wrote
+ * too recently for a replica to show the write. Must be wrapped in a LazyConnectionDataSourceProxy: a
+ * transaction is only known to be read-only once begun, after Hibernate asked for its connection.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private final DataSource primary;
+    private final List<HikariDataSource> replicas;
+    private final ReplicaLagMonitor replicaLagMonitor;
+    private final ReadYourWritesFilter readYourWritesFilter;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicas, ReplicaLagMonitor replicaLagMonitor,
+                             ReadYourWritesFilter readYourWritesFilter) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.replicaLagMonitor = replicaLagMonitor;
+        this.readYourWritesFilter = readYourWritesFilter;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route().getConnection(username, password);
+    }
+
+    private DataSource route() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                readYourWritesFilter.recordWrite();
+            }
+            return primary;
+        }
+        if (readYourWritesFilter.requiresPrimary()) {
+            return primary;
+        }
+        for (int i = 0; i < replicas.size(); i++) {
+            int replica = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+            if (replicaLagMonitor.isWithinMaxLag(replica)) {
+                return replicas.get(replica);
+            }
+        }
+        return primary;
+    }
+
+    ReplicaLagMonitor replicaLagMonitor() {
+        return replicaLagMonitor;
+    }
+
+    @Override
+    public void close() {
+        replicaLagMonitor.close();
+        replicas.forEach(HikariDataSource::close);
+    }
+}
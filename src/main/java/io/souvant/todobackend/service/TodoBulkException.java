@@ -0,0 +1,21 @@
+package io.souvant.todobackend.service;
+
+import io.souvant.todobackend.service.model.TodoBulkResult;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+public class TodoBulkException extends ResponseStatusException {
+
+    private final List<TodoBulkResult> results;
+
+    public TodoBulkException(HttpStatus status, List<TodoBulkResult> results) {
+        super(status);
+        this.results = results;
+    }
+
+    public List<TodoBulkResult> getResults() {
+        return results;
+    }
+}
@@ -0,0 +1,218 @@
+package io.souvant.todobackend.service;
+
+import io.souvant.todobackend.controller.model.request.TodoBulkOperation;
+import io.souvant.todobackend.controller.model.request.TodoPartialUpdateBody;
+import io.souvant.todobackend.repository.TodoRepository;
+import io.souvant.todobackend.repository.entity.TodoEntity;
+import io.souvant.todobackend.service.model.Todo;
+import io.souvant.todobackend.service.model.TodoBulkResult;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static io.souvant.todobackend.controller.model.request.TodoBulkOperation.Type.*;
+
+@Service
+public class TodoBulkService {
+
+    public static final int MAX_OPERATIONS = 1000;
+
+    private final TodoRepository todoRepository;
+    private final TodoRankAllocator todoRankAllocator;
+    private final TodoCache todoCache;
+    private final TodoListVersion todoListVersion;
+    private final TodoWriteBehind todoWriteBehind;
+
+    public TodoBulkService(TodoRepository todoRepository, TodoRankAllocator todoRankAllocator, TodoCache todoCache,
+                           TodoListVersion todoListVersion, TodoWriteBehind todoWriteBehind) {
+        this.todoRepository = todoRepository;
+        this.todoRankAllocator = todoRankAllocator;
+        this.todoCache = todoCache;
+        this.todoListVersion = todoListVersion;
+        this.todoWriteBehind = todoWriteBehind;
+    }
+
+    /**
+     * Applies every operation in one transaction, all or nothing. Todos and rank owners are read up front
+     * and the writes are only sent at flush, so Hibernate can group them into JDBC batches. Hibernate sends
+     * them inserts first, updates by id then deletes, not in the order of the operations: the writes are
+     * flushed before an operation takes a rank released earlier in the bulk, so the release is sent first.
+     */
+    @Transactional
+    public List<TodoBulkResult> applyOperations(List<TodoBulkOperation> operations) {
+        if (operations.size() > MAX_OPERATIONS) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE);
+        }
+
+        todoListVersion.increment();
+        Map<UUID, TodoEntity> todoEntitiesById = findReferencedTodos(operations);
+        Map<Long, UUID> rankOwners = findRankOwners(operations);
+        // allocated before any change, a sequence call would otherwise flush the pending writes
+        Deque<Long> createRanks = allocateCreateRanks(operations);
+        // the operations the writes come from, to blame a flush the database rejects on one of them
+        Map<Long, Integer> rankWriters = new HashMap<>();
+        Map<UUID, Integer> todoWriters = new HashMap<>();
+        Set<Long> releasedRanks = new HashSet<>();
+
+        List<TodoBulkResult> results = new ArrayList<>(operations.size());
+        for (TodoBulkOperation operation : operations) {
+            int index = results.size();
+            try {
+                if (takesReleasedRank(operation, releasedRanks)) {
+                    flush(operations.size(), rankWriters, todoWriters);
+                    releasedRanks.clear();
+                }
+                TodoBulkResult result = applyOperation(operation, todoEntitiesById, rankOwners, createRanks, releasedRanks);
+                if (result.getTodo() != null) {
+                    rankWriters.put(result.getTodo().getOrder(), index);
+                }
+                if (operation.getId() != null) {
+                    todoWriters.putIfAbsent(operation.getId(), index);
+                }
+                results.add(result);
+            } catch (ResponseStatusException e) {
+                if (e instanceof TodoBulkException) {
+                    throw e;
+                }
+                throw failedBulk(operations.size(), index, e.getStatus());
+            }
+        }
+
+        flush(operations.size(), rankWriters, todoWriters);
+        return results;
+    }
+
+    private static boolean takesReleasedRank(TodoBulkOperation operation, Set<Long> releasedRanks) {
+        return operation != null && operation.getOrder() != null && (operation.getOp() == UPDATE || operation.getOp() == PATCH)
+                && releasedRanks.contains(operation.getOrder().longValue());
+    }
+
+    private void flush(int operationCount, Map<Long, Integer> rankWriters, Map<UUID, Integer> todoWriters) {
+        try {
+            todoRepository.flush();
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // a todo of the bulk was written by another request since it was read
+            throw failedBulk(operationCount, todoWriters.getOrDefault(e.getIdentifier(), -1), HttpStatus.CONFLICT);
+        } catch (OptimisticLockingFailureException e) {
+            throw failedBulk(operationCount, -1, HttpStatus.CONFLICT);
+        } catch (DataIntegrityViolationException e) {
+            if (!TodoService.isRankConflict(e)) {
+                throw e;
+            }
+            // a rank taken by another request since the rank owners were read
+            Long rank = TodoService.conflictingRank(e);
+            throw failedBulk(operationCount, rank == null ? -1 : rankWriters.getOrDefault(rank, -1), HttpStatus.CONFLICT);
+        }
+    }
+
+    private TodoBulkResult applyOperation(TodoBulkOperation operation, Map<UUID, TodoEntity> todoEntitiesById,
+                                          Map<Long, UUID> rankOwners, Deque<Long> createRanks, Set<Long> releasedRanks) {
+        if (operation == null || operation.getOp() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+        }
+        if (operation.getOp() == CREATE) {
+            if (operation.getTitle() == null || operation.getTitle().isBlank()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+            }
+            TodoEntity todoEntity = todoRepository.save(new TodoEntity(operation.getTitle(), false, createRanks.pop()));
+            rankOwners.put(todoEntity.getOrder(), todoEntity.getId());
+            return new TodoBulkResult(HttpStatus.CREATED, mapTodoEntityToTodo(todoEntity));
+        }
+
+        TodoEntity todoEntity = todoEntitiesById.get(operation.getId());
+        if (todoEntity == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        todoCache.invalidate(todoEntity.getId());
+        switch (operation.getOp()) {
+            case UPDATE:
+                if (operation.getTitle() == null || operation.getOrder() == null) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+                }
+                moveRank(todoEntity, operation.getOrder().longValue(), rankOwners, releasedRanks);
+                todoEntity.setTitle(operation.getTitle());
+                todoEntity.setCompleted(operation.getCompleted());
+                todoEntity.setOrder(operation.getOrder().longValue());
+                return new TodoBulkResult(HttpStatus.OK, mapTodoEntityToTodo(todoEntity));
+            case PATCH:
+                if (operation.getOrder() != null) {
+                    moveRank(todoEntity, operation.getOrder().longValue(), rankOwners, releasedRanks);
+                }
+                TodoService.mergeTodoEntitieAndTodoRequest(todoEntity, new TodoPartialUpdateBody(operation.getTitle(), operation.getCompleted(), operation.getOrder()));
+                return new TodoBulkResult(HttpStatus.OK, mapTodoEntityToTodo(todoEntity));
+            default:
+                rankOwners.remove(todoEntity.getOrder(), todoEntity.getId());
+                releasedRanks.add(todoEntity.getOrder());
+                todoEntitiesById.remove(todoEntity.getId());
+                todoRepository.delete(todoEntity);
+                return new TodoBulkResult(HttpStatus.NO_CONTENT, null);
+        }
+    }
+
+    private static void moveRank(TodoEntity todoEntity, long order, Map<Long, UUID> rankOwners, Set<Long> releasedRanks) {
+        if (order < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+        }
+        UUID rankOwner = rankOwners.get(order);
+        if (rankOwner != null && !rankOwner.equals(todoEntity.getId())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT);
+        }
+        if (todoEntity.getOrder() != order) {
+            rankOwners.remove(todoEntity.getOrder(), todoEntity.getId());
+            releasedRanks.add(todoEntity.getOrder());
+        }
+        rankOwners.put(order, todoEntity.getId());
+    }
+
+    private Map<UUID, TodoEntity> findReferencedTodos(List<TodoBulkOperation> operations) {
+        Set<UUID> ids = operations.stream()
+                .filter(operation -> operation != null && operation.getId() != null && operation.getOp() != CREATE)
+                .map(TodoBulkOperation::getId)
+                .collect(Collectors.toSet());
+        if (ids.isEmpty()) {
+            return new HashMap<>();
+        }
+        // pending completions are written first, in this transaction, and read back with the todos
+        todoWriteBehind.flush(ids);
+        return todoRepository.findAllById(ids).stream().collect(Collectors.toMap(TodoEntity::getId, Function.identity()));
+    }
+
+    private Map<Long, UUID> findRankOwners(List<TodoBulkOperation> operations) {
+        Set<Long> ranks = operations.stream()
+                .filter(operation -> operation != null && operation.getOrder() != null && (operation.getOp() == UPDATE || operation.getOp() == PATCH))
+                .map(operation -> operation.getOrder().longValue())
+                .collect(Collectors.toSet());
+        if (ranks.isEmpty()) {
+            return new HashMap<>();
+        }
+        return todoRepository.findAllByOrderIn(ranks).stream().collect(Collectors.toMap(TodoEntity::getOrder, TodoEntity::getId, (owner, otherOwner) -> owner));
+    }
+
+    private Deque<Long> allocateCreateRanks(List<TodoBulkOperation> operations) {
+        Deque<Long> ranks = new ArrayDeque<>();
+        operations.stream()
+                .filter(operation -> operation != null && operation.getOp() == CREATE)
+                .forEach(operation -> ranks.add(todoRankAllocator.nextRank()));
+        return ranks;
+    }
+
+    private static TodoBulkException failedBulk(int operationCount, int failedIndex, HttpStatus status) {
+        List<TodoBulkResult> results = new ArrayList<>(operationCount);
+        for (int i = 0; i < operationCount; i++) {
+            results.add(new TodoBulkResult(i == failedIndex ? status : HttpStatus.FAILED_DEPENDENCY, null));
+        }
+        return new TodoBulkException(status, results);
+    }
+
+    private static Todo mapTodoEntityToTodo(TodoEntity todoEntity) {
+        return new Todo(todoEntity.getId(), todoEntity.getTitle(), todoEntity.getCompleted(), todoEntity.getOrder(), todoEntity.getVersion());
+    }
+}
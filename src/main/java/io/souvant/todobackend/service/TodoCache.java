@@ -0,0 +1,97 @@
+package io.souvant.todobackend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.souvant.todobackend.service.model.Todo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Near-cache of single todos. A todo is loaded without holding any lock, so a writer never waits for a load
+ * that may itself be waiting for a database connection. Invalidations bump a counter, the one of the key's
+ * stripe or the generation for a clear, before removing entries, and a loaded todo is only stored when
+ * neither changed since its load started.
+ */
+@Component
+public class TodoCache {
+
+    public static final String CACHE_NAME = "todos";
+
+    private static final int INVALIDATION_STRIPES = 1024;
+
+    private final Cache<UUID, Entry> entries;
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLongArray invalidations = new AtomicLongArray(INVALIDATION_STRIPES);
+
+    @Autowired
+    public TodoCache(@Value("${todo.cache.maximum-size:10000}") long maximumSize,
+                     @Value("${todo.cache.expire-after-write:5m}") Duration expireAfterWrite,
+                     MeterRegistry meterRegistry) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, CACHE_NAME);
+    }
+
+    /**
+     * Returns the cached todo or loads it, a null loaded value is not cached.
+     */
+    public Todo get(UUID id, Function<UUID, Todo> loader) {
+        Entry entry = entries.getIfPresent(id);
+        if (entry != null && entry.generation == generation.get()) {
+            return entry.todo;
+        }
+
+        long loadGeneration = generation.get();
+        long loadInvalidations = invalidations.get(stripe(id));
+        Todo todo = loader.apply(id);
+        if (todo != null) {
+            entries.asMap().compute(id, (key, currentEntry) ->
+                    generation.get() == loadGeneration && invalidations.get(stripe(key)) == loadInvalidations
+                            ? new Entry(todo, loadGeneration)
+                            : currentEntry);
+        }
+        return todo;
+    }
+
+    // after completion, a reader must not reload the old value between the invalidation and the commit
+    public void invalidate(UUID id) {
+        TransactionCallbacks.afterCompletion(() -> {
+            invalidations.incrementAndGet(stripe(id));
+            entries.invalidate(id);
+        });
+    }
+
+    public void invalidateAll() {
+        TransactionCallbacks.afterCompletion(() -> {
+            generation.incrementAndGet();
+            entries.invalidateAll();
+        });
+    }
+
+    private static int stripe(UUID id) {
+        return id.hashCode() & (INVALIDATION_STRIPES - 1);
+    }
+
+    private static final class Entry {
+
+        private final Todo todo;
+        private final long generation;
+
+        private Entry(Todo todo, long generation) {
+            this.todo = todo;
+            this.generation = generation;
+        }
+    }
+}
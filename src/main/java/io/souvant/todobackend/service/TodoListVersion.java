@@ -0,0 +1,23 @@
+package io.souvant.todobackend.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the whole todo list, incremented once a write has completed. A view of the list built
+ * after reading the version stays up to date as long as the version does not change.
+ */
+@Component
+public class TodoListVersion {
+
+    private final AtomicLong version = new AtomicLong();
+
+    public long current() {
+        return version.get();
+    }
+
+    public void increment() {
+        TransactionCallbacks.afterCompletion(version::incrementAndGet);
+    }
+}
@@ -0,0 +1,41 @@
+package io.souvant.todobackend.service;
+
+import io.souvant.todobackend.repository.TodoRepository;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands out ranks from blocks reserved on the TODO_RANK_SEQ sequence (hi/lo), so inserts never read
+ * the TODO table and several instances never get the same rank. Ranks are sequence values times RANK_GAP,
+ * the room a todo is moved into between two others, see {@link TodoService#moveTodo}. Todos moved between
+ * others and respaced are never given a multiple of RANK_GAP, which the sequence may still hand out, while a todo
+ * moved after the last one takes its next rank like a new one.
+ */
+@Component
+public class TodoRankAllocator {
+
+    // must match the INCREMENT BY of TODO_RANK_SEQ in schema.sql, and the block of InMemoryTodoRepository
+    public static final int BLOCK_SIZE = 50;
+    public static final long RANK_GAP = 1 << 16;
+
+    private final TodoRepository todoRepository;
+
+    private long nextRank;
+    private long blockEnd;
+
+    public TodoRankAllocator(TodoRepository todoRepository) {
+        this.todoRepository = todoRepository;
+    }
+
+    public synchronized Long nextRank() {
+        if (nextRank == blockEnd) {
+            nextRank = todoRepository.nextRankBlock();
+            blockEnd = nextRank + BLOCK_SIZE;
+        }
+        return nextRank++ * RANK_GAP;
+    }
+
+    // whether the sequence may hand out this rank, now or later
+    static boolean isAllocatable(long rank) {
+        return rank % RANK_GAP == 0;
+    }
+}
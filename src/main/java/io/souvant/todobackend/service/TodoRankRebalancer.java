@@ -0,0 +1,228 @@
+package io.souvant.todobackend.service;
+
+import io.souvant.todobackend.repository.TodoRepository;
+import io.souvant.todobackend.repository.entity.TodoEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Spreads the ranks of todos that moves left too close to each other, so that a move keeps finding room
+ * between two todos and writing that one todo alone. Requested by a move leaving less than MIN_GAP, it runs
+ * every todo.rank.rebalance-interval on its own thread. A move that finds no room at all respaces right away
+ * the run of todos after its target alone, see {@link #respaceAfter}.
+ * <p>
+ * The list is read in batches of todo.rank.rebalance-batch-size todos. A run of crowded todos is respaced
+ * evenly between the todos around it, together with the next ones until the room reaches TARGET_GAP per
+ * todo, in one transaction that first checks no todo was moved into the run, and writes each todo over the
+ * version read: a concurrent write rolls the run back, to be respaced at the next request.
+ */
+@Component
+public class TodoRankRebalancer {
+
+    static final long MIN_GAP = TodoRankAllocator.RANK_GAP >> 8;
+    static final long TARGET_GAP = TodoRankAllocator.RANK_GAP / 2;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TodoRankRebalancer.class);
+
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+    // ranks are never negative, the first todo may take 0
+    private static final long LOWEST_BOUND = -1;
+
+    private final TodoRepository todoRepository;
+    private final TodoCache todoCache;
+    private final TodoListVersion todoListVersion;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    private final AtomicBoolean requested = new AtomicBoolean();
+    private final ScheduledExecutorService rebalanceExecutor;
+
+    @Autowired
+    public TodoRankRebalancer(TodoRepository todoRepository, TodoCache todoCache, TodoListVersion todoListVersion,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${todo.rank.rebalance-interval:10s}") Duration rebalanceInterval,
+                              @Value("${todo.rank.rebalance-batch-size:500}") int batchSize) {
+        this.todoRepository = todoRepository;
+        this.todoCache = todoCache;
+        this.todoListVersion = todoListVersion;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        if (!rebalanceInterval.isZero()) {
+            rebalanceExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "todo-rank-rebalancer"));
+            rebalanceExecutor.scheduleWithFixedDelay(this::rebalanceIfRequested, rebalanceInterval.toMillis(), rebalanceInterval.toMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            rebalanceExecutor = null;
+        }
+    }
+
+    // at the next interval, repeated requests meanwhile make a single run
+    public void requestRebalance() {
+        requested.set(true);
+    }
+
+    /**
+     * Respaces every crowded run of the list and returns how many todos were given a new rank. A run written
+     * meanwhile is rolled back, the runs before it are kept, and an OptimisticLockingFailureException thrown.
+     */
+    public synchronized int rebalance() {
+        requested.set(false);
+        int respacedCount = 0;
+        long lowerBound = LOWEST_BOUND;
+        List<TodoEntity> run = new ArrayList<>();
+        Long after = Long.MIN_VALUE;
+        List<TodoEntity> batch;
+        do {
+            batch = todoRepository.findTodosAfterOrder(after, PageRequest.of(0, batchSize));
+            for (TodoEntity todoEntity : batch) {
+                long order = todoEntity.getOrder();
+                if (run.isEmpty()) {
+                    if (order - lowerBound >= MIN_GAP) {
+                        lowerBound = order;
+                    } else {
+                        run.add(todoEntity);
+                    }
+                } else if (hasRoom(lowerBound, order, run.size(), TARGET_GAP)
+                        || (run.size() >= batchSize && hasRoom(lowerBound, order, run.size(), 2 * MIN_GAP))) {
+                    respacedCount += respace(run, lowerBound, order, todoEntity);
+                    run.clear();
+                    lowerBound = order;
+                } else {
+                    run.add(todoEntity);
+                }
+            }
+            if (!batch.isEmpty()) {
+                after = batch.get(batch.size() - 1).getOrder();
+            }
+        } while (batch.size() == batchSize);
+
+        if (!run.isEmpty()) {
+            respacedCount += respaceLast(run, lowerBound);
+        }
+        return respacedCount;
+    }
+
+    /**
+     * Respaces the run of todos right after lowerBound, up to the first todo leaving room enough, and returns
+     * how many todos were given a new rank: the todos further down the list are left to {@link #rebalance}.
+     * A run written meanwhile is rolled back and an OptimisticLockingFailureException thrown.
+     */
+    public synchronized int respaceAfter(long lowerBound) {
+        List<TodoEntity> run = new ArrayList<>();
+        Long after = lowerBound;
+        List<TodoEntity> batch;
+        do {
+            batch = todoRepository.findTodosAfterOrder(after, PageRequest.of(0, batchSize));
+            for (TodoEntity todoEntity : batch) {
+                long order = todoEntity.getOrder();
+                if (!run.isEmpty() && (hasRoom(lowerBound, order, run.size(), TARGET_GAP)
+                        || (run.size() >= batchSize && hasRoom(lowerBound, order, run.size(), 2 * MIN_GAP)))) {
+                    return respace(run, lowerBound, order, todoEntity);
+                }
+                run.add(todoEntity);
+            }
+            if (!batch.isEmpty()) {
+                after = batch.get(batch.size() - 1).getOrder();
+            }
+        } while (batch.size() == batchSize);
+        return run.isEmpty() ? 0 : respaceLast(run, lowerBound);
+    }
+
+    private static boolean hasRoom(long lowerBound, long upperBound, int todoCount, long gap) {
+        return (upperBound - lowerBound) / (todoCount + 1) >= gap;
+    }
+
+    // nothing follows the last run: kept below the next rank the allocator hands out when there is room,
+    // given the usual gap otherwise
+    private int respaceLast(List<TodoEntity> run, long lowerBound) {
+        long upperBound = (Math.floorDiv(run.get(run.size() - 1).getOrder(), TodoRankAllocator.RANK_GAP) + 1) * TodoRankAllocator.RANK_GAP;
+        if (!hasRoom(lowerBound, upperBound, run.size(), 2 * MIN_GAP)) {
+            upperBound = lowerBound + (run.size() + 1) * TodoRankAllocator.RANK_GAP;
+        }
+        return respace(run, lowerBound, upperBound, null);
+    }
+
+    private int respace(List<TodoEntity> run, long lowerBound, long upperBound, TodoEntity next) {
+        long[] orders = new long[run.size()];
+        for (int i = 0; i < run.size(); i++) {
+            orders[i] = lowerBound + (upperBound - lowerBound) * (i + 1) / (run.size() + 1);
+            // off the ranks the allocator hands out, the todos are at least 2 * MIN_GAP apart
+            if (TodoRankAllocator.isAllocatable(orders[i])) {
+                orders[i]++;
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            List<TodoEntity> current = todoRepository.findTodosAfterOrder(lowerBound, PageRequest.of(0, run.size() + 1));
+            List<TodoEntity> expected = new ArrayList<>(run);
+            if (next != null) {
+                expected.add(next);
+            }
+            if (!ids(current).equals(ids(expected))) {
+                throw new OptimisticLockingFailureException("Todos were moved into the run being respaced");
+            }
+            // todos moving down from the lowest, then up from the highest: two todos never share a rank meanwhile
+            for (int i = 0; i < run.size(); i++) {
+                if (orders[i] < run.get(i).getOrder()) {
+                    updateOrder(run.get(i), orders[i]);
+                }
+            }
+            for (int i = run.size() - 1; i >= 0; i--) {
+                if (orders[i] > run.get(i).getOrder()) {
+                    updateOrder(run.get(i), orders[i]);
+                }
+            }
+        });
+        run.forEach(todoEntity -> todoCache.invalidate(todoEntity.getId()));
+        todoListVersion.increment();
+        return run.size();
+    }
+
+    private void updateOrder(TodoEntity todoEntity, long order) {
+        if (todoRepository.updateOrder(todoEntity.getId(), todoEntity.getVersion(), order) == 0) {
+            throw new OptimisticLockingFailureException("Todo " + todoEntity.getId() + " was written while being respaced");
+        }
+    }
+
+    private static List<UUID> ids(List<TodoEntity> todoEntities) {
+        return todoEntities.stream().map(TodoEntity::getId).collect(Collectors.toList());
+    }
+
+    private void rebalanceIfRequested() {
+        if (!requested.get()) {
+            return;
+        }
+        try {
+            int respacedCount = rebalance();
+            LOGGER.debug("Respaced the ranks of {} todos", respacedCount);
+        } catch (RuntimeException e) {
+            requested.set(true);
+            LOGGER.warn("Could not respace the todo ranks, retrying at the next interval", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (rebalanceExecutor == null) {
+            return;
+        }
+        rebalanceExecutor.shutdown();
+        rebalanceExecutor.awaitTermination(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
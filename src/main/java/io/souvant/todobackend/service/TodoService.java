@@ -1,73 +1,213 @@
 package io.souvant.todobackend.service;
 
+import io.souvant.todobackend.controller.model.request.TodoMoveBody;
 import io.souvant.todobackend.controller.model.request.TodoPartialUpdateBody;
 import io.souvant.todobackend.controller.model.request.TodoUpdateBody;
 import io.souvant.todobackend.repository.TodoRepository;
 import io.souvant.todobackend.repository.entity.TodoEntity;
 import io.souvant.todobackend.service.model.Todo;
+import io.souvant.todobackend.service.model.TodoPage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.stream.Stream;
 
 @Service
 public class TodoService {
 
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_CREATE_ATTEMPTS = 3;
+    private static final int MAX_MOVE_ATTEMPTS = 3;
+    // "... ON PUBLIC.TODO(RANK) VALUES 2", some H2 versions adding the row key in a comment
+    private static final Pattern CONFLICTING_RANK = Pattern.compile("VALUES\\s*\\(?\\s*(?:/\\*.*?\\*/\\s*)?(-?\\d+)");
+
     private final TodoRepository todoRepository;
+    private final TodoRankAllocator todoRankAllocator;
+    private final TodoCache todoCache;
+    private final TodoListVersion todoListVersion;
+    private final TodoWriteBehind todoWriteBehind;
+    private final TodoRankRebalancer todoRankRebalancer;
+    private final int deleteChunkSize;
 
-    public TodoService(TodoRepository todoRepository) {
+    public TodoService(TodoRepository todoRepository, TodoRankAllocator todoRankAllocator, TodoCache todoCache,
+                       TodoListVersion todoListVersion, TodoWriteBehind todoWriteBehind, TodoRankRebalancer todoRankRebalancer,
+                       @Value("${todo.delete.chunk-size:0}") int deleteChunkSize) {
         this.todoRepository = todoRepository;
+        this.todoRankAllocator = todoRankAllocator;
+        this.todoCache = todoCache;
+        this.todoListVersion = todoListVersion;
+        this.todoWriteBehind = todoWriteBehind;
+        this.todoRankRebalancer = todoRankRebalancer;
+        this.deleteChunkSize = deleteChunkSize;
     }
 
     public Todo createTodo(String title) {
-        Integer todoOrder = generateTodoOrder();
-        TodoEntity todoEntity = todoRepository.save(new TodoEntity(title, false, todoOrder));
-        return new Todo(todoEntity.getId(), todoEntity.getTitle(), todoEntity.isCompleted(), todoEntity.getOrder());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Long todoOrder = todoRankAllocator.nextRank();
+                TodoEntity todoEntity = todoRepository.saveAndFlush(new TodoEntity(title, false, todoOrder));
+                todoListVersion.increment();
+                return mapTodoEntityToTodo(todoEntity);
+            } catch (DataIntegrityViolationException e) {
+                // the allocated rank was already taken by an update, the next one is tried
+                if (!isRankConflict(e) || attempt == MAX_CREATE_ATTEMPTS) {
+                    throw conflictOrRethrow(e);
+                }
+            }
+        }
     }
 
-    public List<Todo> getAllTodos() {
-        Iterable<TodoEntity> todoEntities = todoRepository.findAllByOrderByOrderAsc();
-        return StreamSupport.stream(todoEntities.spliterator(), false).map(TodoService::mapTodoEntityToTodo).collect(Collectors.toList());
+    public long getListVersion() {
+        return todoListVersion.current();
     }
-    public void deleteTodos(Optional<Boolean> isCompleted) {
-        if (isCompleted.isPresent() && isCompleted.get()) {
-            todoRepository.deleteCompletedTodos();
-        } else {
-            todoRepository.deleteAll();
+
+    @Transactional(readOnly = true)
+    public void streamAllTodos(Consumer<Todo> todoConsumer) {
+        try (Stream<TodoEntity> todoEntities = todoRepository.streamAllByOrderByOrderAsc()) {
+            todoEntities.forEach(todoEntity -> {
+                todoConsumer.accept(mapTodoEntityToCurrentTodo(todoEntity));
+                // keep the persistence context empty so memory does not grow with the table
+                todoRepository.detach(todoEntity);
+            });
+        }
+    }
+
+    public TodoPage getTodosPage(Optional<Long> after, Optional<Integer> limit) {
+        int pageSize = limit.orElse(DEFAULT_PAGE_SIZE);
+        if (pageSize < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+        }
+        pageSize = Math.min(pageSize, MAX_PAGE_SIZE);
+
+        // one extra row tells whether a next page exists without a count query
+        List<TodoEntity> todoEntities = todoRepository.findTodosAfterOrder(after.orElse(Long.MIN_VALUE), PageRequest.of(0, pageSize + 1));
+        List<Todo> todos = todoEntities.stream().limit(pageSize).map(this::mapTodoEntityToCurrentTodo).collect(Collectors.toList());
+        Long nextCursor = todoEntities.size() > pageSize ? todos.get(todos.size() - 1).getOrder() : null;
+        return new TodoPage(todos, nextCursor);
+    }
+
+    public int deleteTodos(Optional<Boolean> isCompleted) {
+        try {
+            return deleteTodoRows(isCompleted.isPresent() && isCompleted.get());
+        } finally {
+            todoCache.invalidateAll();
+            todoListVersion.increment();
         }
     }
+
+    private int deleteTodoRows(boolean completedOnly) {
+        if (deleteChunkSize <= 0) {
+            return completedOnly ? todoRepository.deleteCompletedTodos() : todoRepository.deleteAllTodos();
+        }
+
+        // each chunk commits on its own so a huge table is never locked by one long statement
+        int deletedCount = 0;
+        int chunkDeletedCount;
+        do {
+            chunkDeletedCount = completedOnly ? todoRepository.deleteCompletedTodos(deleteChunkSize) : todoRepository.deleteAllTodos(deleteChunkSize);
+            deletedCount += chunkDeletedCount;
+        } while (chunkDeletedCount == deleteChunkSize);
+        return deletedCount;
+    }
     public Todo getTodo(UUID id) {
-        TodoEntity todoEntityGetById = todoRepository.findById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        return mapTodoEntityToTodo(todoEntityGetById);
+        Todo todo = todoCache.get(id, todoId -> todoRepository.findById(todoId).map(TodoService::mapTodoEntityToTodo).orElse(null));
+        if (todo == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        return todoWriteBehind.apply(todo);
     }
-    public Todo updateTodo(UUID id, TodoUpdateBody todoUpdateBody) { // todo ; faire avec exist
-        TodoEntity todoEntityToSave = new TodoEntity(id, todoUpdateBody.getTitle(), todoUpdateBody.getCompleted(), todoUpdateBody.getOrder().intValue());
-        todoRepository.findById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        todoRepository.findTodoByOrder(todoEntityToSave.getOrder(), id).ifPresent(todoEntity -> {
-             throw new ResponseStatusException(HttpStatus.CONFLICT);
-        });
-        return mapTodoEntityToTodo(todoRepository.save(todoEntityToSave));
+    /**
+     * Replaces a todo, only when its version is one of the expected versions if any are given. The database
+     * increments the version, which is read back and returned.
+     */
+    @Transactional
+    public Todo updateTodo(UUID id, TodoUpdateBody todoUpdateBody, Optional<Set<Long>> expectedVersions) {
+        String title = todoUpdateBody.getTitle();
+        Boolean completed = todoUpdateBody.getCompleted();
+        Long order = todoUpdateBody.getOrder().longValue();
+        // a single conditional update: no row means no todo or another version, a rank violation means a conflict
+        int updatedCount = 0;
+        todoWriteBehind.flush(List.of(id));
+        try {
+            if (expectedVersions.isEmpty()) {
+                updatedCount = todoRepository.updateTodo(id, title, completed, order);
+            } else if (!expectedVersions.get().isEmpty()) {
+                updatedCount = todoRepository.updateTodo(id, expectedVersions.get(), title, completed, order);
+            }
+        } catch (DataIntegrityViolationException e) {
+            throw conflictOrRethrow(e);
+        } finally {
+            todoCache.invalidate(id);
+            todoListVersion.increment();
+        }
+        if (updatedCount == 0) {
+            throw new ResponseStatusException(expectedVersions.isPresent() ? HttpStatus.PRECONDITION_FAILED : HttpStatus.NOT_FOUND);
+        }
+        // the version the database incremented, read back in the transaction that wrote it
+        Long version = todoRepository.findVersionById(id).orElseThrow();
+        return new Todo(id, title, completed, order, version);
     }
 
-    public Todo patchTodo(UUID id, TodoPartialUpdateBody todoRequestBody) {
-        TodoEntity todoEntityToUpdate = todoRepository.findById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        if(todoRequestBody.getOrder() != null) {
-            todoRepository.findTodoByOrder(todoRequestBody.getOrder().intValue(), id).ifPresent( todoEntity -> {
-                throw new ResponseStatusException(HttpStatus.CONFLICT);
-            });
+    /**
+     * Buffers an unconditional patch of completed alone when the write-behind mode is on. Returns empty when
+     * the patch is to be written by {@link #patchTodo}.
+     */
+    public Optional<Todo> toggleTodo(UUID id, TodoPartialUpdateBody todoRequestBody, Optional<Set<Long>> expectedVersions) {
+        if (expectedVersions.isPresent() || todoRequestBody.getCompleted() == null
+                || todoRequestBody.getTitle() != null || todoRequestBody.getOrder() != null) {
+            return Optional.empty();
+        }
+        Todo todo = todoWriteBehind.toggle(getTodo(id), todoRequestBody.getCompleted());
+        if (todo == null) {
+            return Optional.empty();
         }
+        todoListVersion.increment();
+        return Optional.of(todo);
+    }
+
+    /**
+     * Merges the given fields into a todo, only when its version is one of the expected versions if any are
+     * given. The update is checked against the version read, a concurrent write is never overwritten.
+     */
+    @Transactional
+    public Todo patchTodo(UUID id, TodoPartialUpdateBody todoRequestBody, Optional<Set<Long>> expectedVersions) {
+        // before the read, the todo is then read with its pending completion
+        todoWriteBehind.flush(List.of(id));
+        TodoEntity todoEntityToUpdate = todoRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(expectedVersions.isPresent() ? HttpStatus.PRECONDITION_FAILED : HttpStatus.NOT_FOUND));
+        if (expectedVersions.isPresent() && !expectedVersions.get().contains(todoEntityToUpdate.getVersion())) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED);
+        }
+        todoCache.invalidate(id);
+        todoListVersion.increment();
 
         TodoEntity todoEntityUpdatedToSave = mergeTodoEntitieAndTodoRequest(todoEntityToUpdate, todoRequestBody);
 
-        return mapTodoEntityToTodo(todoRepository.save(todoEntityUpdatedToSave));
+        try {
+            return mapTodoEntityToTodo(todoRepository.saveAndFlush(todoEntityUpdatedToSave));
+        } catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(expectedVersions.isPresent() ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT);
+        } catch (DataIntegrityViolationException e) {
+            throw conflictOrRethrow(e);
+        }
     }
 
-    private TodoEntity mergeTodoEntitieAndTodoRequest(TodoEntity todoEntityToUpdate, TodoPartialUpdateBody todoRequestBody) {
+    static TodoEntity mergeTodoEntitieAndTodoRequest(TodoEntity todoEntityToUpdate, TodoPartialUpdateBody todoRequestBody) {
 
         if(todoRequestBody.getTitle() != null) {
             if(todoRequestBody.getTitle().equals("" )|| todoRequestBody.getTitle().trim() == "") {
@@ -82,29 +222,152 @@ public class TodoService {
         }
 
         if(todoRequestBody.getOrder() != null) {
-            if(todoRequestBody.getOrder().intValue() < 0) {
+            if(todoRequestBody.getOrder().longValue() < 0) {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
             }
-            todoEntityToUpdate.setOrder(todoRequestBody.getOrder().intValue());
+            todoEntityToUpdate.setOrder(todoRequestBody.getOrder().longValue());
         }
         return todoEntityToUpdate;
     }
 
 
+    /**
+     * Moves a todo right after or before another, between both when both are given, by giving it a rank in
+     * the gap between them, or the next rank a new todo would take after the last one: only that todo is
+     * written. Without room left the todos right after the target are respaced first, and a gap left too
+     * small is respaced later by the {@link TodoRankRebalancer}.
+     */
+    public Todo moveTodo(UUID id, TodoMoveBody todoMoveBody) {
+        UUID before = todoMoveBody.getBefore();
+        UUID after = todoMoveBody.getAfter();
+        if ((before == null && after == null) || id.equals(before) || id.equals(after)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+        }
+        todoWriteBehind.flush(List.of(id));
+        for (int attempt = 1; attempt <= MAX_MOVE_ATTEMPTS; attempt++) {
+            TodoEntity todoEntity = todoRepository.findById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+            long[] bounds = findMoveBounds(id, before, after);
+            long lowerBound = bounds[0];
+            long upperBound = bounds[1];
+            if (todoEntity.getOrder() > lowerBound && todoEntity.getOrder() < upperBound) {
+                return mapTodoEntityToTodo(todoEntity);
+            }
+            Long rank = upperBound == Long.MAX_VALUE ? rankAfter(lowerBound) : rankBetween(lowerBound, upperBound);
+            if (rank == null) {
+                respaceQuietly(lowerBound);
+                continue;
+            }
+
+            // a single conditional update: no row means a concurrent write, a rank violation a concurrent move
+            long order = rank;
+            int updatedCount;
+            try {
+                updatedCount = todoRepository.updateOrder(id, todoEntity.getVersion(), order);
+            } catch (DataIntegrityViolationException e) {
+                if (!isRankConflict(e)) {
+                    throw e;
+                }
+                continue;
+            } finally {
+                todoCache.invalidate(id);
+                todoListVersion.increment();
+            }
+            if (updatedCount == 1) {
+                if (order - lowerBound < TodoRankRebalancer.MIN_GAP || upperBound - order < TodoRankRebalancer.MIN_GAP) {
+                    todoRankRebalancer.requestRebalance();
+                }
+                return new Todo(id, todoEntity.getTitle(), todoEntity.getCompleted(), order, todoEntity.getVersion() + 1);
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.CONFLICT);
+    }
+
+    // the exclusive bounds of the new rank: a missing lower side is a gap away from the anchor, never below 0,
+    // a missing upper side is open
+    private long[] findMoveBounds(UUID id, UUID before, UUID after) {
+        Long lower;
+        Long upper;
+        if (after != null) {
+            List<TodoEntity> neighbours = todoRepository.findTodosFromOrderOf(after, id, PageRequest.of(0, 2));
+            if (neighbours.isEmpty() || (before != null && (neighbours.size() < 2 || !neighbours.get(1).getId().equals(before)))) {
+                // an anchor that does not exist, or is no longer next to the other one
+                throw new ResponseStatusException(HttpStatus.CONFLICT);
+            }
+            lower = neighbours.get(0).getOrder();
+            upper = neighbours.size() > 1 ? neighbours.get(1).getOrder() : null;
+        } else {
+            List<TodoEntity> neighbours = todoRepository.findTodosUpToOrderOf(before, id, PageRequest.of(0, 2));
+            if (neighbours.isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT);
+            }
+            upper = neighbours.get(0).getOrder();
+            lower = neighbours.size() > 1 ? neighbours.get(1).getOrder() : null;
+        }
+        long lowerBound = lower != null ? lower : Math.max(-1, upper - 2 * TodoRankAllocator.RANK_GAP);
+        long upperBound = upper != null ? upper : Long.MAX_VALUE;
+        return new long[]{lowerBound, upperBound};
+    }
+
+    // after the last todo, the next rank a new todo would take: todos created later still come after it
+    private Long rankAfter(long lowerBound) {
+        long rank = todoRankAllocator.nextRank();
+        // the other instances may have handed out higher ranks than this one
+        return rank > lowerBound ? rank : rankBetween(lowerBound, lowerBound + 2 * TodoRankAllocator.RANK_GAP);
+    }
+
+    // the middle of the gap, next to it when the allocator may hand that rank out; null without room left
+    static Long rankBetween(long lowerBound, long upperBound) {
+        long rank = lowerBound + (upperBound - lowerBound) / 2;
+        if (TodoRankAllocator.isAllocatable(rank)) {
+            rank = rank + 1 < upperBound ? rank + 1 : rank - 1;
+        }
+        return rank > lowerBound && rank < upperBound ? rank : null;
+    }
+
+    // the run after the lower bound only, the rest of the list is left to the background pass
+    private void respaceQuietly(long lowerBound) {
+        try {
+            todoRankRebalancer.respaceAfter(lowerBound);
+        } catch (OptimisticLockingFailureException e) {
+            // written meanwhile, the move is tried again with the ranks as they are
+        }
+        todoRankRebalancer.requestRebalance();
+    }
+
     public void deleteTodo(UUID id) {
-        if(!todoRepository.existsById(id)) {
+        // a single statement: no row deleted means no todo
+        if (todoRepository.deleteTodo(id) == 0) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND);
         }
-        todoRepository.deleteById(id);
+        todoCache.invalidate(id);
+        todoListVersion.increment();
     }
 
     // utils functions
-    private Integer generateTodoOrder() {
-        Optional<Integer> todoLastOrder = todoRepository.getMaxOrder();
-        return todoLastOrder.isEmpty() ? 1 : todoLastOrder.get() + 1;
+    static boolean isRankConflict(DataIntegrityViolationException e) {
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.toUpperCase().contains(TodoEntity.RANK_CONSTRAINT);
+    }
+
+    /**
+     * Returns the rank a rank conflict was raised on, read from the "VALUES" of the message, or null when the
+     * message does not give it.
+     */
+    static Long conflictingRank(DataIntegrityViolationException e) {
+        String message = e.getMostSpecificCause().getMessage();
+        Matcher matcher = CONFLICTING_RANK.matcher(message == null ? "" : message);
+        return matcher.find() ? Long.valueOf(matcher.group(1)) : null;
+    }
+
+    private static RuntimeException conflictOrRethrow(DataIntegrityViolationException e) {
+        return isRankConflict(e) ? new ResponseStatusException(HttpStatus.CONFLICT) : e;
+    }
+
+    private Todo mapTodoEntityToCurrentTodo(TodoEntity todoEntity) {
+        return todoWriteBehind.apply(mapTodoEntityToTodo(todoEntity));
     }
 
     private static Todo mapTodoEntityToTodo(TodoEntity todoEntity) {
-        return new Todo(todoEntity.getId(), todoEntity.getTitle(), todoEntity.getCompleted(), todoEntity.getOrder());
+        return new Todo(todoEntity.getId(), todoEntity.getTitle(), todoEntity.getCompleted(), todoEntity.getOrder(), todoEntity.getVersion());
     }
 }
@@ -0,0 +1,203 @@
+package io.souvant.todobackend.service;
+
+import io.souvant.todobackend.repository.TodoRepository;
+import io.souvant.todobackend.service.model.Todo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Write-behind buffer of completion toggles, used when todo.write-behind.enabled is set. A toggle is kept
+ * in memory, reads see it through {@link #apply(Todo)}, and the toggles of a period are collapsed per todo
+ * and written with one update per completed value. A toggle leaves the buffer only once it is written.
+ * With the buffered durability a toggle is answered once in memory and lost if the process dies before
+ * the next flush, with the flushed durability it is answered once written.
+ */
+@Component
+public class TodoWriteBehind {
+
+    public enum Durability {
+        BUFFERED, FLUSHED
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TodoWriteBehind.class);
+
+    private static final int MAX_IDS_PER_UPDATE = 1000;
+    private static final Duration FLUSH_TIMEOUT = Duration.ofSeconds(10);
+
+    private final TodoRepository todoRepository;
+    private final TodoCache todoCache;
+    private final TodoListVersion todoListVersion;
+    private final boolean enabled;
+    private final int maxPending;
+    private final Durability durability;
+
+    private final ConcurrentHashMap<UUID, Toggle> pendingToggles = new ConcurrentHashMap<>();
+    private volatile CompletableFuture<Void> nextFlush = new CompletableFuture<>();
+    private final ScheduledExecutorService flushExecutor;
+
+    @Autowired
+    public TodoWriteBehind(TodoRepository todoRepository, TodoCache todoCache, TodoListVersion todoListVersion,
+                           @Value("${todo.write-behind.enabled:false}") boolean enabled,
+                           @Value("${todo.write-behind.flush-interval:100ms}") Duration flushInterval,
+                           @Value("${todo.write-behind.max-pending:10000}") int maxPending,
+                           @Value("${todo.write-behind.durability:buffered}") Durability durability) {
+        this.todoRepository = todoRepository;
+        this.todoCache = todoCache;
+        this.todoListVersion = todoListVersion;
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+        this.durability = durability;
+        if (enabled) {
+            flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "todo-write-behind"));
+            flushExecutor.scheduleWithFixedDelay(this::flushQuietly, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            flushExecutor = null;
+        }
+    }
+
+    /**
+     * Buffers the new completion of an existing todo and returns it as reads will see it, or returns null
+     * when the mode is off or the buffer is full so that the caller writes it itself.
+     */
+    public Todo toggle(Todo todo, boolean completed) {
+        if (!enabled || (pendingToggles.size() >= maxPending && !pendingToggles.containsKey(todo.getId()))) {
+            return null;
+        }
+        pendingToggles.put(todo.getId(), new Toggle(completed));
+        // read after the put: the flush taking this future is sure to see the toggle
+        CompletableFuture<Void> flush = nextFlush;
+        if (durability == Durability.FLUSHED) {
+            awaitFlush(flush);
+        }
+        return new Todo(todo.getId(), todo.getTitle(), completed, todo.getOrder(), null);
+    }
+
+    /**
+     * Returns the todo with its pending completion if any. Such a todo has no version: the one it will be
+     * written with is not known yet.
+     */
+    public Todo apply(Todo todo) {
+        if (pendingToggles.isEmpty()) {
+            return todo;
+        }
+        Toggle toggle = pendingToggles.get(todo.getId());
+        return toggle == null ? todo : new Todo(todo.getId(), todo.getTitle(), toggle.completed, todo.getOrder(), null);
+    }
+
+    // a synchronous write of a todo writes its pending toggle first, in its transaction, so the toggle can not land after it
+    public void flush(Collection<UUID> ids) {
+        if (pendingToggles.isEmpty()) {
+            return;
+        }
+        Map<UUID, Toggle> toggles = new HashMap<>();
+        ids.forEach(id -> {
+            Toggle toggle = pendingToggles.get(id);
+            if (toggle != null) {
+                toggles.put(id, toggle);
+            }
+        });
+        write(toggles);
+    }
+
+    void flush() {
+        CompletableFuture<Void> flush = nextFlush;
+        nextFlush = new CompletableFuture<>();
+        try {
+            write(new HashMap<>(pendingToggles));
+            flush.complete(null);
+        } catch (RuntimeException e) {
+            // the toggles stay in the buffer and are written by the next flush
+            flush.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private void write(Map<UUID, Toggle> toggles) {
+        if (toggles.isEmpty()) {
+            return;
+        }
+        List<UUID> completedIds = new ArrayList<>();
+        List<UUID> uncompletedIds = new ArrayList<>();
+        toggles.forEach((id, toggle) -> (toggle.completed ? completedIds : uncompletedIds).add(id));
+        updateCompleted(completedIds, true);
+        updateCompleted(uncompletedIds, false);
+
+        // registered first, so it runs before the toggles are dropped: a view of the list that read the rows
+        // before the commit and applies the toggles after it is outdated by then
+        todoListVersion.increment();
+        // removed once written, and only if not toggled again meanwhile: reads see the toggle until then
+        TransactionCallbacks.afterCommit(() -> toggles.forEach((id, toggle) -> {
+            todoCache.invalidate(id);
+            pendingToggles.remove(id, toggle);
+        }));
+    }
+
+    private void updateCompleted(List<UUID> ids, boolean completed) {
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_UPDATE) {
+            todoRepository.updateCompleted(ids.subList(from, Math.min(ids.size(), from + MAX_IDS_PER_UPDATE)), completed);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not write {} completion toggles, retrying at the next flush", pendingToggles.size(), e);
+        }
+    }
+
+    private static void awaitFlush(CompletableFuture<Void> flush) {
+        try {
+            flush.get(FLUSH_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (flushExecutor == null) {
+            return;
+        }
+        flushExecutor.shutdown();
+        flushExecutor.awaitTermination(FLUSH_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOGGER.error("Lost {} completion toggles at shutdown", pendingToggles.size(), e);
+        }
+    }
+
+    private static final class Toggle {
+
+        private final boolean completed;
+
+        private Toggle(boolean completed) {
+            this.completed = completed;
+        }
+    }
+}
@@ -9,15 +9,22 @@ public class Todo {
 
     private String title;
 
-    private Integer order;
+    private Long order;
 
     private Boolean completed;
 
-    public Todo(UUID id, String title, Boolean completed, Integer order) {
+    private Long version;
+
+    public Todo(UUID id, String title, Boolean completed, Long order) {
+        this(id, title, completed, order, null);
+    }
+
+    public Todo(UUID id, String title, Boolean completed, Long order, Long version) {
         this.id = id;
         this.title = title;
         this.completed = completed;
         this.order = order;
+        this.version = version;
     }
 
     @Override
@@ -29,7 +36,7 @@ public class Todo {
 
         Todo todo = (Todo) o;
 
-        return todo.getId() == id && todo.getTitle() == title && todo.completed == completed && todo.getOrder() == order;
+        return todo.getId() == id && todo.getTitle() == title && todo.completed == completed && Objects.equals(todo.getOrder(), order);
     }
 
     @Override
@@ -45,11 +52,15 @@ public class Todo {
         return title;
     }
 
-    public Integer getOrder() {
+    public Long getOrder() {
         return order;
     }
 
     public Boolean getCompleted() {
         return completed;
     }
+
+    public Long getVersion() {
+        return version;
+    }
 }
@@ -0,0 +1,38 @@
+package io.souvant.todobackend.service.model;
+
+import org.springframework.http.HttpStatus;
+
+import java.util.Objects;
+
+public class TodoBulkResult {
+
+    private final HttpStatus status;
+
+    private final Todo todo;
+
+    public TodoBulkResult(HttpStatus status, Todo todo) {
+        this.status = status;
+        this.todo = todo;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public Todo getTodo() {
+        return todo;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TodoBulkResult that = (TodoBulkResult) o;
+        return status == that.status && Objects.equals(todo, that.todo);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(status, todo);
+    }
+}
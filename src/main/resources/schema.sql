@@ -0,0 +1,2 @@
+-- INCREMENT BY must match TodoRankAllocator.BLOCK_SIZE: each value reserves a block of ranks
+CREATE SEQUENCE IF NOT EXISTS TODO_RANK_SEQ START WITH 1 INCREMENT BY 50;
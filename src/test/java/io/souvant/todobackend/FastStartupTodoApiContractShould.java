@@ -0,0 +1,19 @@
+package io.souvant.todobackend;
+
+import io.souvant.todobackend.contract.TodoApiContract;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("fast-startup")
+class FastStartupTodoApiContractShould extends TodoApiContract {
+
+    @LocalServerPort
+    int port;
+
+    @Override
+    protected String baseUrl() {
+        return "http://localhost:" + port;
+    }
+}
@@ -0,0 +1,31 @@
+package io.souvant.todobackend;
+
+import io.souvant.todobackend.contract.TodoApiContract;
+import io.souvant.todobackend.repository.memory.InMemoryDataConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+import java.util.UUID;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles(InMemoryDataConfiguration.FILE_PROFILE)
+class FileTodoApiContractShould extends TodoApiContract {
+
+    @LocalServerPort
+    int port;
+
+    @DynamicPropertySource
+    static void storeDirectory(DynamicPropertyRegistry registry) {
+        Path directory = Path.of(System.getProperty("java.io.tmpdir"), "todo-file-store-" + UUID.randomUUID());
+        registry.add("todo.file-store.directory", directory::toString);
+    }
+
+    @Override
+    protected String baseUrl() {
+        return "http://localhost:" + port;
+    }
+}
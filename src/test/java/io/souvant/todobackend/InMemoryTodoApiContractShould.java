@@ -0,0 +1,20 @@
+package io.souvant.todobackend;
+
+import io.souvant.todobackend.contract.TodoApiContract;
+import io.souvant.todobackend.repository.memory.InMemoryDataConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles(InMemoryDataConfiguration.PROFILE)
+class InMemoryTodoApiContractShould extends TodoApiContract {
+
+    @LocalServerPort
+    int port;
+
+    @Override
+    protected String baseUrl() {
+        return "http://localhost:" + port;
+    }
+}
@@ -0,0 +1,52 @@
+package io.souvant.todobackend;
+
+import io.souvant.todobackend.controller.model.request.TodoSaveBody;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMetrics
+class MetricsShould {
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Test
+    @DisplayName("expose endpoint histograms, repository timers, Hibernate statistics and pool gauges to Prometheus")
+    void exposePrometheusMetrics() {
+        // GIVEN
+        restTemplate.postForEntity("/todos", new TodoSaveBody("measured"), String.class);
+        restTemplate.getForEntity("/todos", String.class);
+
+        // WHEN
+        ResponseEntity<String> response = restTemplate.getForEntity("/actuator/prometheus", String.class);
+
+        // THEN
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        String scrape = response.getBody();
+        assertTrue(hasSample(scrape, "http_server_requests_seconds_bucket{", "method=\"GET\"", "uri=\"/todos\"", "le=\"0.001\""));
+        assertTrue(hasSample(scrape, "http_server_requests_seconds_bucket{", "method=\"POST\"", "uri=\"/todos\""));
+        assertTrue(hasSample(scrape, "spring_data_repository_invocations_seconds_count{", "method=\"saveAndFlush\"", "repository=\"TodoRepository\""));
+        assertTrue(hasSample(scrape, "spring_data_repository_invocations_seconds_count{", "method=\"findTodosAfterOrder\""));
+        assertTrue(hasSample(scrape, "hibernate_statements_total{"));
+        assertTrue(hasSample(scrape, "hibernate_entities_inserts_total{"));
+        assertTrue(hasSample(scrape, "hibernate_flushes_total{"));
+        assertTrue(hasSample(scrape, "hikaricp_connections_active{"));
+    }
+
+    private static boolean hasSample(String scrape, String name, String... labels) {
+        return Arrays.stream(scrape.split("\n"))
+                .anyMatch(line -> line.startsWith(name) && Arrays.stream(labels).allMatch(line::contains));
+    }
+}
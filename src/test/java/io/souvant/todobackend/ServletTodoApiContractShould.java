@@ -0,0 +1,41 @@
+package io.souvant.todobackend;
+
+import io.souvant.todobackend.contract.TodoApiContract;
+import io.souvant.todobackend.sql.SqlStatementCounting;
+import io.souvant.todobackend.sql.SqlStatementRecorder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import(SqlStatementCounting.class)
+class ServletTodoApiContractShould extends TodoApiContract {
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    SqlStatementRecorder sqlStatementRecorder;
+
+    @BeforeEach
+    void clearSqlStatements() {
+        sqlStatementRecorder.clear();
+    }
+
+    @AfterEach
+    void stayWithinSqlStatementBudgets() {
+        assertEquals(List.of(), sqlStatementRecorder.requestsOverBudget());
+    }
+
+    @Override
+    protected String baseUrl() {
+        return "http://localhost:" + port;
+    }
+}
@@ -0,0 +1,664 @@
+package io.souvant.todobackend;
+
+import io.souvant.todobackend.controller.model.request.TodoBulkOperation;
+import io.souvant.todobackend.controller.model.request.TodoMoveBody;
+import io.souvant.todobackend.controller.model.request.TodoPartialUpdateBody;
+import io.souvant.todobackend.controller.model.request.TodoSaveBody;
+import io.souvant.todobackend.controller.model.request.TodoUpdateBody;
+import io.souvant.todobackend.controller.model.response.TodoBulkResultResponse;
+import io.souvant.todobackend.controller.model.response.TodoResponse;
+import io.souvant.todobackend.repository.TodoRepository;
+import io.souvant.todobackend.repository.entity.TodoEntity;
+import io.souvant.todobackend.service.TodoCache;
+import io.souvant.todobackend.service.TodoService;
+import io.souvant.todobackend.sql.SqlStatementCounting;
+import io.souvant.todobackend.sql.SqlStatementRecorder;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.jpa.properties.hibernate.generate_statistics=true",
+                "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=warn"
+        }
+)
+@Import(SqlStatementCounting.class)
+class TodoApiShould {
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Autowired
+    TodoRepository todoRepository;
+
+    @Autowired
+    TodoService todoService;
+
+    @Autowired
+    TodoCache todoCache;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    SqlStatementRecorder sqlStatementRecorder;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void deleteAllTodos() {
+        // through the service so that cached todos and list snapshots are dropped as well
+        todoService.deleteTodos(Optional.empty());
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        sqlStatementRecorder.clear();
+    }
+
+    @AfterEach
+    void stayWithinSqlStatementBudgets() {
+        assertEquals(List.of(), sqlStatementRecorder.requestsOverBudget());
+    }
+
+    @Test
+    @DisplayName("give distinct ranks to todos created by parallel POSTs")
+    void createTodosConcurrently() throws Exception {
+        // GIVEN
+        int clients = 16;
+        int todosPerClient = 25;
+        ExecutorService executorService = Executors.newFixedThreadPool(clients);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // WHEN
+        List<Future<List<HttpStatus>>> futures = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            int client = i;
+            futures.add(executorService.submit(() -> {
+                start.await();
+                List<HttpStatus> statuses = new ArrayList<>();
+                for (int j = 0; j < todosPerClient; j++) {
+                    ResponseEntity<TodoResponse> response = restTemplate.postForEntity("/todos", new TodoSaveBody("todo " + client + "-" + j), TodoResponse.class);
+                    statuses.add(response.getStatusCode());
+                }
+                return statuses;
+            }));
+        }
+        start.countDown();
+        List<HttpStatus> statuses = new ArrayList<>();
+        for (Future<List<HttpStatus>> future : futures) {
+            statuses.addAll(future.get(60, TimeUnit.SECONDS));
+        }
+        executorService.shutdown();
+
+        // THEN
+        assertEquals(clients * todosPerClient, statuses.stream().filter(HttpStatus.CREATED::equals).count());
+        List<Long> ranks = findAllTodos().stream().map(TodoEntity::getOrder).collect(Collectors.toList());
+        assertEquals(clients * todosPerClient, ranks.size());
+        assertEquals(ranks.size(), ranks.stream().distinct().count());
+    }
+
+    @Test
+    @DisplayName("apply a bulk of operations with a handful of statements")
+    void bulkTodos() {
+        // GIVEN
+        List<TodoResponse> todos = List.of(createTodo("update me"), createTodo("patch me"), createTodo("delete me"));
+        List<TodoBulkOperation> operations = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            operations.add(new TodoBulkOperation(TodoBulkOperation.Type.CREATE, null, "bulk " + i, null, null));
+        }
+        operations.add(new TodoBulkOperation(TodoBulkOperation.Type.UPDATE, UUID.fromString(todos.get(0).getId()), "updated", true, 10_000));
+        operations.add(new TodoBulkOperation(TodoBulkOperation.Type.PATCH, UUID.fromString(todos.get(1).getId()), null, true, null));
+        operations.add(new TodoBulkOperation(TodoBulkOperation.Type.DELETE, UUID.fromString(todos.get(2).getId()), null, null, null));
+        statistics.clear();
+
+        // WHEN
+        ResponseEntity<List<TodoBulkResultResponse>> response = restTemplate.exchange("/todos/_bulk", HttpMethod.POST, new HttpEntity<>(operations), new ParameterizedTypeReference<>() {});
+
+        // THEN
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, statistics.getTransactionCount());
+        // 2 selects, 4 sequence blocks, then one batched statement per insert, update and delete
+        assertTrue(statistics.getPrepareStatementCount() <= 10, "statements: " + statistics.getPrepareStatementCount());
+        assertEquals(operations.size(), response.getBody().size());
+        assertEquals(202, countTodos());
+    }
+
+    @Test
+    @DisplayName("reuse the rank of a deleted todo in the same bulk")
+    void reuseRankOfDeletedTodo() {
+        // GIVEN
+        TodoResponse deleted = createTodo("delete me");
+        TodoResponse moved = createTodo("move me");
+        List<TodoBulkOperation> operations = List.of(
+                new TodoBulkOperation(TodoBulkOperation.Type.DELETE, UUID.fromString(deleted.getId()), null, null, null),
+                new TodoBulkOperation(TodoBulkOperation.Type.PATCH, UUID.fromString(moved.getId()), null, null, deleted.getOrder())
+        );
+
+        // WHEN
+        ResponseEntity<List<TodoBulkResultResponse>> response = restTemplate.exchange("/todos/_bulk", HttpMethod.POST, new HttpEntity<>(operations), new ParameterizedTypeReference<>() {});
+
+        // THEN
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of(204, 200), response.getBody().stream().map(TodoBulkResultResponse::getStatus).collect(Collectors.toList()));
+        assertEquals(deleted.getOrder().longValue(), todoRepository.findById(UUID.fromString(moved.getId())).orElseThrow().getOrder());
+    }
+
+    @Test
+    @DisplayName("shift ranks in a chain, each todo taking the rank the previous one left")
+    void shiftRanksInChain() {
+        // GIVEN
+        List<TodoResponse> todos = new ArrayList<>(List.of(createTodo("first"), createTodo("second"), createTodo("third"), createTodo("fourth")));
+        // the todos whose ids sort first are moved last, Hibernate writing the updates by id
+        todos.sort(Comparator.comparing((TodoResponse todo) -> UUID.fromString(todo.getId())).reversed());
+        List<TodoBulkOperation> operations = new ArrayList<>();
+        operations.add(new TodoBulkOperation(TodoBulkOperation.Type.PATCH, UUID.fromString(todos.get(0).getId()), null, null, 1_000_000_000L));
+        for (int i = 1; i < todos.size(); i++) {
+            operations.add(new TodoBulkOperation(TodoBulkOperation.Type.PATCH, UUID.fromString(todos.get(i).getId()), null, null, todos.get(i - 1).getOrder()));
+        }
+
+        // WHEN
+        ResponseEntity<List<TodoBulkResultResponse>> response = restTemplate.exchange("/todos/_bulk", HttpMethod.POST, new HttpEntity<>(operations), new ParameterizedTypeReference<>() {});
+
+        // THEN
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        for (int i = 1; i < todos.size(); i++) {
+            assertEquals(todos.get(i - 1).getOrder().longValue(), todoRepository.findById(UUID.fromString(todos.get(i).getId())).orElseThrow().getOrder());
+        }
+    }
+
+    @Test
+    @DisplayName("delete all todos with a single statement")
+    void deleteAllTodosWithOneStatement() {
+        // GIVEN
+        createTodosInBulk(500);
+        statistics.clear();
+
+        // WHEN
+        ResponseEntity<Void> response = restTemplate.exchange("/todos", HttpMethod.DELETE, null, Void.class);
+
+        // THEN
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        assertEquals("500", response.getHeaders().getFirst("X-Deleted-Count"));
+        assertEquals(0, countTodos());
+    }
+
+    @Test
+    @DisplayName("delete completed todos with a single statement")
+    void deleteCompletedTodosWithOneStatement() {
+        // GIVEN
+        List<TodoBulkResultResponse> created = createTodosInBulk(10);
+        List<TodoBulkOperation> completions = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            completions.add(new TodoBulkOperation(TodoBulkOperation.Type.PATCH, UUID.fromString(created.get(i).getTodo().getId()), null, true, null));
+        }
+        restTemplate.exchange("/todos/_bulk", HttpMethod.POST, new HttpEntity<>(completions), String.class);
+        statistics.clear();
+
+        // WHEN
+        ResponseEntity<Void> response = restTemplate.exchange("/todos?completed=true", HttpMethod.DELETE, null, Void.class);
+
+        // THEN
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals("4", response.getHeaders().getFirst("X-Deleted-Count"));
+        assertEquals(6, countTodos());
+    }
+
+    @Test
+    @DisplayName("delete a todo with a single statement, without loading it")
+    void deleteTodoWithOneStatement() {
+        // GIVEN
+        TodoResponse todo = createTodo("to delete");
+
+        // WHEN
+        ResponseEntity<Void> response = restTemplate.exchange("/todos/" + todo.getId(), HttpMethod.DELETE, null, Void.class);
+        ResponseEntity<Void> secondResponse = restTemplate.exchange("/todos/" + todo.getId(), HttpMethod.DELETE, null, Void.class);
+
+        // THEN
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, secondResponse.getStatusCode());
+        assertEquals(List.of("delete from todo where id=?"), sqlStatementRecorder.lastStatements("DELETE /todos/{id}"));
+        assertEquals(0, countTodos());
+    }
+
+    @Test
+    @DisplayName("answer CONFLICT when a PUT or PATCH takes the rank of another todo")
+    void rejectRankConflicts() {
+        // GIVEN
+        TodoResponse first = createTodo("first");
+        TodoResponse second = createTodo("second");
+
+        // WHEN
+        ResponseEntity<String> putResponse = restTemplate.exchange("/todos/" + second.getId(), HttpMethod.PUT,
+                new HttpEntity<>(new TodoUpdateBody("second", false, first.getOrder())), String.class);
+        ResponseEntity<String> patchResponse = restTemplate.exchange("/todos/" + second.getId(), HttpMethod.PATCH,
+                new HttpEntity<>(new TodoPartialUpdateBody(null, null, first.getOrder())), String.class);
+
+        // THEN
+        assertEquals(HttpStatus.CONFLICT, putResponse.getStatusCode());
+        assertEquals(HttpStatus.CONFLICT, patchResponse.getStatusCode());
+        assertEquals(second.getOrder(), todoRepository.findById(UUID.fromString(second.getId())).orElseThrow().getOrder());
+    }
+
+    @Test
+    @DisplayName("update a todo with one statement and read the version it wrote back with a second")
+    void updateTodoWithTwoStatements() {
+        // GIVEN
+        TodoResponse todo = createTodo("to update");
+        statistics.clear();
+
+        // WHEN
+        ResponseEntity<TodoResponse> response = restTemplate.exchange("/todos/" + todo.getId(), HttpMethod.PUT,
+                new HttpEntity<>(new TodoUpdateBody("updated", true, 10_000)), TodoResponse.class);
+
+        // THEN
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("updated", response.getBody().getTitle());
+        assertEquals("updated", todoRepository.findById(UUID.fromString(todo.getId())).orElseThrow().getTitle());
+        // the version the database incremented, read back by the second statement
+        assertEquals("\"1\"", response.getHeaders().getETag());
+        assertEquals(response.getHeaders().getETag(), restTemplate.getForEntity("/todos/" + todo.getId(), String.class).getHeaders().getETag());
+    }
+
+    @Test
+    @DisplayName("give the next version to a todo updated with an If-Match listing later versions")
+    void incrementVersionOfConditionalUpdate() {
+        // GIVEN
+        TodoResponse todo = createTodo("to update");
+
+        // WHEN
+        ResponseEntity<String> response = putIfMatch(todo, "\"0\", \"" + Long.MAX_VALUE + "\"", "updated");
+
+        // THEN
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"1\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    @DisplayName("patch a todo with one read and one versioned write")
+    void patchTodoWithTwoStatements() {
+        // GIVEN
+        TodoResponse todo = createTodo("to patch");
+        statistics.clear();
+
+        // WHEN
+        ResponseEntity<TodoResponse> response = restTemplate.exchange("/todos/" + todo.getId(), HttpMethod.PATCH,
+                new HttpEntity<>(new TodoPartialUpdateBody(null, true, null)), TodoResponse.class);
+
+        // THEN
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(true, response.getBody().getCompleted());
+        assertEquals("to patch", response.getBody().getTitle());
+    }
+
+    @Test
+    @DisplayName("move a todo between two others by writing that todo alone")
+    void moveTodoWithOneWrite() {
+        // GIVEN
+        TodoResponse first = createTodo("first");
+        TodoResponse second = createTodo("second");
+        TodoResponse moved = createTodo("moved");
+        statistics.clear();
+
+        // WHEN
+        ResponseEntity<TodoResponse> response = restTemplate.postForEntity("/todos/" + moved.getId() + "/move",
+                new TodoMoveBody(UUID.fromString(second.getId()), UUID.fromString(first.getId())), TodoResponse.class);
+
+        // THEN
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"1\"", response.getHeaders().getETag());
+        assertEquals(List.of("first", "moved", "second"), titles(findAllTodos()));
+        assertEquals(List.of(0L, 1L, 0L), findAllTodos().stream().map(TodoEntity::getVersion).collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("keep moving todos into the same gap once its room has run out")
+    void moveTodosIntoExhaustedGap() {
+        // GIVEN
+        UUID first = UUID.fromString(createTodo("first").getId());
+        createTodo("last");
+        List<String> expectedTitles = new ArrayList<>(List.of("first", "last"));
+        List<UUID> moved = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            moved.add(UUID.fromString(createTodo("moved " + i).getId()));
+            expectedTitles.add(1, "moved " + i);
+        }
+
+        // WHEN
+        moved.forEach(id -> todoService.moveTodo(id, new TodoMoveBody(null, first)));
+
+        // THEN
+        assertEquals(expectedTitles, titles(findAllTodos()));
+    }
+
+    @Test
+    @DisplayName("keep creating todos once todos were moved after the last one")
+    void createTodoAfterMovesToTheEnd() {
+        // GIVEN
+        List<UUID> ids = new ArrayList<>();
+        for (String title : List.of("a", "b", "c")) {
+            ids.add(UUID.fromString(createTodo(title).getId()));
+        }
+        UUID last = ids.get(2);
+        for (int i = 0; i < 3; i++) {
+            for (UUID id : ids) {
+                if (!id.equals(last)) {
+                    todoService.moveTodo(id, new TodoMoveBody(null, last));
+                    last = id;
+                }
+            }
+        }
+
+        // WHEN
+        List<ResponseEntity<TodoResponse>> responses = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            responses.add(restTemplate.postForEntity("/todos", new TodoSaveBody("created " + i), TodoResponse.class));
+        }
+
+        // THEN
+        responses.forEach(response -> assertEquals(HttpStatus.CREATED, response.getStatusCode()));
+        assertEquals(List.of("a", "b", "c", "created 0", "created 1", "created 2"), titles(findAllTodos()));
+    }
+
+    @Test
+    @DisplayName("answer NOT FOUND to a PUT or PATCH of an unknown todo")
+    void rejectUnknownTodoUpdates() {
+        // GIVEN
+        UUID unknown = UUID.randomUUID();
+
+        // WHEN
+        ResponseEntity<String> putResponse = restTemplate.exchange("/todos/" + unknown, HttpMethod.PUT,
+                new HttpEntity<>(new TodoUpdateBody("title", false, 1)), String.class);
+        ResponseEntity<String> patchResponse = restTemplate.exchange("/todos/" + unknown, HttpMethod.PATCH,
+                new HttpEntity<>(new TodoPartialUpdateBody(null, true, null)), String.class);
+
+        // THEN
+        assertEquals(HttpStatus.NOT_FOUND, putResponse.getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, patchResponse.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("create todos with time-ordered ids and keep serving random ones")
+    void serveTimeOrderedAndRandomIds() {
+        // GIVEN
+        UUID randomId = UUID.randomUUID();
+        jdbcTemplate.update("insert into TODO (id, title, completed, rank, version) values (?, 'v4', false, 20000, 0)", randomId);
+
+        // WHEN
+        TodoResponse created = createTodo("v7");
+        ResponseEntity<TodoResponse> randomIdResponse = restTemplate.getForEntity("/todos/" + randomId, TodoResponse.class);
+
+        // THEN
+        assertEquals(7, UUID.fromString(created.getId()).version());
+        assertEquals(HttpStatus.OK, randomIdResponse.getStatusCode());
+        assertEquals("v4", randomIdResponse.getBody().getTitle());
+    }
+
+    @Test
+    @DisplayName("serve a todo read before without a statement and its new state once written")
+    void serveCachedTodoUntilWritten() {
+        // GIVEN
+        TodoResponse todo = createTodo("to cache");
+        restTemplate.getForEntity("/todos/" + todo.getId(), TodoResponse.class);
+        statistics.clear();
+
+        // WHEN
+        ResponseEntity<TodoResponse> cachedResponse = restTemplate.getForEntity("/todos/" + todo.getId(), TodoResponse.class);
+        long cachedReadStatements = statistics.getPrepareStatementCount();
+        restTemplate.exchange("/todos/" + todo.getId(), HttpMethod.PATCH, new HttpEntity<>(new TodoPartialUpdateBody(null, true, null)), String.class);
+        ResponseEntity<TodoResponse> patchedResponse = restTemplate.getForEntity("/todos/" + todo.getId(), TodoResponse.class);
+        restTemplate.exchange("/todos?completed=true", HttpMethod.DELETE, null, Void.class);
+        ResponseEntity<String> deletedResponse = restTemplate.getForEntity("/todos/" + todo.getId(), String.class);
+
+        // THEN
+        assertEquals(0, cachedReadStatements);
+        assertEquals("to cache", cachedResponse.getBody().getTitle());
+        assertEquals(true, patchedResponse.getBody().getCompleted());
+        assertEquals(HttpStatus.NOT_FOUND, deletedResponse.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("serve the todo list again without a statement until a todo is written")
+    void serveTodoListSnapshotUntilWritten() {
+        // GIVEN
+        createTodo("first");
+        restTemplate.getForEntity("/todos", String.class);
+        statistics.clear();
+
+        // WHEN
+        ResponseEntity<TodoResponse[]> snapshotResponse = restTemplate.getForEntity("/todos", TodoResponse[].class);
+        long snapshotStatements = statistics.getPrepareStatementCount();
+        createTodo("second");
+        ResponseEntity<TodoResponse[]> rebuiltResponse = restTemplate.getForEntity("/todos", TodoResponse[].class);
+
+        // THEN
+        assertEquals(0, snapshotStatements);
+        assertEquals(1, snapshotResponse.getBody().length);
+        assertEquals(2, rebuiltResponse.getBody().length);
+    }
+
+    @Test
+    @DisplayName("answer NOT MODIFIED to current etags of a cached todo without a statement until the todo is written")
+    void answerNotModifiedUntilWritten() {
+        // GIVEN
+        TodoResponse todo = createTodo("to poll");
+        // the read caches the todo, its etag is then checked without a query
+        String todoETag = restTemplate.getForEntity("/todos/" + todo.getId(), String.class).getHeaders().getETag();
+        String listETag = restTemplate.getForEntity("/todos", String.class).getHeaders().getETag();
+        statistics.clear();
+
+        // WHEN
+        ResponseEntity<String> notModifiedTodo = getIfNoneMatch("/todos/" + todo.getId(), todoETag);
+        ResponseEntity<String> notModifiedList = getIfNoneMatch("/todos", listETag);
+        long notModifiedStatements = statistics.getPrepareStatementCount();
+        restTemplate.exchange("/todos/" + todo.getId(), HttpMethod.PATCH, new HttpEntity<>(new TodoPartialUpdateBody("polled", null, null)), String.class);
+        ResponseEntity<TodoResponse> modifiedTodo = restTemplate.exchange("/todos/" + todo.getId(), HttpMethod.GET,
+                new HttpEntity<>(ifNoneMatch(todoETag)), TodoResponse.class);
+        ResponseEntity<String> modifiedList = getIfNoneMatch("/todos", listETag);
+
+        // THEN
+        assertEquals(0, notModifiedStatements);
+        assertEquals(HttpStatus.NOT_MODIFIED, notModifiedTodo.getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED, notModifiedList.getStatusCode());
+        assertEquals(HttpStatus.OK, modifiedTodo.getStatusCode());
+        assertEquals("polled", modifiedTodo.getBody().getTitle());
+        assertEquals(HttpStatus.OK, modifiedList.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("answer NOT MODIFIED to the current etag of a todo out of the cache with a single statement")
+    void answerNotModifiedOnCacheMiss() {
+        // GIVEN
+        TodoResponse todo = createTodo("to poll");
+        String todoETag = restTemplate.getForEntity("/todos/" + todo.getId(), String.class).getHeaders().getETag();
+        todoCache.invalidateAll();
+        statistics.clear();
+
+        // WHEN
+        ResponseEntity<String> notModifiedTodo = getIfNoneMatch("/todos/" + todo.getId(), todoETag);
+
+        // THEN
+        // the version is the one of the row, read by the query that caches the todo again
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(HttpStatus.NOT_MODIFIED, notModifiedTodo.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("answer PRECONDITION FAILED to a PUT or PATCH of an outdated etag")
+    void rejectOutdatedETags() {
+        // GIVEN
+        TodoResponse todo = createTodo("to edit");
+        String readETag = restTemplate.getForEntity("/todos/" + todo.getId(), String.class).getHeaders().getETag();
+        statistics.clear();
+
+        // WHEN
+        ResponseEntity<String> firstPut = putIfMatch(todo, readETag, "first editor");
+        long firstPutStatements = statistics.getPrepareStatementCount();
+        ResponseEntity<String> secondPut = putIfMatch(todo, readETag, "second editor");
+        ResponseEntity<String> outdatedPatch = restTemplate.exchange("/todos/" + todo.getId(), HttpMethod.PATCH,
+                new HttpEntity<>(new TodoPartialUpdateBody(null, true, null), ifMatch(readETag)), String.class);
+        ResponseEntity<TodoResponse> currentPatch = restTemplate.exchange("/todos/" + todo.getId(), HttpMethod.PATCH,
+                new HttpEntity<>(new TodoPartialUpdateBody(null, true, null), ifMatch(firstPut.getHeaders().getETag())), TodoResponse.class);
+
+        // THEN
+        assertEquals(HttpStatus.OK, firstPut.getStatusCode());
+        assertEquals(2, firstPutStatements);
+        assertNotEquals(readETag, firstPut.getHeaders().getETag());
+        assertEquals(HttpStatus.PRECONDITION_FAILED, secondPut.getStatusCode());
+        assertEquals(HttpStatus.PRECONDITION_FAILED, outdatedPatch.getStatusCode());
+        assertEquals(HttpStatus.OK, currentPatch.getStatusCode());
+        assertEquals("first editor", currentPatch.getBody().getTitle());
+        assertEquals(true, currentPatch.getBody().getCompleted());
+    }
+
+    @Test
+    @DisplayName("lose concurrent read-modify-write updates made without If-Match")
+    void loseUpdatesWithoutIfMatch() throws Exception {
+        // GIVEN
+        TodoResponse todo = createTodo("0");
+        int editors = 4;
+        int rounds = 10;
+        CyclicBarrier barrier = new CyclicBarrier(editors);
+
+        // WHEN
+        runConcurrently(editors, () -> {
+            for (int round = 0; round < rounds; round++) {
+                TodoResponse read = restTemplate.getForObject("/todos/" + todo.getId(), TodoResponse.class);
+                // every editor reads before any of them writes
+                barrier.await();
+                restTemplate.exchange("/todos/" + todo.getId(), HttpMethod.PUT,
+                        new HttpEntity<>(new TodoUpdateBody(increment(read.getTitle()), false, read.getOrder())), String.class);
+                barrier.await();
+            }
+            return null;
+        });
+
+        // THEN
+        String title = restTemplate.getForObject("/todos/" + todo.getId(), TodoResponse.class).getTitle();
+        assertEquals(rounds, Integer.parseInt(title));
+    }
+
+    @Test
+    @DisplayName("lose no concurrent read-modify-write update made with If-Match")
+    void loseNoUpdateWithIfMatch() throws Exception {
+        // GIVEN
+        TodoResponse todo = createTodo("0");
+        int editors = 4;
+        int updatesPerEditor = 10;
+
+        // WHEN
+        runConcurrently(editors, () -> {
+            for (int i = 0; i < updatesPerEditor; i++) {
+                ResponseEntity<String> response;
+                do {
+                    ResponseEntity<TodoResponse> read = restTemplate.getForEntity("/todos/" + todo.getId(), TodoResponse.class);
+                    response = putIfMatch(todo, read.getHeaders().getETag(), increment(read.getBody().getTitle()));
+                } while (response.getStatusCode() == HttpStatus.PRECONDITION_FAILED);
+                assertEquals(HttpStatus.OK, response.getStatusCode());
+            }
+            return null;
+        });
+
+        // THEN
+        String title = restTemplate.getForObject("/todos/" + todo.getId(), TodoResponse.class).getTitle();
+        assertEquals(editors * updatesPerEditor, Integer.parseInt(title));
+    }
+
+    private List<TodoBulkResultResponse> createTodosInBulk(int count) {
+        List<TodoBulkOperation> operations = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            operations.add(new TodoBulkOperation(TodoBulkOperation.Type.CREATE, null, "bulk " + i, null, null));
+        }
+        return restTemplate.exchange("/todos/_bulk", HttpMethod.POST, new HttpEntity<>(operations), new ParameterizedTypeReference<List<TodoBulkResultResponse>>() {}).getBody();
+    }
+
+    private void runConcurrently(int threads, Callable<Void> task) throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executorService.submit(task));
+        }
+        for (Future<Void> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executorService.shutdown();
+    }
+
+    private long countTodos() {
+        return jdbcTemplate.queryForObject("select count(*) from todo", Long.class);
+    }
+
+    // every todo, in rank order
+    private List<TodoEntity> findAllTodos() {
+        return todoRepository.findTodosAfterOrder(Long.MIN_VALUE, Pageable.unpaged());
+    }
+
+    private static List<String> titles(List<TodoEntity> todoEntities) {
+        return todoEntities.stream().map(TodoEntity::getTitle).collect(Collectors.toList());
+    }
+
+    private static String increment(String counter) {
+        return String.valueOf(Integer.parseInt(counter) + 1);
+    }
+
+    private ResponseEntity<String> putIfMatch(TodoResponse todo, String eTag, String title) {
+        return restTemplate.exchange("/todos/" + todo.getId(), HttpMethod.PUT,
+                new HttpEntity<>(new TodoUpdateBody(title, false, todo.getOrder()), ifMatch(eTag)), String.class);
+    }
+
+    private static HttpHeaders ifMatch(String eTag) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfMatch(eTag);
+        return headers;
+    }
+
+    private ResponseEntity<String> getIfNoneMatch(String url, String eTag) {
+        return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(ifNoneMatch(eTag)), String.class);
+    }
+
+    private static HttpHeaders ifNoneMatch(String eTag) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        return headers;
+    }
+
+    private TodoResponse createTodo(String title) {
+        return restTemplate.postForEntity("/todos", new TodoSaveBody(title), TodoResponse.class).getBody();
+    }
+}
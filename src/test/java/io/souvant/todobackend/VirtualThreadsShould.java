@@ -0,0 +1,56 @@
+package io.souvant.todobackend;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "todo.virtual-threads.enabled=true"
+)
+class VirtualThreadsShould {
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Autowired
+    ServletWebServerApplicationContext webServerApplicationContext;
+
+    @Test
+    @DisplayName("handle requests on virtual threads when enabled")
+    void handleRequestsOnVirtualThreads() throws Exception {
+        // GIVEN
+        Executor requestExecutor = ((TomcatWebServer) webServerApplicationContext.getWebServer())
+                .getTomcat().getConnector().getProtocolHandler().getExecutor();
+
+        // WHEN
+        CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+        requestExecutor.execute(() -> virtual.complete(isVirtual(Thread.currentThread())));
+        ResponseEntity<String> response = restTemplate.getForEntity("/todos", String.class);
+
+        // THEN
+        assertTrue(virtual.get(10, TimeUnit.SECONDS));
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+    }
+
+    private static boolean isVirtual(Thread thread) {
+        try {
+            return (boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package io.souvant.todobackend.benchmark;
+
+import io.souvant.todobackend.repository.entity.TodoIdGenerator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Inserts rows into a file based H2 TODO table, once with random v4 ids and once with time-ordered v7 ids.
+ * Run from the test classpath: TodoIdInsertBenchmark [rows] (default 1000000).
+ */
+public class TodoIdInsertBenchmark {
+
+    private static final int BATCH_SIZE = 1_000;
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path directory = Files.createTempDirectory("todo-id-benchmark");
+
+        System.out.printf("%-4s %10s %12s %14s %12s%n", "ids", "rows", "seconds", "rows/second", "db MB");
+        run("v4", UUID::randomUUID, rows, directory);
+        run("v7", TodoIdGenerator::timeOrderedUuid, rows, directory);
+    }
+
+    private static void run(String name, Supplier<UUID> ids, int rows, Path directory) throws Exception {
+        Path database = directory.resolve(name);
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:" + database)) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("create table todo (id binary(16) not null, completed boolean, rank integer, title varchar(255), primary key (id))");
+                statement.execute("create index IDX_TODO_COMPLETED on todo (completed)");
+                statement.execute("alter table todo add constraint UK_TODO_RANK unique (rank)");
+            }
+            connection.setAutoCommit(false);
+
+            long start = System.nanoTime();
+            try (PreparedStatement insert = connection.prepareStatement("insert into todo (completed, rank, title, id) values (?, ?, ?, ?)")) {
+                for (int i = 1; i <= rows; i++) {
+                    insert.setBoolean(1, false);
+                    insert.setInt(2, i);
+                    insert.setString(3, "todo " + i);
+                    insert.setBytes(4, toBytes(ids.get()));
+                    insert.addBatch();
+                    if (i % BATCH_SIZE == 0) {
+                        insert.executeBatch();
+                        connection.commit();
+                    }
+                }
+                insert.executeBatch();
+                connection.commit();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("checkpoint sync");
+            }
+            long bytes = Files.size(Path.of(database + ".mv.db"));
+            System.out.printf("%-4s %10d %12.2f %14.0f %12.1f%n", name, rows, seconds, rows / seconds, bytes / 1024.0 / 1024.0);
+        }
+    }
+
+    private static byte[] toBytes(UUID uuid) {
+        byte[] bytes = new byte[16];
+        long mostSigBits = uuid.getMostSignificantBits();
+        long leastSigBits = uuid.getLeastSignificantBits();
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (mostSigBits >>> (8 * (7 - i)));
+            bytes[8 + i] = (byte) (leastSigBits >>> (8 * (7 - i)));
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,85 @@
+package io.souvant.todobackend.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.souvant.todobackend.controller.TodoJsonWriter;
+import io.souvant.todobackend.controller.model.response.TodoResponse;
+import io.souvant.todobackend.repository.entity.TodoIdGenerator;
+import io.souvant.todobackend.service.model.Todo;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Measures the bytes allocated per listed todo to serialize a page of todos, once through a TodoResponse per
+ * todo with its url built from the current request, and once through TodoJsonWriter.
+ * Run from the test classpath: TodoSerializationAllocationBenchmark [todos] (default 1000).
+ */
+public class TodoSerializationAllocationBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2_000;
+    private static final int MEASURED_ROUNDS = 200;
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        int todoCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        List<Todo> todos = new ArrayList<>(todoCount);
+        for (int i = 1; i <= todoCount; i++) {
+            todos.add(new Todo(TodoIdGenerator.timeOrderedUuid(), "todo " + i, i % 2 == 0, (long) i));
+        }
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/todos");
+        request.setServerName("localhost");
+        request.setServerPort(8080);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        System.out.printf("%-14s %8s %16s%n", "path", "todos", "bytes/todo");
+        run("TodoResponse", todos, () -> writeTodoResponses(objectMapper, todos));
+        run("TodoJsonWriter", todos, () -> writeWithTodoJsonWriter(objectMapper, todos));
+    }
+
+    private static void run(String name, List<Todo> todos, Serialization serialization) throws Exception {
+        long bytes = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            bytes += serialization.write().length;
+        }
+        long before = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            bytes += serialization.write().length;
+        }
+        long allocated = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() - before;
+        System.out.printf("%-14s %8d %16.1f%n", name, todos.size(), (double) allocated / MEASURED_ROUNDS / todos.size());
+        if (bytes == 0) {
+            throw new IllegalStateException();
+        }
+    }
+
+    // what the list endpoint did before TodoJsonWriter
+    private static byte[] writeTodoResponses(ObjectMapper objectMapper, List<Todo> todos) throws Exception {
+        List<TodoResponse> todoResponses = todos.stream()
+                .map(todo -> new TodoResponse(todo.getId().toString(), todo.getTitle(), todo.getCompleted(), todo.getOrder(),
+                        ServletUriComponentsBuilder.fromCurrentContextPath().path("/todos/{id}").buildAndExpand(todo.getId()).toUriString()))
+                .collect(Collectors.toList());
+        return objectMapper.writeValueAsBytes(todoResponses);
+    }
+
+    private static byte[] writeWithTodoJsonWriter(ObjectMapper objectMapper, List<Todo> todos) throws Exception {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (JsonGenerator jsonGenerator = objectMapper.getFactory().createGenerator(body)) {
+            new TodoJsonWriter(ServletUriComponentsBuilder.fromCurrentContextPath().path("/todos").toUriString()).writeTodos(jsonGenerator, todos);
+        }
+        return body.toByteArray();
+    }
+
+    private interface Serialization {
+        byte[] write() throws Exception;
+    }
+}
@@ -0,0 +1,108 @@
+package io.souvant.todobackend.benchmark;
+
+import io.souvant.todobackend.TodoBackEndApplication;
+import io.souvant.todobackend.controller.model.request.TodoPartialUpdateBody;
+import io.souvant.todobackend.repository.memory.InMemoryDataConfiguration;
+import io.souvant.todobackend.service.TodoService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Boots the application without its web server, on the in-memory H2 of application.properties, on an H2
+ * database file and on the file profile, and writes through TodoService from several threads: one create for
+ * three PATCHes of completed, a PATCH losing a race counting as a conflict. Reports the writes per second of
+ * the measured period. H2 writes its file behind the commits, the file profile fsyncs the log before answering.
+ * Run from the test classpath: TodoStoreThroughputBenchmark [threads] [seconds] (default 16 10).
+ */
+public class TodoStoreThroughputBenchmark {
+
+    private static final int TODO_COUNT = 1_000;
+    private static final int WARMUP_SECONDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        Path storeDirectory = Files.createTempDirectory("todo-store-benchmark");
+        Path h2Directory = Files.createTempDirectory("todo-h2-benchmark");
+
+        System.out.printf("%-8s %8s %12s %12s %12s %10s%n", "store", "threads", "writes/s", "creates/s", "patches/s", "conflicts");
+        run("h2", threads, seconds);
+        run("h2-file", threads, seconds, "--spring.datasource.jdbcUrl=jdbc:h2:file:" + h2Directory.resolve("tododb"));
+        run("file", threads, seconds, "--spring.profiles.active=" + InMemoryDataConfiguration.FILE_PROFILE,
+                "--todo.file-store.directory=" + storeDirectory);
+    }
+
+    private static void run(String name, int threads, int seconds, String... storeArguments) throws Exception {
+        List<String> arguments = new ArrayList<>(List.of("--spring.main.web-application-type=none", "--logging.level.root=WARN"));
+        arguments.addAll(List.of(storeArguments));
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(TodoBackEndApplication.class)
+                .run(arguments.toArray(new String[0]))) {
+            TodoService todoService = context.getBean(TodoService.class);
+            List<UUID> ids = new ArrayList<>(TODO_COUNT);
+            for (int i = 0; i < TODO_COUNT; i++) {
+                ids.add(todoService.createTodo("todo " + i).getId());
+            }
+
+            write(todoService, ids, threads, WARMUP_SECONDS, new AtomicLong(), new AtomicLong(), new AtomicLong());
+            AtomicLong creates = new AtomicLong();
+            AtomicLong patches = new AtomicLong();
+            AtomicLong conflicts = new AtomicLong();
+            write(todoService, ids, threads, seconds, creates, patches, conflicts);
+            System.out.printf("%-8s %8d %12.0f %12.0f %12.0f %10d%n", name, threads, (double) (creates.get() + patches.get()) / seconds,
+                    (double) creates.get() / seconds, (double) patches.get() / seconds, conflicts.get());
+        }
+    }
+
+    private static void write(TodoService todoService, List<UUID> ids, int threads, int seconds,
+                              AtomicLong creates, AtomicLong patches, AtomicLong conflicts) throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            writers.add(executorService.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < end) {
+                    if (random.nextInt(4) == 0) {
+                        todoService.createTodo("created");
+                        creates.incrementAndGet();
+                    } else {
+                        UUID id = ids.get(random.nextInt(ids.size()));
+                        try {
+                            todoService.patchTodo(id, new TodoPartialUpdateBody(null, random.nextBoolean(), null), Optional.empty());
+                            patches.incrementAndGet();
+                        } catch (ResponseStatusException e) {
+                            // two writers patched the same todo, as concurrent clients would
+                            if (e.getStatus() != HttpStatus.CONFLICT) {
+                                throw e;
+                            }
+                            conflicts.incrementAndGet();
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+}
@@ -1,27 +1,44 @@
 package io.souvant.todobackend.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.souvant.todobackend.controller.model.request.TodoBulkOperation;
 import io.souvant.todobackend.controller.model.request.TodoPartialUpdateBody;
 import io.souvant.todobackend.controller.model.request.TodoSaveBody;
 import io.souvant.todobackend.controller.model.request.TodoUpdateBody;
+import io.souvant.todobackend.controller.model.response.TodoBulkResultResponse;
 import io.souvant.todobackend.controller.model.response.TodoResponse;
+import io.souvant.todobackend.service.TodoBulkException;
+import io.souvant.todobackend.service.TodoBulkService;
 import io.souvant.todobackend.service.TodoService;
 import io.souvant.todobackend.service.model.Todo;
+import io.souvant.todobackend.service.model.TodoBulkResult;
+import io.souvant.todobackend.service.model.TodoPage;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest
@@ -36,6 +53,21 @@ class TodoControllerShould {
     @MockBean
     TodoService todoService;
 
+    @MockBean
+    TodoBulkService todoBulkService;
+
+    @MockBean
+    TodoListSnapshots todoListSnapshots;
+
+    @BeforeEach
+    void setUp() {
+        // every test starts from a list no snapshot was taken of
+        TodoListSnapshots snapshots = new TodoListSnapshots(100, false);
+        when(todoListSnapshots.get(any(), any(), any())).thenAnswer(invocation ->
+                snapshots.get(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2)));
+        when(todoService.getListVersion()).thenReturn(1L);
+    }
+
     @Test
     @DisplayName("call createTodo service and generate a TodoResponse")
     void createTodo() throws Exception {
@@ -43,8 +75,8 @@ class TodoControllerShould {
         String title = "my test todo";
         UUID uuid = UUID.randomUUID();
         TodoSaveBody todoSaveBody = new TodoSaveBody(title);
-        Todo todo = new Todo(uuid, title, false, 1);
-        TodoResponse expectedResponse = new TodoResponse(uuid.toString(), title, false, 1, "http://localhost/todos/"+uuid);
+        Todo todo = new Todo(uuid, title, false, 1L);
+        TodoResponse expectedResponse = new TodoResponse(uuid.toString(), title, false, 1L, "http://localhost/todos/"+uuid);
 
         when(todoService.createTodo(title)).thenReturn(todo);
 
@@ -69,16 +101,16 @@ class TodoControllerShould {
         UUID uuid2 = UUID.randomUUID();
         UUID uuid3 = UUID.randomUUID();
 
-        Todo todo1 = new Todo(uuid, "title1", false, 1);
-        Todo todo2 = new Todo(uuid2, "title2", true, 2);
-        Todo todo3 = new Todo(uuid3, "title3", false, 3);
+        Todo todo1 = new Todo(uuid, "title1", false, 1L);
+        Todo todo2 = new Todo(uuid2, "title2", true, 2L);
+        Todo todo3 = new Todo(uuid3, "title3", false, 3L);
 
         List<Todo> todos = new ArrayList<>();
         todos.add(todo1);
         todos.add(todo2);
         todos.add(todo3);
 
-        when(todoService.getAllTodos()).thenReturn(todos);
+        when(todoService.getTodosPage(Optional.empty(), Optional.empty())).thenReturn(new TodoPage(todos, null));
 
         TodoResponse todoResponse1 = new TodoResponse(todo1.getId().toString(), todo1.getTitle(), todo1.getCompleted(), todo1.getOrder(), "http://localhost/todos/"+uuid);
         TodoResponse todoResponse2 = new TodoResponse(todo2.getId().toString(), todo2.getTitle(), todo2.getCompleted(), todo2.getOrder(), "http://localhost/todos/"+uuid2);
@@ -97,12 +129,103 @@ class TodoControllerShould {
                                 .accept(MediaType.APPLICATION_JSON)
                 )
                 .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(TodoController.NEXT_CURSOR_HEADER))
                 .andExpect(content().json(objectMapper.writeValueAsString(expectedResponses)));
     }
 
+    @Test
+    @DisplayName("get a page of todos and expose the next cursor")
+    void getTodosPage() throws Exception {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        Todo todo = new Todo(uuid, "title1", false, 7L);
+        TodoResponse todoResponse = new TodoResponse(uuid.toString(), "title1", false, 7L, "http://localhost/todos/"+uuid);
+
+        when(todoService.getTodosPage(Optional.of(3L), Optional.of(1))).thenReturn(new TodoPage(List.of(todo), 7L));
+
+        // WHEN
+        mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get("/todos?after=3&limit=1")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .accept(MediaType.APPLICATION_JSON)
+                )
+                // THEN
+                .andExpect(status().isOk())
+                .andExpect(header().string(TodoController.NEXT_CURSOR_HEADER, "7"))
+                .andExpect(header().string("Link", "<http://localhost/todos?limit=1&after=7>; rel=\"next\""))
+                .andExpect(content().json(objectMapper.writeValueAsString(List.of(todoResponse))));
+    }
+
+    @Test
+    @DisplayName("serve the serialized todos again without reading them until the list version changes")
+    void getTodosSnapshot() throws Exception {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        Todo todo = new Todo(uuid, "title1", false, 1L);
+        TodoResponse todoResponse = new TodoResponse(uuid.toString(), "title1", false, 1L, "http://localhost/todos/"+uuid);
+        Todo updatedTodo = new Todo(uuid, "updated", false, 1L);
+        TodoResponse updatedTodoResponse = new TodoResponse(uuid.toString(), "updated", false, 1L, "http://localhost/todos/"+uuid);
+
+        when(todoService.getTodosPage(Optional.empty(), Optional.empty()))
+                .thenReturn(new TodoPage(List.of(todo), null), new TodoPage(List.of(updatedTodo), null));
+
+        // WHEN
+        mockMvc.perform(MockMvcRequestBuilders.get("/todos").accept(MediaType.APPLICATION_JSON))
+                .andExpect(content().json(objectMapper.writeValueAsString(List.of(todoResponse))));
+        mockMvc.perform(MockMvcRequestBuilders.get("/todos").accept(MediaType.APPLICATION_JSON))
+                .andExpect(content().json(objectMapper.writeValueAsString(List.of(todoResponse))));
+        when(todoService.getListVersion()).thenReturn(2L);
+        mockMvc.perform(MockMvcRequestBuilders.get("/todos").accept(MediaType.APPLICATION_JSON))
+                .andExpect(content().json(objectMapper.writeValueAsString(List.of(updatedTodoResponse))));
+
+        // THEN
+        verify(todoService, times(2)).getTodosPage(Optional.empty(), Optional.empty());
+    }
+
+    @Test
+    @DisplayName("stream all todos as newline delimited json")
+    void streamAllTodos() throws Exception {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        UUID uuid2 = UUID.randomUUID();
+        Todo todo1 = new Todo(uuid, "title1", false, 1L);
+        Todo todo2 = new Todo(uuid2, "title2", true, 2L);
+        TodoResponse todoResponse1 = new TodoResponse(uuid.toString(), "title1", false, 1L, "http://localhost/todos/"+uuid);
+        TodoResponse todoResponse2 = new TodoResponse(uuid2.toString(), "title2", true, 2L, "http://localhost/todos/"+uuid2);
+
+        doAnswer(invocation -> {
+            Consumer<Todo> todoConsumer = invocation.getArgument(0);
+            todoConsumer.accept(todo1);
+            todoConsumer.accept(todo2);
+            return null;
+        }).when(todoService).streamAllTodos(any());
+
+        // WHEN
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        MockMvcRequestBuilders.get("/todos")
+                                .accept(TodoController.APPLICATION_NDJSON_VALUE)
+                )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // THEN
+        mockMvc
+                .perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", TodoController.APPLICATION_NDJSON_VALUE))
+                .andExpect(content().string(objectMapper.writeValueAsString(todoResponse1) + "\n" + objectMapper.writeValueAsString(todoResponse2) + "\n"));
+
+        verify(todoService, never()).getTodosPage(any(), any());
+    }
+
     @Test
     @DisplayName("call deleteTodos service")
     void deleteTodos() throws Exception {
+        // GIVEN
+        when(todoService.deleteTodos(any())).thenReturn(12);
+
         // WHEN
         mockMvc
                 .perform(
@@ -111,7 +234,8 @@ class TodoControllerShould {
                                 .accept(MediaType.APPLICATION_JSON)
                 )
                 // THEN
-                .andExpect(status().isNoContent());
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(TodoController.DELETED_COUNT_HEADER, "12"));
 
         verify(todoService, times(1)).deleteTodos(any());
     }
@@ -121,8 +245,8 @@ class TodoControllerShould {
     void getTodo() throws Exception {
         // GIVEN
         UUID uuid = UUID.randomUUID();
-        Todo todo = new Todo(uuid, "test", false, 1);
-        TodoResponse expectedResponse = new TodoResponse(uuid.toString(), "test", false, 1, "http://localhost/todos/"+uuid);
+        Todo todo = new Todo(uuid, "test", false, 1L);
+        TodoResponse expectedResponse = new TodoResponse(uuid.toString(), "test", false, 1L, "http://localhost/todos/"+uuid);
 
         when(todoService.getTodo(uuid)).thenReturn(todo);
 
@@ -140,16 +264,61 @@ class TodoControllerShould {
         verify(todoService, times(1)).getTodo(uuid);
     }
 
+    @Test
+    @DisplayName("answer NOT MODIFIED to the etag of the current todo version")
+    void getNotModifiedTodo() throws Exception {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        when(todoService.getTodo(uuid)).thenReturn(new Todo(uuid, "test", false, 1L, 5L));
+
+        // WHEN
+        mockMvc.perform(MockMvcRequestBuilders.get("/todos/" + uuid).header(HttpHeaders.IF_NONE_MATCH, "\"5\""))
+                // THEN
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"5\""))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @DisplayName("answer a todo again once its version changed")
+    void getModifiedTodo() throws Exception {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        when(todoService.getTodo(uuid)).thenReturn(new Todo(uuid, "test", false, 1L, 6L));
+
+        // WHEN
+        mockMvc.perform(MockMvcRequestBuilders.get("/todos/" + uuid).header(HttpHeaders.IF_NONE_MATCH, "\"5\""))
+                // THEN
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"6\""));
+    }
+
+    @Test
+    @DisplayName("answer NOT MODIFIED to a list etag that is still current without reading the list")
+    void getNotModifiedTodos() throws Exception {
+        // GIVEN
+        when(todoService.getTodosPage(Optional.empty(), Optional.empty())).thenReturn(new TodoPage(List.of(), null));
+        String eTag = mockMvc.perform(MockMvcRequestBuilders.get("/todos").accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // WHEN
+        mockMvc.perform(MockMvcRequestBuilders.get("/todos").accept(MediaType.APPLICATION_JSON).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                // THEN
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+        verify(todoService, times(1)).getTodosPage(any(), any());
+    }
+
     @Test
     @DisplayName("update todo")
     void updateTodo() throws Exception {
         // GIVEN
         UUID uuid = UUID.randomUUID();
         TodoUpdateBody todoUpdateBody = new TodoUpdateBody("test", true, 2);
-        Todo todo = new Todo(uuid, "test", true, 2);
-        TodoResponse expectedResponse = new TodoResponse(uuid.toString(), "test", true, 2, "http://localhost/todos/"+uuid);
+        Todo todo = new Todo(uuid, "test", true, 2L, 1L);
+        TodoResponse expectedResponse = new TodoResponse(uuid.toString(), "test", true, 2L, "http://localhost/todos/"+uuid);
 
-        when(todoService.updateTodo(uuid, todoUpdateBody)).thenReturn(todo);
+        when(todoService.updateTodo(uuid, todoUpdateBody, Optional.empty())).thenReturn(todo);
 
         // WHEN
         mockMvc
@@ -161,9 +330,32 @@ class TodoControllerShould {
                 )
                 // THEN
                 .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
                 .andExpect(content().json(objectMapper.writeValueAsString(expectedResponse)));
 
-        verify(todoService, times(1)).updateTodo(uuid, todoUpdateBody);
+        verify(todoService, times(1)).updateTodo(uuid, todoUpdateBody, Optional.empty());
+    }
+
+    @Test
+    @DisplayName("pass the versions of the If-Match etags to the update and answer its PRECONDITION FAILED")
+    void updateTodoIfMatch() throws Exception {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        TodoUpdateBody todoUpdateBody = new TodoUpdateBody("test", true, 2);
+
+        when(todoService.updateTodo(uuid, todoUpdateBody, Optional.of(Set.of(3L, 4L))))
+                .thenThrow(new ResponseStatusException(HttpStatus.PRECONDITION_FAILED));
+
+        // WHEN
+        mockMvc
+                .perform(
+                        MockMvcRequestBuilders.put("/todos/" + uuid)
+                                .header(HttpHeaders.IF_MATCH, "\"3\", W/\"5\", \"4\"")
+                                .content(objectMapper.writeValueAsString(todoUpdateBody))
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                // THEN
+                .andExpect(status().isPreconditionFailed());
     }
 
     @Test
@@ -172,25 +364,27 @@ class TodoControllerShould {
         // GIVEN
         UUID uuid = UUID.randomUUID();
         TodoPartialUpdateBody requestBody = new TodoPartialUpdateBody("test", null, null);
-        Todo todoResponse = new Todo(uuid, "test", true, 2);
-        TodoResponse expectedResponse = new TodoResponse(uuid.toString(), "test", true, 2, "http://localhost/todos/"+uuid);
+        Todo todoResponse = new Todo(uuid, "test", true, 2L, 3L);
+        TodoResponse expectedResponse = new TodoResponse(uuid.toString(), "test", true, 2L, "http://localhost/todos/"+uuid);
 
-        when(todoService.patchTodo(uuid, requestBody)).thenReturn(todoResponse);
+        when(todoService.patchTodo(uuid, requestBody, Optional.of(Set.of(2L)))).thenReturn(todoResponse);
 
         // WHEN
         mockMvc
                 .perform(
                         MockMvcRequestBuilders.patch("/todos/" + uuid)
+                                .header(HttpHeaders.IF_MATCH, "\"2\"")
                                 .content(objectMapper.writeValueAsString(requestBody))
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .accept(MediaType.APPLICATION_JSON)
                 )
                 // THEN
                 .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
                 .andExpect(content().json(objectMapper.writeValueAsString(expectedResponse)));
 
 
-        verify(todoService, times(1)).patchTodo(uuid, requestBody);
+        verify(todoService, times(1)).patchTodo(uuid, requestBody, Optional.of(Set.of(2L)));
     }
 
     @Test
@@ -211,7 +405,65 @@ class TodoControllerShould {
 
         verify(todoService, times(1)).deleteTodo(uuid);
     }
-}
 
+    @Test
+    @DisplayName("call bulk service and generate a result per operation")
+    void bulkTodos() throws Exception {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        UUID deleted = UUID.randomUUID();
+        List<TodoBulkOperation> operations = List.of(
+                new TodoBulkOperation(TodoBulkOperation.Type.CREATE, null, "test", null, null),
+                new TodoBulkOperation(TodoBulkOperation.Type.DELETE, deleted, null, null, null)
+        );
+        Todo todo = new Todo(uuid, "test", false, 1L);
+        List<TodoBulkResultResponse> expectedResponse = List.of(
+                new TodoBulkResultResponse(201, new TodoResponse(uuid.toString(), "test", false, 1L, "http://localhost/todos/"+uuid)),
+                new TodoBulkResultResponse(204, null)
+        );
+
+        when(todoBulkService.applyOperations(operations)).thenReturn(List.of(
+                new TodoBulkResult(HttpStatus.CREATED, todo),
+                new TodoBulkResult(HttpStatus.NO_CONTENT, null)
+        ));
+
+        // WHEN
+        mockMvc
+                .perform(
+                        MockMvcRequestBuilders.post("/todos/_bulk")
+                                .content("[{\"op\":\"create\",\"title\":\"test\"},{\"op\":\"delete\",\"id\":\"" + deleted + "\"}]")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .accept(MediaType.APPLICATION_JSON)
+                )
+                // THEN
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(expectedResponse)));
+    }
+
+    @Test
+    @DisplayName("answer with the failing operation status when a bulk fails")
+    void failedBulkTodos() throws Exception {
+        // GIVEN
+        List<TodoBulkResultResponse> expectedResponse = List.of(
+                new TodoBulkResultResponse(424, null),
+                new TodoBulkResultResponse(409, null)
+        );
 
+        when(todoBulkService.applyOperations(any())).thenThrow(new TodoBulkException(HttpStatus.CONFLICT, List.of(
+                new TodoBulkResult(HttpStatus.FAILED_DEPENDENCY, null),
+                new TodoBulkResult(HttpStatus.CONFLICT, null)
+        )));
 
+        // WHEN
+        mockMvc
+                .perform(
+                        MockMvcRequestBuilders.post("/todos/_bulk")
+                                .content("[{\"op\":\"create\",\"title\":\"test\"},{\"op\":\"patch\",\"id\":\"" + UUID.randomUUID() + "\",\"order\":1}]")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .accept(MediaType.APPLICATION_JSON)
+                )
+                // THEN
+                .andExpect(status().isConflict())
+                .andExpect(content().json(objectMapper.writeValueAsString(expectedResponse)));
+    }
+}
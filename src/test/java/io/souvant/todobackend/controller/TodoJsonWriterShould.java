@@ -0,0 +1,43 @@
+package io.souvant.todobackend.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.souvant.todobackend.controller.model.response.TodoResponse;
+import io.souvant.todobackend.service.model.Todo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TodoJsonWriterShould {
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("write todos as their todo responses are serialized")
+    void writeTodosAsTodoResponses() throws Exception {
+        // GIVEN
+        String todosUrl = "http://localhost:8080/todos";
+        List<Todo> todos = List.of(
+                new Todo(UUID.fromString("0189c2f4-5a3b-7c1d-8e2f-00000000000a"), "title \"quoted\" é", true, 1L),
+                new Todo(UUID.randomUUID(), null, null, null),
+                new Todo(new UUID(0, 0), "", false, Long.MAX_VALUE));
+
+        // WHEN
+        StringWriter json = new StringWriter();
+        try (JsonGenerator jsonGenerator = objectMapper.getFactory().createGenerator(json)) {
+            new TodoJsonWriter(todosUrl).writeTodos(jsonGenerator, todos);
+        }
+
+        // THEN
+        List<TodoResponse> todoResponses = todos.stream()
+                .map(todo -> new TodoResponse(todo.getId().toString(), todo.getTitle(), todo.getCompleted(), todo.getOrder(), todosUrl + "/" + todo.getId()))
+                .collect(Collectors.toList());
+        assertEquals(objectMapper.writeValueAsString(todoResponses), json.toString());
+    }
+}
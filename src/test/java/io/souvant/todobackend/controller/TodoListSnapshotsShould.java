@@ -0,0 +1,113 @@
+package io.souvant.todobackend.controller;
+
+import io.souvant.todobackend.controller.model.response.TodoListSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TodoListSnapshotsShould {
+
+    ExecutorService executorService = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("rebuild a snapshot once for all the requests waiting on it")
+    void rebuildOnce() throws Exception {
+        // GIVEN
+        TodoListSnapshots todoListSnapshots = new TodoListSnapshots(10, false);
+        AtomicInteger builds = new AtomicInteger();
+        CountDownLatch building = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // WHEN
+        List<Future<TodoListSnapshot>> snapshots = new ArrayList<>();
+        snapshots.add(executorService.submit(() -> todoListSnapshots.get("/todos", () -> 1, version -> {
+            builds.incrementAndGet();
+            building.countDown();
+            await(release);
+            return snapshot(version, "built");
+        })));
+        building.await();
+        for (int i = 0; i < 7; i++) {
+            snapshots.add(executorService.submit(() -> todoListSnapshots.get("/todos", () -> 1, version -> {
+                builds.incrementAndGet();
+                return snapshot(version, "built again");
+            })));
+        }
+        release.countDown();
+
+        // THEN
+        for (Future<TodoListSnapshot> snapshot : snapshots) {
+            assertEquals("built", new String(snapshot.get(10, TimeUnit.SECONDS).getBody()));
+        }
+        assertEquals(1, builds.get());
+    }
+
+    @Test
+    @DisplayName("rebuild a snapshot taken before the last write")
+    void rebuildOutdatedSnapshot() {
+        // GIVEN
+        TodoListSnapshots todoListSnapshots = new TodoListSnapshots(10, false);
+        AtomicLong listVersion = new AtomicLong(1);
+        todoListSnapshots.get("/todos", listVersion::get, version -> {
+            // a write completes while the page is read
+            listVersion.incrementAndGet();
+            return snapshot(version, "before write");
+        });
+
+        // WHEN
+        TodoListSnapshot result = todoListSnapshots.get("/todos", listVersion::get, version -> snapshot(version, "after write"));
+
+        // THEN
+        assertEquals("after write", new String(result.getBody()));
+    }
+
+    @Test
+    @DisplayName("serve the previous snapshot while another request rebuilds it when allowed")
+    void serveStaleSnapshot() throws Exception {
+        // GIVEN
+        TodoListSnapshots todoListSnapshots = new TodoListSnapshots(10, true);
+        todoListSnapshots.get("/todos", () -> 1, version -> snapshot(version, "previous"));
+        CountDownLatch building = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<TodoListSnapshot> rebuilt = executorService.submit(() -> todoListSnapshots.get("/todos", () -> 2, version -> {
+            building.countDown();
+            await(release);
+            return snapshot(version, "rebuilt");
+        }));
+        building.await();
+
+        // WHEN
+        TodoListSnapshot duringRebuild = todoListSnapshots.get("/todos", () -> 2, version -> snapshot(version, "built again"));
+        release.countDown();
+
+        // THEN
+        assertEquals("previous", new String(duringRebuild.getBody()));
+        assertEquals("rebuilt", new String(rebuilt.get(10, TimeUnit.SECONDS).getBody()));
+        assertEquals("rebuilt", new String(todoListSnapshots.get("/todos", () -> 2, version -> snapshot(version, "built again")).getBody()));
+    }
+
+    private static TodoListSnapshot snapshot(long version, String body) {
+        return new TodoListSnapshot(version, body.getBytes(), null, null);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package io.souvant.todobackend.repository.entity;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TodoIdGeneratorShould {
+
+    @Test
+    @DisplayName("generate version 7 uuids carrying the current unix time in milliseconds")
+    void generateVersion7Uuids() {
+        // GIVEN
+        long before = System.currentTimeMillis();
+
+        // WHEN
+        UUID uuid = TodoIdGenerator.timeOrderedUuid();
+
+        // THEN
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        long timestamp = uuid.getMostSignificantBits() >>> 16;
+        assertTrue(timestamp >= before && timestamp <= System.currentTimeMillis() + 1, "timestamp: " + timestamp);
+    }
+
+    @Test
+    @DisplayName("generate strictly increasing uuids, even within the same millisecond")
+    void generateIncreasingUuids() {
+        // GIVEN
+        UUID previous = TodoIdGenerator.timeOrderedUuid();
+
+        for (int i = 0; i < 100_000; i++) {
+            // WHEN
+            UUID next = TodoIdGenerator.timeOrderedUuid();
+
+            // THEN
+            assertTrue(Long.compareUnsigned(next.getMostSignificantBits(), previous.getMostSignificantBits()) > 0, previous + " then " + next);
+            previous = next;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package io.souvant.todobackend.repository.file;
+
+import io.souvant.todobackend.repository.entity.TodoEntity;
+import io.souvant.todobackend.repository.memory.InMemoryDataConfiguration;
+import io.souvant.todobackend.repository.memory.InMemoryTodoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TodoFileStoreShould {
+
+    @TempDir
+    Path directory;
+
+    @TempDir
+    Path crashes;
+
+    List<TodoFileStore> openStores = new ArrayList<>();
+
+    @AfterEach
+    void closeStores() throws IOException {
+        for (TodoFileStore store : openStores) {
+            store.close();
+        }
+    }
+
+    @Test
+    @DisplayName("recover every committed write by replaying the log")
+    void recoverFromLog() throws Exception {
+        // GIVEN
+        InMemoryTodoRepository todoRepository = open(directory);
+        TodoEntity first = todoRepository.saveAndFlush(new TodoEntity("first", false, 1L));
+        TodoEntity second = todoRepository.saveAndFlush(new TodoEntity("second", false, 2L));
+        TodoEntity third = todoRepository.saveAndFlush(new TodoEntity("third", false, 3L));
+        todoRepository.updateTodo(first.getId(), "first renamed", false, 1L);
+        todoRepository.updateCompleted(List.of(second.getId()), true);
+        todoRepository.delete(third);
+
+        // WHEN
+        InMemoryTodoRepository recovered = open(crash(directory));
+
+        // THEN
+        assertEquals(describe(findAllTodos(todoRepository)), describe(findAllTodos(recovered)));
+        assertEquals(List.of("first renamed 1 false v1", "second 2 true v1"), describe(findAllTodos(recovered)));
+    }
+
+    @Test
+    @DisplayName("recover from the snapshot and the log written after it, without the segments it covers")
+    void recoverFromSnapshotAndLog() throws Exception {
+        // GIVEN
+        TodoFileStore store = new TodoFileStore(directory, Duration.ofHours(1));
+        InMemoryTodoRepository todoRepository = open(store);
+        TodoEntity first = todoRepository.saveAndFlush(new TodoEntity("first", false, 1L));
+        todoRepository.saveAndFlush(new TodoEntity("second", false, 2L));
+        store.snapshot();
+        List<Path> segmentsAfterSnapshot = logSegments(directory);
+        todoRepository.updateCompleted(List.of(first.getId()), true);
+        todoRepository.saveAndFlush(new TodoEntity("third", false, 3L));
+
+        // WHEN
+        Path crashed = crash(directory);
+        InMemoryTodoRepository recovered = open(crashed);
+
+        // THEN
+        assertEquals(List.of("first 1 true v1", "second 2 false v0", "third 3 false v0"), describe(findAllTodos(recovered)));
+        assertTrue(Files.exists(crashed.resolve("snapshot.dat")));
+        assertEquals(1, segmentsAfterSnapshot.size());
+    }
+
+    @Test
+    @DisplayName("cut a torn entry at the end of the log and keep appending after it")
+    void cutTornEntry() throws Exception {
+        // GIVEN
+        InMemoryTodoRepository todoRepository = open(directory);
+        todoRepository.saveAndFlush(new TodoEntity("first", false, 1L));
+        todoRepository.saveAndFlush(new TodoEntity("second", false, 2L));
+        Path crashed = crash(directory);
+        Path lastSegment = logSegments(crashed).get(logSegments(crashed).size() - 1);
+        long intactSize = Files.size(lastSegment);
+        try (FileChannel channel = FileChannel.open(lastSegment, StandardOpenOption.APPEND)) {
+            // an entry header announcing a body that never made it to disk
+            channel.write(ByteBuffer.allocate(12).putInt(64).putInt(42).putInt(7).flip());
+        }
+
+        // WHEN
+        InMemoryTodoRepository recovered = open(crashed);
+        List<String> recoveredTodos = describe(findAllTodos(recovered));
+        recovered.saveAndFlush(new TodoEntity("third", false, 3L));
+        InMemoryTodoRepository recoveredAgain = open(crash(crashed));
+
+        // THEN
+        assertEquals(List.of("first 1 false v0", "second 2 false v0"), recoveredTodos);
+        assertEquals(intactSize, Files.size(lastSegment));
+        assertEquals(List.of("first 1 false v0", "second 2 false v0", "third 3 false v0"), describe(findAllTodos(recoveredAgain)));
+    }
+
+    @Test
+    @DisplayName("not recover the writes of a transaction that rolled back")
+    void notRecoverRolledBackWrites() throws Exception {
+        // GIVEN
+        InMemoryTodoRepository todoRepository = open(directory);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new InMemoryDataConfiguration().transactionManager());
+        transactionTemplate.executeWithoutResult(status -> todoRepository.save(new TodoEntity("committed", false, 1L)));
+        transactionTemplate.executeWithoutResult(status -> {
+            todoRepository.save(new TodoEntity("rolled back", false, 2L));
+            todoRepository.flush();
+            status.setRollbackOnly();
+        });
+
+        // WHEN
+        InMemoryTodoRepository recovered = open(crash(directory));
+
+        // THEN
+        assertEquals(List.of("committed 1 false v0"), describe(findAllTodos(recovered)));
+    }
+
+    @Test
+    @DisplayName("not hand out a rank block again after a restart")
+    void recoverRankSequence() throws Exception {
+        // GIVEN
+        InMemoryTodoRepository todoRepository = open(directory);
+        todoRepository.nextRankBlock();
+        long lastBlock = todoRepository.nextRankBlock();
+        // a commit waits for every earlier append
+        todoRepository.saveAndFlush(new TodoEntity("todo", false, 1L));
+
+        // WHEN
+        InMemoryTodoRepository recovered = open(crash(directory));
+
+        // THEN
+        assertTrue(recovered.nextRankBlock() > lastBlock);
+    }
+
+    private InMemoryTodoRepository open(Path storeDirectory) {
+        return open(new TodoFileStore(storeDirectory, Duration.ofHours(1)));
+    }
+
+    private InMemoryTodoRepository open(TodoFileStore store) {
+        openStores.add(store);
+        return new InMemoryTodoRepository("v7", store);
+    }
+
+    // the files as a crash would leave them: only what was written, the store is not closed
+    private Path crash(Path storeDirectory) throws IOException {
+        Path crashed = Files.createDirectory(crashes.resolve(UUID.randomUUID().toString()));
+        for (Path file : Files.list(storeDirectory).collect(Collectors.toList())) {
+            Files.copy(file, crashed.resolve(file.getFileName()));
+        }
+        return crashed;
+    }
+
+    private static List<Path> logSegments(Path storeDirectory) throws IOException {
+        try (Stream<Path> files = Files.list(storeDirectory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("wal-")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    // every todo, in rank order
+    private static List<TodoEntity> findAllTodos(InMemoryTodoRepository todoRepository) {
+        return todoRepository.findTodosAfterOrder(Long.MIN_VALUE, Pageable.unpaged());
+    }
+
+    private static List<String> describe(List<TodoEntity> todoEntities) {
+        return todoEntities.stream()
+                .map(todo -> todo.getTitle() + " " + todo.getOrder() + " " + todo.getCompleted() + " v" + todo.getVersion())
+                .collect(Collectors.toList());
+    }
+}
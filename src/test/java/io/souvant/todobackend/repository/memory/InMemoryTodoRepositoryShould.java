@@ -0,0 +1,216 @@
+package io.souvant.todobackend.repository.memory;
+
+import io.souvant.todobackend.repository.entity.TodoEntity;
+import io.souvant.todobackend.service.TodoRankAllocator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryTodoRepositoryShould {
+
+    InMemoryTodoRepository todoRepository;
+    TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        todoRepository = new InMemoryTodoRepository("v7");
+        transactionTemplate = new TransactionTemplate(new InMemoryTransactionManager());
+    }
+
+    @Test
+    @DisplayName("list and page todos by rank")
+    void listByRank() {
+        // GIVEN
+        todoRepository.saveAndFlush(new TodoEntity("third", false, 30L));
+        todoRepository.saveAndFlush(new TodoEntity("first", false, 10L));
+        todoRepository.saveAndFlush(new TodoEntity("second", false, 20L));
+
+        // WHEN
+        List<TodoEntity> todoEntities = findAllTodos(todoRepository);
+        List<TodoEntity> page = todoRepository.findTodosAfterOrder(10L, PageRequest.of(0, 1));
+        List<TodoEntity> streamed;
+        try (Stream<TodoEntity> todoEntityStream = todoRepository.streamAllByOrderByOrderAsc()) {
+            streamed = todoEntityStream.collect(Collectors.toList());
+        }
+
+        // THEN
+        assertEquals(List.of("first", "second", "third"), titles(todoEntities));
+        assertEquals(List.of("second"), titles(page));
+        assertEquals(todoEntities, streamed);
+        assertEquals(List.of("third"), titles(todoRepository.findAllByOrderIn(Set.of(30L, 40L))));
+    }
+
+    @Test
+    @DisplayName("find the neighbours of an anchor without the todo moved, and move it over the version read only")
+    void moveByRank() {
+        // GIVEN
+        TodoEntity first = todoRepository.saveAndFlush(new TodoEntity("first", false, 10L));
+        TodoEntity moved = todoRepository.saveAndFlush(new TodoEntity("moved", false, 20L));
+        todoRepository.saveAndFlush(new TodoEntity("last", false, 30L));
+
+        // WHEN
+        List<TodoEntity> fromFirst = todoRepository.findTodosFromOrderOf(first.getId(), moved.getId(), PageRequest.of(0, 2));
+        List<TodoEntity> upToFirst = todoRepository.findTodosUpToOrderOf(first.getId(), moved.getId(), PageRequest.of(0, 2));
+        int staleUpdatedCount = todoRepository.updateOrder(moved.getId(), 1L, 5L);
+        int updatedCount = todoRepository.updateOrder(moved.getId(), 0L, 5L);
+
+        // THEN
+        assertEquals(List.of("first", "last"), titles(fromFirst));
+        assertEquals(List.of("first"), titles(upToFirst));
+        assertEquals(List.of(), todoRepository.findTodosFromOrderOf(UUID.randomUUID(), moved.getId(), PageRequest.of(0, 2)));
+        assertEquals(0, staleUpdatedCount);
+        assertEquals(1, updatedCount);
+        assertEquals(List.of("moved", "first", "last"), titles(findAllTodos(todoRepository)));
+    }
+
+    @Test
+    @DisplayName("reject a rank already taken with the rank constraint name")
+    void rejectTakenRank() {
+        // GIVEN
+        todoRepository.saveAndFlush(new TodoEntity("first", false, 1L));
+        TodoEntity second = todoRepository.saveAndFlush(new TodoEntity("second", false, 2L));
+
+        // WHEN
+        DataIntegrityViolationException insertConflict = assertThrows(DataIntegrityViolationException.class,
+                () -> todoRepository.saveAndFlush(new TodoEntity("other", false, 1L)));
+        DataIntegrityViolationException updateConflict = assertThrows(DataIntegrityViolationException.class,
+                () -> todoRepository.updateTodo(second.getId(), "second", false, 1L));
+
+        // THEN
+        assertTrue(insertConflict.getMessage().contains(TodoEntity.RANK_CONSTRAINT));
+        assertTrue(updateConflict.getMessage().contains(TodoEntity.RANK_CONSTRAINT));
+        assertEquals(2, findAllTodos(todoRepository).size());
+        assertEquals(2, todoRepository.findById(second.getId()).orElseThrow().getOrder());
+    }
+
+    @Test
+    @DisplayName("write the changes of managed todos at commit over the version read only")
+    void writeManagedTodos() {
+        // GIVEN
+        UUID id = todoRepository.saveAndFlush(new TodoEntity("todo", false, 1L)).getId();
+
+        // WHEN
+        transactionTemplate.executeWithoutResult(status -> todoRepository.findById(id).orElseThrow().setTitle("renamed"));
+        TodoEntity stale = todoRepository.findById(id).orElseThrow();
+        todoRepository.updateCompleted(List.of(id), true);
+        stale.setTitle("lost");
+
+        // THEN
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> todoRepository.saveAndFlush(stale));
+        TodoEntity todoEntity = todoRepository.findById(id).orElseThrow();
+        assertEquals("renamed", todoEntity.getTitle());
+        assertTrue(todoEntity.getCompleted());
+        assertEquals(2L, todoEntity.getVersion());
+    }
+
+    @Test
+    @DisplayName("undo every write of a transaction that rolls back")
+    void undoRolledBackTransaction() {
+        // GIVEN
+        TodoEntity kept = todoRepository.saveAndFlush(new TodoEntity("kept", true, 1L));
+
+        // WHEN
+        transactionTemplate.executeWithoutResult(status -> {
+            todoRepository.save(new TodoEntity("created", false, 2L));
+            todoRepository.findById(kept.getId()).orElseThrow().setOrder(3L);
+            todoRepository.flush();
+            todoRepository.deleteCompletedTodos();
+            status.setRollbackOnly();
+        });
+
+        // THEN
+        assertEquals(List.of(kept), findAllTodos(todoRepository));
+        assertEquals(0L, todoRepository.findById(kept.getId()).orElseThrow().getVersion());
+        assertEquals(1, todoRepository.findAllByOrderIn(Set.of(1L, 3L)).size());
+    }
+
+    @Test
+    @DisplayName("hold a concurrent write until the transaction writing first rolls back, so it is not undone")
+    void serializeWriters() throws Exception {
+        // GIVEN
+        UUID id = todoRepository.saveAndFlush(new TodoEntity("todo", false, 1L)).getId();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // WHEN
+            Future<Integer> concurrentWrite = transactionTemplate.execute(status -> {
+                todoRepository.findById(id).orElseThrow().setTitle("rolled back");
+                todoRepository.flush();
+                Future<Integer> write = executor.submit(() -> todoRepository.updateCompleted(List.of(id), true));
+                assertThrows(TimeoutException.class, () -> write.get(200, TimeUnit.MILLISECONDS));
+                status.setRollbackOnly();
+                return write;
+            });
+
+            // THEN
+            assertEquals(1, concurrentWrite.get(5, TimeUnit.SECONDS));
+            TodoEntity todoEntity = todoRepository.findById(id).orElseThrow();
+            assertEquals("todo", todoEntity.getTitle());
+            assertTrue(todoEntity.getCompleted());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("delete completed todos and apply conditional updates")
+    void deleteCompletedAndUpdateConditionally() {
+        // GIVEN
+        todoRepository.saveAndFlush(new TodoEntity("done", true, 1L));
+        todoRepository.saveAndFlush(new TodoEntity("also done", true, 2L));
+        TodoEntity toDo = todoRepository.saveAndFlush(new TodoEntity("to do", false, 3L));
+
+        // WHEN
+        int firstChunk = todoRepository.deleteCompletedTodos(1);
+        int rest = todoRepository.deleteCompletedTodos();
+        int outdatedUpdate = todoRepository.updateTodo(toDo.getId(), Set.of(5L), "outdated", false, 3L);
+        int update = todoRepository.updateTodo(toDo.getId(), Set.of(0L), "updated", false, 3L);
+
+        // THEN
+        assertEquals(1, firstChunk);
+        assertEquals(1, rest);
+        assertEquals(0, outdatedUpdate);
+        assertEquals(1, update);
+        assertEquals(Optional.of(1L), todoRepository.findVersionById(toDo.getId()));
+        assertEquals(List.of("updated"), titles(findAllTodos(todoRepository)));
+    }
+
+    @Test
+    @DisplayName("reserve rank blocks of the size the allocator expects")
+    void reserveRankBlocks() {
+        // WHEN
+        long first = todoRepository.nextRankBlock();
+        long second = todoRepository.nextRankBlock();
+
+        // THEN
+        assertEquals(TodoRankAllocator.BLOCK_SIZE, InMemoryTodoRepository.RANK_BLOCK_SIZE);
+        assertEquals(first + TodoRankAllocator.BLOCK_SIZE, second);
+    }
+
+    // every todo, in rank order
+    private static List<TodoEntity> findAllTodos(InMemoryTodoRepository todoRepository) {
+        return todoRepository.findTodosAfterOrder(Long.MIN_VALUE, Pageable.unpaged());
+    }
+
+    private static List<String> titles(List<TodoEntity> todoEntities) {
+        return todoEntities.stream().map(TodoEntity::getTitle).collect(Collectors.toList());
+    }
+}
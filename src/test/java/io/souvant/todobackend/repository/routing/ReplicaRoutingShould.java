@@ -0,0 +1,127 @@
+package io.souvant.todobackend.repository.routing;
+
+import io.souvant.todobackend.controller.model.request.TodoSaveBody;
+import io.souvant.todobackend.controller.model.response.TodoResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.datasource.url=jdbc:h2:mem:todo-primary;DB_CLOSE_DELAY=-1",
+                "todo.datasource.replica-urls=" + ReplicaRoutingShould.REPLICA_URL,
+                "todo.datasource.replica-lag-query=select lag_millis from replica_status",
+                "todo.datasource.replica-max-lag=5s",
+                // the lag is checked by the tests
+                "todo.datasource.replica-lag-check-interval=1h"
+        }
+)
+@ActiveProfiles(ReplicaRoutingConfiguration.PROFILE)
+class ReplicaRoutingShould {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:todo-replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Autowired
+    ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Autowired
+    DataSource dataSource;
+
+    JdbcTemplate primary;
+    JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        primary = new JdbcTemplate(dataSource);
+        replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "admin", "admin"));
+        replica.execute("create table if not exists todo (id binary(16) not null primary key, completed boolean, "
+                + "rank bigint, title varchar(255), version bigint not null)");
+        replica.execute("create table if not exists replica_status (lag_millis bigint)");
+        replica.update("delete from replica_status");
+        replica.update("insert into replica_status values (0)");
+        replicaRoutingDataSource.replicaLagMonitor().check();
+    }
+
+    @Test
+    @DisplayName("read from the replica what the primary wrote once replicated")
+    void readFromReplica() {
+        // GIVEN
+        String url = "/todos/" + createTodo().getBody().getId();
+
+        // WHEN
+        ResponseEntity<TodoResponse> beforeReplication = restTemplate.getForEntity(url, TodoResponse.class);
+        replicate();
+        ResponseEntity<TodoResponse> afterReplication = restTemplate.getForEntity(url, TodoResponse.class);
+
+        // THEN
+        assertEquals(HttpStatus.NOT_FOUND, beforeReplication.getStatusCode());
+        assertEquals(HttpStatus.OK, afterReplication.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("read from the primary after a write of the same client")
+    void readYourWrites() {
+        // GIVEN
+        ResponseEntity<TodoResponse> created = createTodo();
+        String cookie = created.getHeaders().getFirst(HttpHeaders.SET_COOKIE);
+        assertNotNull(cookie);
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.COOKIE, cookie.split(";")[0]);
+
+        // WHEN
+        ResponseEntity<TodoResponse> response = restTemplate.exchange("/todos/" + created.getBody().getId(), HttpMethod.GET,
+                new HttpEntity<>(headers), TodoResponse.class);
+
+        // THEN
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("read from the primary when the replica lags too much")
+    void readFromPrimaryWhenReplicaLags() {
+        // GIVEN
+        String url = "/todos/" + createTodo().getBody().getId();
+        replica.update("update replica_status set lag_millis = 60000");
+        replicaRoutingDataSource.replicaLagMonitor().check();
+
+        // WHEN
+        ResponseEntity<TodoResponse> response = restTemplate.getForEntity(url, TodoResponse.class);
+
+        // THEN
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+    }
+
+    private ResponseEntity<TodoResponse> createTodo() {
+        ResponseEntity<TodoResponse> created = restTemplate.postForEntity("/todos", new TodoSaveBody("replicated"), TodoResponse.class);
+        assertEquals(HttpStatus.CREATED, created.getStatusCode());
+        return created;
+    }
+
+    private void replicate() {
+        replica.update("delete from todo");
+        primary.query("select id, completed, rank, title, version from todo", resultSet -> {
+            replica.update("insert into todo (id, completed, rank, title, version) values (?, ?, ?, ?, ?)",
+                    resultSet.getBytes(1), resultSet.getObject(2), resultSet.getObject(3), resultSet.getString(4), resultSet.getLong(5));
+        });
+    }
+}
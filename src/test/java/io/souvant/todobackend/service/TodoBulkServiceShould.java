@@ -0,0 +1,201 @@
+package io.souvant.todobackend.service;
+
+import io.souvant.todobackend.controller.model.request.TodoBulkOperation;
+import io.souvant.todobackend.repository.TodoRepository;
+import io.souvant.todobackend.repository.entity.TodoEntity;
+import io.souvant.todobackend.service.model.TodoBulkResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static io.souvant.todobackend.controller.model.request.TodoBulkOperation.Type.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TodoBulkServiceShould {
+
+    @Mock
+    TodoRepository todoRepository;
+
+    @Mock
+    TodoRankAllocator todoRankAllocator;
+
+    @Mock
+    TodoCache todoCache;
+
+    @Mock
+    TodoListVersion todoListVersion;
+
+    @Mock
+    TodoWriteBehind todoWriteBehind;
+
+    @InjectMocks
+    TodoBulkService todoBulkService;
+
+    @Test
+    @DisplayName("apply create, update, patch and delete operations and flush them once")
+    void applyOperations() {
+        // GIVEN
+        UUID toUpdate = UUID.randomUUID();
+        UUID toPatch = UUID.randomUUID();
+        UUID toDelete = UUID.randomUUID();
+        TodoEntity todoToUpdate = new TodoEntity(toUpdate, "title1", false, 1L);
+        TodoEntity todoToPatch = new TodoEntity(toPatch, "title2", false, 2L);
+        TodoEntity todoToDelete = new TodoEntity(toDelete, "title3", false, 3L);
+        List<TodoBulkOperation> operations = List.of(
+                new TodoBulkOperation(CREATE, null, "created", null, null),
+                new TodoBulkOperation(UPDATE, toUpdate, "updated", true, 4),
+                new TodoBulkOperation(PATCH, toPatch, null, true, null),
+                new TodoBulkOperation(DELETE, toDelete, null, null, null)
+        );
+
+        when(todoRepository.findAllById(Set.of(toUpdate, toPatch, toDelete))).thenReturn(List.of(todoToUpdate, todoToPatch, todoToDelete));
+        when(todoRepository.findAllByOrderIn(Set.of(4L))).thenReturn(List.of());
+        when(todoRankAllocator.nextRank()).thenReturn(51L);
+        when(todoRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // WHEN
+        List<TodoBulkResult> results = todoBulkService.applyOperations(operations);
+
+        // THEN
+        assertEquals(List.of(HttpStatus.CREATED, HttpStatus.OK, HttpStatus.OK, HttpStatus.NO_CONTENT),
+                results.stream().map(TodoBulkResult::getStatus).collect(Collectors.toList()));
+        assertEquals("created", results.get(0).getTodo().getTitle());
+        assertEquals(51, results.get(0).getTodo().getOrder());
+        assertEquals(new TodoEntity(toUpdate, "updated", true, 4L), todoToUpdate);
+        assertEquals(new TodoEntity(toPatch, "title2", true, 2L), todoToPatch);
+        verify(todoRepository, times(1)).delete(todoToDelete);
+        verify(todoRepository, times(1)).flush();
+        verify(todoCache).invalidate(toUpdate);
+        verify(todoCache).invalidate(toPatch);
+        verify(todoCache).invalidate(toDelete);
+    }
+
+    @Test
+    @DisplayName("fail the whole bulk with the status of the first failing operation")
+    void failOnUnknownTodo() {
+        // GIVEN
+        UUID unknown = UUID.randomUUID();
+        List<TodoBulkOperation> operations = List.of(
+                new TodoBulkOperation(CREATE, null, "created", null, null),
+                new TodoBulkOperation(DELETE, unknown, null, null, null),
+                new TodoBulkOperation(CREATE, null, "never created", null, null)
+        );
+
+        when(todoRepository.findAllById(Set.of(unknown))).thenReturn(List.of());
+        when(todoRankAllocator.nextRank()).thenReturn(51L, 52L);
+        when(todoRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // WHEN
+        TodoBulkException thrown = assertThrows(TodoBulkException.class, () -> todoBulkService.applyOperations(operations));
+
+        // THEN
+        assertEquals(HttpStatus.NOT_FOUND, thrown.getStatus());
+        assertEquals(List.of(HttpStatus.FAILED_DEPENDENCY, HttpStatus.NOT_FOUND, HttpStatus.FAILED_DEPENDENCY),
+                thrown.getResults().stream().map(TodoBulkResult::getStatus).collect(Collectors.toList()));
+        verify(todoRepository, never()).flush();
+    }
+
+    @Test
+    @DisplayName("fail with CONFLICT when an operation takes a rank owned by another todo")
+    void failOnRankConflict() {
+        // GIVEN
+        UUID toPatch = UUID.randomUUID();
+        TodoEntity todoToPatch = new TodoEntity(toPatch, "title1", false, 1L);
+        TodoEntity rankOwner = new TodoEntity(UUID.randomUUID(), "title2", false, 2L);
+        List<TodoBulkOperation> operations = List.of(new TodoBulkOperation(PATCH, toPatch, null, null, 2));
+
+        when(todoRepository.findAllById(Set.of(toPatch))).thenReturn(List.of(todoToPatch));
+        when(todoRepository.findAllByOrderIn(Set.of(2L))).thenReturn(List.of(rankOwner));
+
+        // WHEN
+        TodoBulkException thrown = assertThrows(TodoBulkException.class, () -> todoBulkService.applyOperations(operations));
+
+        // THEN
+        assertEquals(HttpStatus.CONFLICT, thrown.getStatus());
+        assertEquals(1, todoToPatch.getOrder());
+    }
+
+    @Test
+    @DisplayName("accept a rank released earlier in the same bulk")
+    void reuseReleasedRank() {
+        // GIVEN
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        TodoEntity firstTodo = new TodoEntity(first, "title1", false, 1L);
+        TodoEntity secondTodo = new TodoEntity(second, "title2", false, 2L);
+        List<TodoBulkOperation> operations = List.of(
+                new TodoBulkOperation(PATCH, second, null, null, 3),
+                new TodoBulkOperation(PATCH, first, null, null, 2)
+        );
+
+        when(todoRepository.findAllById(Set.of(first, second))).thenReturn(List.of(firstTodo, secondTodo));
+        when(todoRepository.findAllByOrderIn(Set.of(2L, 3L))).thenReturn(List.of(secondTodo));
+
+        // WHEN
+        todoBulkService.applyOperations(operations);
+
+        // THEN
+        assertEquals(2, firstTodo.getOrder());
+        assertEquals(3, secondTodo.getOrder());
+        // the release of rank 2 is flushed before it is taken again, whatever order Hibernate sends the updates in
+        verify(todoRepository, times(2)).flush();
+    }
+
+    @Test
+    @DisplayName("report a CONFLICT on the operation whose write the database rejects")
+    void failOnFlushConflict() {
+        // GIVEN
+        List<TodoBulkOperation> operations = List.of(
+                new TodoBulkOperation(CREATE, null, "created", null, null),
+                new TodoBulkOperation(CREATE, null, "rejected", null, null)
+        );
+        when(todoRankAllocator.nextRank()).thenReturn(50L, 51L);
+        when(todoRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        doThrow(new DataIntegrityViolationException("Unique index or primary key violation: \"PUBLIC.UK_TODO_RANK_INDEX_2 ON PUBLIC.TODO(RANK) VALUES 51\"")).when(todoRepository).flush();
+
+        // WHEN
+        TodoBulkException thrown = assertThrows(TodoBulkException.class, () -> todoBulkService.applyOperations(operations));
+
+        // THEN
+        assertEquals(HttpStatus.CONFLICT, thrown.getStatus());
+        assertEquals(List.of(HttpStatus.FAILED_DEPENDENCY, HttpStatus.CONFLICT), statuses(thrown.getResults()));
+    }
+
+    @Test
+    @DisplayName("report a CONFLICT on the operation of a todo written meanwhile")
+    void failOnFlushOptimisticLock() {
+        // GIVEN
+        UUID patched = UUID.randomUUID();
+        UUID written = UUID.randomUUID();
+        List<TodoBulkOperation> operations = List.of(
+                new TodoBulkOperation(PATCH, patched, null, true, null),
+                new TodoBulkOperation(PATCH, written, null, true, null)
+        );
+        when(todoRepository.findAllById(Set.of(patched, written))).thenReturn(List.of(new TodoEntity(patched, "title1", false, 1L), new TodoEntity(written, "title2", false, 2L)));
+        doThrow(new ObjectOptimisticLockingFailureException(TodoEntity.class, written)).when(todoRepository).flush();
+
+        // WHEN
+        TodoBulkException thrown = assertThrows(TodoBulkException.class, () -> todoBulkService.applyOperations(operations));
+
+        // THEN
+        assertEquals(List.of(HttpStatus.FAILED_DEPENDENCY, HttpStatus.CONFLICT), statuses(thrown.getResults()));
+    }
+
+    private static List<HttpStatus> statuses(List<TodoBulkResult> results) {
+        return results.stream().map(TodoBulkResult::getStatus).collect(Collectors.toList());
+    }
+}
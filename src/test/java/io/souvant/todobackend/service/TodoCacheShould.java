@@ -0,0 +1,176 @@
+package io.souvant.todobackend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.souvant.todobackend.service.model.Todo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TodoCacheShould {
+
+    SimpleMeterRegistry meterRegistry;
+    TodoCache todoCache;
+    ExecutorService executorService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        todoCache = new TodoCache(100, Duration.ofMinutes(5), meterRegistry);
+        executorService = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("load a todo once and record hits and misses")
+    void loadOnce() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        AtomicInteger loads = new AtomicInteger();
+
+        // WHEN
+        todoCache.get(uuid, id -> todo(id, "title" + loads.incrementAndGet()));
+        Todo result = todoCache.get(uuid, id -> todo(id, "title" + loads.incrementAndGet()));
+
+        // THEN
+        assertEquals("title1", result.getTitle());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("not cache a todo that was not found")
+    void notCacheMissingTodo() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        todoCache.get(uuid, id -> null);
+
+        // WHEN
+        Todo result = todoCache.get(uuid, id -> todo(id, "created"));
+
+        // THEN
+        assertEquals("created", result.getTitle());
+    }
+
+    @Test
+    @DisplayName("evict the least valuable todos past the maximum size")
+    void boundSize() throws Exception {
+        // GIVEN
+        SimpleMeterRegistry smallCacheMeterRegistry = new SimpleMeterRegistry();
+        TodoCache smallCache = new TodoCache(10, Duration.ofMinutes(5), smallCacheMeterRegistry);
+
+        // WHEN
+        for (int i = 0; i < 1_000; i++) {
+            smallCache.get(UUID.randomUUID(), id -> todo(id, "title"));
+        }
+
+        // THEN
+        // evictions run asynchronously after the writes, a hit or a write schedules the pending ones again
+        UUID polled = UUID.randomUUID();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (smallCacheMeterRegistry.get("cache.size").gauge().value() > 10 && System.nanoTime() < deadline) {
+            smallCache.get(polled, id -> todo(id, "title"));
+            Thread.sleep(1);
+        }
+        assertTrue(smallCacheMeterRegistry.get("cache.size").gauge().value() <= 10);
+        assertTrue(smallCacheMeterRegistry.get("cache.evictions").functionCounter().count() > 0);
+    }
+
+    @Test
+    @DisplayName("not keep a todo loaded before its invalidation, without waiting for the load")
+    void notKeepTodoLoadedBeforeInvalidation() throws Exception {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        Future<Todo> staleRead = executorService.submit(() -> todoCache.get(uuid, id -> {
+            loading.countDown();
+            await(written);
+            return todo(id, "before write");
+        }));
+        loading.await();
+
+        // WHEN
+        // the load may be waiting for the connection the writer holds
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> todoCache.invalidate(uuid));
+        written.countDown();
+        staleRead.get(10, TimeUnit.SECONDS);
+
+        // THEN
+        assertEquals("after write", todoCache.get(uuid, id -> todo(id, "after write")).getTitle());
+    }
+
+    @Test
+    @DisplayName("not keep a todo loaded before todos were cleared")
+    void notKeepTodoLoadedBeforeClear() throws Exception {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        Future<Todo> read = executorService.submit(() -> todoCache.get(uuid, id -> {
+            if (loads.incrementAndGet() == 1) {
+                loading.countDown();
+                await(written);
+                return todo(id, "before write");
+            }
+            return todo(id, "after write");
+        }));
+        loading.await();
+
+        // WHEN
+        todoCache.invalidateAll();
+        written.countDown();
+        read.get(10, TimeUnit.SECONDS);
+
+        // THEN
+        assertEquals("after write", todoCache.get(uuid, id -> todo(id, "after write")).getTitle());
+    }
+
+    @Test
+    @DisplayName("invalidate a todo only once the current transaction has completed")
+    void invalidateAfterTransaction() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        todoCache.get(uuid, id -> todo(id, "cached"));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // WHEN
+            todoCache.invalidate(uuid);
+            Todo duringTransaction = todoCache.get(uuid, id -> todo(id, "reloaded"));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+            // THEN
+            assertEquals("cached", duringTransaction.getTitle());
+            assertEquals("reloaded", todoCache.get(uuid, id -> todo(id, "reloaded")).getTitle());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static Todo todo(UUID id, String title) {
+        return new Todo(id, title, false, 1L);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package io.souvant.todobackend.service;
+
+import io.souvant.todobackend.repository.TodoRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TodoRankAllocatorShould {
+
+    @Mock
+    TodoRepository todoRepository;
+
+    @InjectMocks
+    TodoRankAllocator todoRankAllocator;
+
+    @Test
+    @DisplayName("hand out the spaced ranks of a reserved block before reserving the next one")
+    void allocateRanksFromBlocks() {
+        // GIVEN
+        when(todoRepository.nextRankBlock()).thenReturn(1L, 51L);
+
+        // WHEN
+        Long firstRank = todoRankAllocator.nextRank();
+        for (int i = 1; i < TodoRankAllocator.BLOCK_SIZE; i++) {
+            todoRankAllocator.nextRank();
+        }
+        Long firstRankOfSecondBlock = todoRankAllocator.nextRank();
+
+        // THEN
+        assertEquals(TodoRankAllocator.RANK_GAP, firstRank);
+        assertEquals(51 * TodoRankAllocator.RANK_GAP, firstRankOfSecondBlock);
+        verify(todoRepository, times(2)).nextRankBlock();
+    }
+
+    @Test
+    @DisplayName("never hand out the same rank to concurrent callers")
+    void allocateDistinctRanksConcurrently() throws Exception {
+        // GIVEN
+        AtomicLong sequence = new AtomicLong(1);
+        when(todoRepository.nextRankBlock()).thenAnswer(invocation -> sequence.getAndAdd(TodoRankAllocator.BLOCK_SIZE));
+        int threads = 8;
+        int ranksPerThread = 1_000;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        Set<Long> ranks = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+
+        // WHEN
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executorService.submit(() -> {
+                start.await();
+                for (int j = 0; j < ranksPerThread; j++) {
+                    ranks.add(todoRankAllocator.nextRank());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executorService.shutdown();
+
+        // THEN
+        assertEquals(threads * ranksPerThread, ranks.size());
+        verify(todoRepository, times(threads * ranksPerThread / TodoRankAllocator.BLOCK_SIZE)).nextRankBlock();
+    }
+}
@@ -0,0 +1,148 @@
+package io.souvant.todobackend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.souvant.todobackend.repository.TodoRepository;
+import io.souvant.todobackend.repository.entity.TodoEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static io.souvant.todobackend.service.TodoRankAllocator.RANK_GAP;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TodoRankRebalancerShould {
+
+    @Mock
+    TodoRepository todoRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    TodoRankRebalancer todoRankRebalancer;
+
+    @BeforeEach
+    void setUp() {
+        TodoCache todoCache = new TodoCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        todoRankRebalancer = new TodoRankRebalancer(todoRepository, todoCache, new TodoListVersion(), transactionManager, Duration.ZERO, 10);
+    }
+
+    @Test
+    @DisplayName("spread crowded todos evenly between their neighbours, off the ranks the allocator hands out, writing the highest first when moving up")
+    void respaceCrowdedTodos() {
+        // GIVEN
+        TodoEntity first = todo(RANK_GAP);
+        TodoEntity crowded1 = todo(RANK_GAP + 1);
+        TodoEntity crowded2 = todo(RANK_GAP + 2);
+        TodoEntity last = todo(4 * RANK_GAP);
+        when(todoRepository.findTodosAfterOrder(Long.MIN_VALUE, PageRequest.of(0, 10))).thenReturn(List.of(first, crowded1, crowded2, last));
+        when(todoRepository.findTodosAfterOrder(RANK_GAP, PageRequest.of(0, 3))).thenReturn(List.of(crowded1, crowded2, last));
+        when(todoRepository.updateOrder(any(), any(), any())).thenReturn(1);
+
+        // WHEN
+        int respacedCount = todoRankRebalancer.rebalance();
+
+        // THEN
+        assertEquals(2, respacedCount);
+        InOrder inOrder = inOrder(todoRepository, transactionManager);
+        inOrder.verify(todoRepository).updateOrder(crowded2.getId(), 0L, 3 * RANK_GAP + 1);
+        inOrder.verify(todoRepository).updateOrder(crowded1.getId(), 0L, 2 * RANK_GAP + 1);
+        inOrder.verify(transactionManager).commit(any());
+        verify(todoRepository, times(2)).updateOrder(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("respace the crowded todos at the end of the list below the next rank the allocator hands out")
+    void respaceLastTodos() {
+        // GIVEN
+        TodoEntity first = todo(RANK_GAP);
+        TodoEntity crowded = todo(RANK_GAP + 1);
+        when(todoRepository.findTodosAfterOrder(Long.MIN_VALUE, PageRequest.of(0, 10))).thenReturn(List.of(first, crowded));
+        when(todoRepository.findTodosAfterOrder(RANK_GAP, PageRequest.of(0, 2))).thenReturn(List.of(crowded));
+        when(todoRepository.updateOrder(any(), any(), any())).thenReturn(1);
+
+        // WHEN
+        int respacedCount = todoRankRebalancer.rebalance();
+
+        // THEN
+        assertEquals(1, respacedCount);
+        verify(todoRepository).updateOrder(crowded.getId(), 0L, RANK_GAP + RANK_GAP / 2);
+    }
+
+    @Test
+    @DisplayName("respace the run after a bound up to the first todo leaving room, and no further")
+    void respaceRunAfterBound() {
+        // GIVEN
+        TodoEntity crowded1 = todo(RANK_GAP + 1);
+        TodoEntity crowded2 = todo(RANK_GAP + 2);
+        TodoEntity next = todo(4 * RANK_GAP);
+        TodoEntity crowdedLater = todo(4 * RANK_GAP + 1);
+        when(todoRepository.findTodosAfterOrder(RANK_GAP, PageRequest.of(0, 10))).thenReturn(List.of(crowded1, crowded2, next, crowdedLater));
+        when(todoRepository.findTodosAfterOrder(RANK_GAP, PageRequest.of(0, 3))).thenReturn(List.of(crowded1, crowded2, next));
+        when(todoRepository.updateOrder(any(), any(), any())).thenReturn(1);
+
+        // WHEN
+        int respacedCount = todoRankRebalancer.respaceAfter(RANK_GAP);
+
+        // THEN
+        assertEquals(2, respacedCount);
+        verify(todoRepository).updateOrder(crowded2.getId(), 0L, 3 * RANK_GAP + 1);
+        verify(todoRepository).updateOrder(crowded1.getId(), 0L, 2 * RANK_GAP + 1);
+        verify(todoRepository, never()).updateOrder(eq(crowdedLater.getId()), any(), any());
+    }
+
+    @Test
+    @DisplayName("leave a list with room between every todo as it is")
+    void leaveSpacedTodos() {
+        // GIVEN
+        when(todoRepository.findTodosAfterOrder(Long.MIN_VALUE, PageRequest.of(0, 10))).thenReturn(List.of(todo(RANK_GAP), todo(2 * RANK_GAP), todo(2 * RANK_GAP + TodoRankRebalancer.MIN_GAP)));
+
+        // WHEN
+        int respacedCount = todoRankRebalancer.rebalance();
+
+        // THEN
+        assertEquals(0, respacedCount);
+        verify(todoRepository, never()).updateOrder(any(), any(), any());
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    @DisplayName("roll the respacing back when a todo was written since it was read")
+    void rollBackOnConcurrentWrite() {
+        // GIVEN
+        TodoEntity first = todo(RANK_GAP);
+        TodoEntity crowded = todo(RANK_GAP + 1);
+        TodoEntity last = todo(3 * RANK_GAP);
+        when(todoRepository.findTodosAfterOrder(Long.MIN_VALUE, PageRequest.of(0, 10))).thenReturn(List.of(first, crowded, last));
+        when(todoRepository.findTodosAfterOrder(RANK_GAP, PageRequest.of(0, 2))).thenReturn(List.of(crowded, last));
+        when(todoRepository.updateOrder(crowded.getId(), 0L, 2 * RANK_GAP + 1)).thenReturn(0);
+
+        // WHEN
+        assertThrows(OptimisticLockingFailureException.class, () -> todoRankRebalancer.rebalance());
+
+        // THEN
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    private static TodoEntity todo(long order) {
+        TodoEntity todoEntity = new TodoEntity(UUID.randomUUID(), "todo " + order, false, order);
+        todoEntity.setVersion(0L);
+        return todoEntity;
+    }
+}
@@ -1,21 +1,29 @@
 package io.souvant.todobackend.service;
 
+import io.souvant.todobackend.controller.model.request.TodoMoveBody;
 import io.souvant.todobackend.controller.model.request.TodoPartialUpdateBody;
 import io.souvant.todobackend.controller.model.request.TodoUpdateBody;
 import io.souvant.todobackend.repository.TodoRepository;
 import io.souvant.todobackend.repository.entity.TodoEntity;
 import io.souvant.todobackend.service.model.Todo;
+import io.souvant.todobackend.service.model.TodoPage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InOrder;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -28,69 +36,123 @@ class TodoServiceShould {
     @Mock
     TodoRepository todoRepository;
 
-    @InjectMocks
+    @Mock
+    TodoRankAllocator todoRankAllocator;
+
+    @Mock
+    TodoRankRebalancer todoRankRebalancer;
+
     TodoService todoService;
 
+    @BeforeEach
+    void setUp() {
+        TodoCache todoCache = new TodoCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        TodoListVersion todoListVersion = new TodoListVersion();
+        todoService = new TodoService(todoRepository, todoRankAllocator, todoCache, todoListVersion,
+                new TodoWriteBehind(todoRepository, todoCache, todoListVersion, false, Duration.ofMillis(100), 10, TodoWriteBehind.Durability.BUFFERED), todoRankRebalancer, 0);
+    }
+
     @Test
     @DisplayName("generate a todo rank save it and retrn a Todo")
     void createTodo() {
         // GIVEN
         UUID uuid = UUID.randomUUID();
-        TodoEntity todoEntity = new TodoEntity("test", false, 1);
+        TodoEntity todoEntity = new TodoEntity("test", false, 1L);
         todoEntity.setId(uuid);
 
-        when(todoRepository.getMaxOrder()).thenReturn(Optional.of(1));
-        when(todoRepository.save(any())).thenReturn(todoEntity);
+        when(todoRankAllocator.nextRank()).thenReturn(1L);
+        when(todoRepository.saveAndFlush(new TodoEntity("title", false, 1L))).thenReturn(todoEntity);
 
-        Todo expectedResult = new Todo(uuid, "test", false, 1);
+        Todo expectedResult = new Todo(uuid, "test", false, 1L);
 
         // WHEN
         Todo result = todoService.createTodo("title");
 
         // THEN
-        verify(todoRepository, times(1)).save(any());
+        verify(todoRepository, times(1)).saveAndFlush(any());
         //todo : verify
         assertEquals(expectedResult, result);
     }
 
     @Test
-    @DisplayName("return get and return a list of Todo")
-    void getAllTodos() {
+    @DisplayName("stream todos in rank order and detach each streamed entity")
+    void streamAllTodos() {
         // GIVEN
-        String title = "my test todo";
-        UUID uuid = UUID.randomUUID();
-        UUID uuid2 = UUID.randomUUID();
-        UUID uuid3 = UUID.randomUUID();
+        TodoEntity todo1 = new TodoEntity(UUID.randomUUID(), "title1", false, 1L);
+        TodoEntity todo2 = new TodoEntity(UUID.randomUUID(), "title2", true, 2L);
 
-        TodoEntity todo1 = new TodoEntity("title1", false, 1);
-        TodoEntity todo2 = new TodoEntity("title2", true, 2);
-        TodoEntity todo3 = new TodoEntity("title3", false, 3);
-        todo1.setId(uuid);
-        todo2.setId(uuid2);
-        todo3.setId(uuid3);
+        when(todoRepository.streamAllByOrderByOrderAsc()).thenReturn(Stream.of(todo1, todo2));
 
-        List<TodoEntity> todoEntities = new ArrayList<>();
-        todoEntities.add(todo1);
-        todoEntities.add(todo2);
-        todoEntities.add(todo3);
+        List<Todo> expectedTodos = List.of(
+                new Todo(todo1.getId(), todo1.getTitle(), todo1.getCompleted(), todo1.getOrder()),
+                new Todo(todo2.getId(), todo2.getTitle(), todo2.getCompleted(), todo2.getOrder())
+        );
+        List<Todo> streamedTodos = new ArrayList<>();
 
-        when(todoRepository.findAllByOrderByOrderAsc()).thenReturn(todoEntities);
+        // WHEN
+        todoService.streamAllTodos(streamedTodos::add);
 
-        Todo todoResponse1 = new Todo(todo1.getId(), todo1.getTitle(), todo1.getCompleted(), todo1.getOrder());
-        Todo todoResponse2 = new Todo(todo2.getId(), todo2.getTitle(), todo2.getCompleted(), todo2.getOrder());
-        Todo todoResponse3 = new Todo(todo3.getId(), todo3.getTitle(), todo3.getCompleted(), todo3.getOrder());
+        // THEN
+        assertEquals(expectedTodos, streamedTodos);
+        verify(todoRepository, times(1)).detach(todo1);
+        verify(todoRepository, times(1)).detach(todo2);
+    }
+
+    @Test
+    @DisplayName("return a page of todos with the rank of its last todo as next cursor")
+    void getTodosPage() {
+        // GIVEN
+        TodoEntity todo1 = new TodoEntity(UUID.randomUUID(), "title1", false, 4L);
+        TodoEntity todo2 = new TodoEntity(UUID.randomUUID(), "title2", true, 5L);
+        TodoEntity todo3 = new TodoEntity(UUID.randomUUID(), "title3", false, 6L);
 
-        List<Todo> expectedResponses = new ArrayList<>();
-        expectedResponses.add(todoResponse1);
-        expectedResponses.add(todoResponse2);
-        expectedResponses.add(todoResponse3);
+        when(todoRepository.findTodosAfterOrder(3L, PageRequest.of(0, 3))).thenReturn(List.of(todo1, todo2, todo3));
+
+        Todo expectedTodo1 = new Todo(todo1.getId(), todo1.getTitle(), todo1.getCompleted(), todo1.getOrder());
+        Todo expectedTodo2 = new Todo(todo2.getId(), todo2.getTitle(), todo2.getCompleted(), todo2.getOrder());
 
         // WHEN
-        List<Todo> result = todoService.getAllTodos();
+        TodoPage result = todoService.getTodosPage(Optional.of(3L), Optional.of(2));
 
         // THEN
-        verify(todoRepository, times(1)).findAllByOrderByOrderAsc();
-        assertEquals(expectedResponses, result);
+        assertEquals(new TodoPage(List.of(expectedTodo1, expectedTodo2), 5L), result);
+    }
+
+    @Test
+    @DisplayName("return the last page of todos without next cursor")
+    void getLastTodosPage() {
+        // GIVEN
+        TodoEntity todo1 = new TodoEntity(UUID.randomUUID(), "title1", false, 1L);
+
+        when(todoRepository.findTodosAfterOrder(Long.MIN_VALUE, PageRequest.of(0, TodoService.DEFAULT_PAGE_SIZE + 1))).thenReturn(List.of(todo1));
+
+        // WHEN
+        TodoPage result = todoService.getTodosPage(Optional.empty(), Optional.empty());
+
+        // THEN
+        assertEquals(1, result.getTodos().size());
+        assertEquals(null, result.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("bound the page size")
+    void boundTodosPageSize() {
+        // WHEN
+        todoService.getTodosPage(Optional.empty(), Optional.of(1_000_000));
+
+        // THEN
+        verify(todoRepository, times(1)).findTodosAfterOrder(Long.MIN_VALUE, PageRequest.of(0, TodoService.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    @DisplayName("throw bad request when the page size is not positive")
+    void getTodosPageThrowBadRequest() {
+        ResponseStatusException thrown = assertThrows( ResponseStatusException.class, () ->
+                todoService.getTodosPage(Optional.empty(), Optional.of(0)));
+
+        // THEN
+        assertEquals(HttpStatus.BAD_REQUEST, thrown.getStatus());
+        verifyNoInteractions(todoRepository);
     }
 
     @Test
@@ -106,11 +168,35 @@ class TodoServiceShould {
     @Test
     @DisplayName("delete all todos")
     void deleteTodos() {
+        // GIVEN
+        when(todoRepository.deleteAllTodos()).thenReturn(3);
+
+        // WHEN
+        int deletedCount = todoService.deleteTodos(Optional.empty());
+
+        // THEN
+        assertEquals(3, deletedCount);
+        verify(todoRepository, times(1)).deleteAllTodos();
+        verifyNoMoreInteractions(todoRepository);
+    }
+
+    @Test
+    @DisplayName("delete completed todos chunk by chunk until a chunk is not full")
+    void deleteCompletedTodosByChunks() {
+        // GIVEN
+        TodoCache todoCache = new TodoCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        TodoListVersion todoListVersion = new TodoListVersion();
+        TodoService chunkedTodoService = new TodoService(todoRepository, todoRankAllocator, todoCache, todoListVersion,
+                new TodoWriteBehind(todoRepository, todoCache, todoListVersion, false, Duration.ofMillis(100), 10, TodoWriteBehind.Durability.BUFFERED), todoRankRebalancer, 100);
+        when(todoRepository.deleteCompletedTodos(100)).thenReturn(100, 100, 42);
+
         // WHEN
-        todoService.deleteTodos(Optional.empty());
+        int deletedCount = chunkedTodoService.deleteTodos(Optional.of(true));
 
         // THEN
-        verify(todoRepository, times(1)).deleteAll();
+        assertEquals(242, deletedCount);
+        verify(todoRepository, times(3)).deleteCompletedTodos(100);
+        verify(todoRepository, never()).deleteCompletedTodos();
     }
 
     @Test
@@ -118,7 +204,7 @@ class TodoServiceShould {
     void getTodo() {
         // GIVEN
         UUID uuid = UUID.randomUUID();
-        TodoEntity todo1 = new TodoEntity("title1", false, 1);
+        TodoEntity todo1 = new TodoEntity("title1", false, 1L);
         todo1.setId(uuid);
         Todo expectedResult = new Todo(todo1.getId(), todo1.getTitle(), todo1.isCompleted(), todo1.getOrder());
 
@@ -137,7 +223,7 @@ class TodoServiceShould {
     void getTodoThrowNotFound() {
         // GIVEN
         UUID uuid = UUID.randomUUID();
-        TodoEntity todo1 = new TodoEntity("title1", false, 1);
+        TodoEntity todo1 = new TodoEntity("title1", false, 1L);
         todo1.setId(uuid);
 
         when(todoRepository.findById(uuid)).thenReturn(Optional.empty());
@@ -151,28 +237,72 @@ class TodoServiceShould {
     }
 
     @Test
-    @DisplayName("return an updated Todo")
+    @DisplayName("serve a todo read before from the cache")
+    void getCachedTodo() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        TodoEntity todo1 = new TodoEntity("title1", false, 1L);
+        todo1.setId(uuid);
+
+        when(todoRepository.findById(uuid)).thenReturn(Optional.of(todo1));
+        todoService.getTodo(uuid);
+
+        // WHEN
+        Todo result = todoService.getTodo(uuid);
+
+        // THEN
+        verify(todoRepository, times(1)).findById(uuid);
+        assertEquals("title1", result.getTitle());
+    }
+
+    @Test
+    @DisplayName("read a todo again once it was updated, patched or deleted")
+    void getTodoAfterWrites() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        TodoEntity todo1 = new TodoEntity("title1", false, 1L);
+        todo1.setId(uuid);
+
+        when(todoRepository.findById(uuid)).thenReturn(Optional.of(todo1));
+        when(todoRepository.updateTodo(uuid, "test", true, 2L)).thenReturn(1);
+        when(todoRepository.findVersionById(uuid)).thenReturn(Optional.of(1L));
+        when(todoRepository.saveAndFlush(todo1)).thenReturn(todo1);
+        when(todoRepository.deleteTodo(uuid)).thenReturn(1);
+
+        // WHEN
+        todoService.getTodo(uuid);
+        todoService.updateTodo(uuid, new TodoUpdateBody("test", true, 2), Optional.empty());
+        todoService.getTodo(uuid);
+        todoService.patchTodo(uuid, new TodoPartialUpdateBody(null, false, null), Optional.empty());
+        todoService.getTodo(uuid);
+        todoService.deleteTodos(Optional.of(true));
+        todoService.getTodo(uuid);
+        todoService.deleteTodo(uuid);
+        todoService.getTodo(uuid);
+
+        // THEN
+        // four reads through the cache and the read of the patch
+        verify(todoRepository, times(6)).findById(uuid);
+    }
+
+    @Test
+    @DisplayName("return an updated Todo with the version the database gave it")
     void updateTodo() {
         // GIVEN
         UUID uuid = UUID.randomUUID();
         TodoUpdateBody todoUpdateBody = new TodoUpdateBody("test", true, 2);
-        TodoEntity todoFoundById = new TodoEntity(uuid, "title1", false, 2);
-        Todo expectedResult = new Todo(uuid, todoUpdateBody.getTitle(), todoUpdateBody.getCompleted(), todoUpdateBody.getOrder().intValue());
-        TodoEntity todoEntitySaved = new TodoEntity(uuid, "test", true, 2);
-
-        when(todoRepository.findById(uuid)).thenReturn(Optional.of(todoFoundById));
-        when(todoRepository.findTodoByOrder(todoUpdateBody.getOrder().intValue(), uuid)).thenReturn(Optional.empty());
-        when(todoRepository.save(any())).thenReturn(todoEntitySaved);
+        Todo expectedResult = new Todo(uuid, todoUpdateBody.getTitle(), todoUpdateBody.getCompleted(), todoUpdateBody.getOrder().longValue(), 1L);
 
-        InOrder inOrder = inOrder(todoRepository);
+        when(todoRepository.updateTodo(uuid, "test", true, 2L)).thenReturn(1);
+        when(todoRepository.findVersionById(uuid)).thenReturn(Optional.of(1L));
 
         // WHEN
-         Todo result = todoService.updateTodo(uuid, todoUpdateBody);
+         Todo result = todoService.updateTodo(uuid, todoUpdateBody, Optional.empty());
 
         // THEN
-        inOrder.verify(todoRepository, times(1)).findById(uuid);
-        inOrder.verify(todoRepository, times(1)).findTodoByOrder(2, uuid);
-        inOrder.verify(todoRepository, times(1)).save(any());
+        verify(todoRepository, times(1)).updateTodo(uuid, "test", true, 2L);
+        verify(todoRepository, times(1)).findVersionById(uuid);
+        verifyNoMoreInteractions(todoRepository);
         assertEquals(expectedResult, result);
     }
 
@@ -182,20 +312,16 @@ class TodoServiceShould {
         // GIVEN
         UUID uuid = UUID.randomUUID();
         TodoUpdateBody todoUpdateBody = new TodoUpdateBody("test", true, 2);
-        TodoEntity todoEntityToSave = new TodoEntity(uuid, "test", true, 2);
-        when(todoRepository.findById(uuid)).thenReturn(Optional.empty());
-        InOrder inOrder = inOrder(todoRepository);
+        when(todoRepository.updateTodo(uuid, "test", true, 2L)).thenReturn(0);
 
         // WHEN
         ResponseStatusException thrown = assertThrows( ResponseStatusException.class, () ->
-                todoService.updateTodo(uuid, todoUpdateBody));
+                todoService.updateTodo(uuid, todoUpdateBody, Optional.empty()));
 
         // THEN
         assertEquals(HttpStatus.NOT_FOUND, thrown.getStatus());
-        inOrder.verify(todoRepository, times(1)).findById(uuid);
-        inOrder.verify(todoRepository, times(0)).findTodoByOrder(2, uuid);
-        inOrder.verify(todoRepository, times(0)).save(todoEntityToSave);
-        inOrder.verifyNoMoreInteractions();
+        verify(todoRepository, times(1)).updateTodo(uuid, "test", true, 2L);
+        verifyNoMoreInteractions(todoRepository);
     }
 
     @Test
@@ -204,46 +330,50 @@ class TodoServiceShould {
         // GIVEN
         UUID uuid = UUID.randomUUID();
         TodoUpdateBody todoUpdateBody = new TodoUpdateBody("test", true, 2);
-        TodoEntity todoEntityToSave = new TodoEntity(uuid, "test", true, 2);
-        TodoEntity todoFoundById = new TodoEntity(uuid, "title1", false, 1);
-        TodoEntity todoEntityFoundByOrder = new TodoEntity(uuid, "title4", true, 2);
-        when(todoRepository.findById(uuid)).thenReturn(Optional.of(todoFoundById));
-        when(todoRepository.findTodoByOrder(2, uuid)).thenReturn(Optional.of(todoEntityFoundByOrder));
-        InOrder inOrder = inOrder(todoRepository);
+        when(todoRepository.updateTodo(uuid, "test", true, 2L)).thenThrow(rankConflict());
 
         // WHEN
         ResponseStatusException thrown = assertThrows( ResponseStatusException.class, () ->
-                todoService.updateTodo(uuid, todoUpdateBody));
+                todoService.updateTodo(uuid, todoUpdateBody, Optional.empty()));
 
         // THEN
         assertEquals(HttpStatus.CONFLICT, thrown.getStatus());
-        inOrder.verify(todoRepository, times(1)).findById(uuid);
-        inOrder.verify(todoRepository, times(1)).findTodoByOrder(2, uuid);
-        inOrder.verify(todoRepository, times(0)).save(todoEntityToSave);
+        verify(todoRepository, times(1)).updateTodo(uuid, "test", true, 2L);
+    }
+
+    @Test
+    @DisplayName("rethrow integrity violations that are not rank conflicts")
+    void notUpdateTodoAndRethrowOtherViolations() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        TodoUpdateBody todoUpdateBody = new TodoUpdateBody("test", true, 2);
+        when(todoRepository.updateTodo(any(), any(), any(), any())).thenThrow(new DataIntegrityViolationException("NULL not allowed for column \"TITLE\""));
+
+        // WHEN
+        assertThrows(DataIntegrityViolationException.class, () -> todoService.updateTodo(uuid, todoUpdateBody, Optional.empty()));
     }
+
     @Test
     @DisplayName("return a partially updated Todo")
     void partiallyUpdateTodo() {
         // GIVEN
         UUID uuid = UUID.randomUUID();
         TodoPartialUpdateBody requestBody = new TodoPartialUpdateBody("Title changed", true, 2);
-        TodoEntity todoFoundById = new TodoEntity(uuid, "Title to change", false, 1);
-        Todo expectedResult = new Todo(uuid, "Title changed", true, 2);
-        TodoEntity todoEntitySaved = new TodoEntity(uuid, "Title changed", true, 2);
+        TodoEntity todoFoundById = new TodoEntity(uuid, "Title to change", false, 1L);
+        Todo expectedResult = new Todo(uuid, "Title changed", true, 2L);
+        TodoEntity todoEntitySaved = new TodoEntity(uuid, "Title changed", true, 2L);
 
         when(todoRepository.findById(uuid)).thenReturn(Optional.of(todoFoundById));
-        when(todoRepository.findTodoByOrder(2, uuid)).thenReturn(Optional.empty());
-        when(todoRepository.save(todoEntitySaved)).thenReturn(todoEntitySaved);
+        when(todoRepository.saveAndFlush(todoEntitySaved)).thenReturn(todoEntitySaved);
 
         InOrder inOrder = inOrder(todoRepository);
 
         // WHEN
-        Todo result = todoService.patchTodo(uuid, requestBody);
+        Todo result = todoService.patchTodo(uuid, requestBody, Optional.empty());
 
         // THEN
         inOrder.verify(todoRepository, times(1)).findById(uuid);
-        inOrder.verify(todoRepository, times(1)).findTodoByOrder(2, uuid);
-        inOrder.verify(todoRepository, times(1)).save(todoEntitySaved);
+        inOrder.verify(todoRepository, times(1)).saveAndFlush(todoEntitySaved);
         assertEquals(expectedResult, result);
     }
 
@@ -253,22 +383,21 @@ class TodoServiceShould {
         // GIVEN
         UUID uuid = UUID.randomUUID();
         TodoPartialUpdateBody requestBody = new TodoPartialUpdateBody("Title changed", null, null);
-        TodoEntity todoFoundById = new TodoEntity(uuid, "Title to change", false, 1);
-        Todo expectedResult = new Todo(uuid, "Title changed", false, 1);
-        TodoEntity todoEntitySaved = new TodoEntity(uuid, "Title changed", false, 1);
+        TodoEntity todoFoundById = new TodoEntity(uuid, "Title to change", false, 1L);
+        Todo expectedResult = new Todo(uuid, "Title changed", false, 1L);
+        TodoEntity todoEntitySaved = new TodoEntity(uuid, "Title changed", false, 1L);
 
         when(todoRepository.findById(uuid)).thenReturn(Optional.of(todoFoundById));
-        when(todoRepository.save(todoEntitySaved)).thenReturn(todoEntitySaved);
+        when(todoRepository.saveAndFlush(todoEntitySaved)).thenReturn(todoEntitySaved);
 
         InOrder inOrder = inOrder(todoRepository);
 
         // WHEN
-        Todo result = todoService.patchTodo(uuid, requestBody);
+        Todo result = todoService.patchTodo(uuid, requestBody, Optional.empty());
 
         // THEN
         inOrder.verify(todoRepository, times(1)).findById(uuid);
-        inOrder.verify(todoRepository, times(0)).findTodoByOrder(1, uuid);
-        inOrder.verify(todoRepository, times(1)).save(todoEntitySaved);
+        inOrder.verify(todoRepository, times(1)).saveAndFlush(todoEntitySaved);
         assertEquals(expectedResult, result);
     }
 
@@ -278,22 +407,21 @@ class TodoServiceShould {
         // GIVEN
         UUID uuid = UUID.randomUUID();
         TodoPartialUpdateBody requestBody = new TodoPartialUpdateBody(null, true, null);
-        TodoEntity todoFoundById = new TodoEntity(uuid, "Title", false, 1);
-        Todo expectedResult = new Todo(uuid, "Title", true, 1);
-        TodoEntity todoEntitySaved = new TodoEntity(uuid, "Title", true, 1);
+        TodoEntity todoFoundById = new TodoEntity(uuid, "Title", false, 1L);
+        Todo expectedResult = new Todo(uuid, "Title", true, 1L);
+        TodoEntity todoEntitySaved = new TodoEntity(uuid, "Title", true, 1L);
 
         when(todoRepository.findById(uuid)).thenReturn(Optional.of(todoFoundById));
-        when(todoRepository.save(todoEntitySaved)).thenReturn(todoEntitySaved);
+        when(todoRepository.saveAndFlush(todoEntitySaved)).thenReturn(todoEntitySaved);
 
         InOrder inOrder = inOrder(todoRepository);
 
         // WHEN
-        Todo result = todoService.patchTodo(uuid, requestBody);
+        Todo result = todoService.patchTodo(uuid, requestBody, Optional.empty());
 
         // THEN
         inOrder.verify(todoRepository, times(1)).findById(uuid);
-        inOrder.verify(todoRepository, times(0)).findTodoByOrder(1, uuid);
-        inOrder.verify(todoRepository, times(1)).save(todoEntitySaved);
+        inOrder.verify(todoRepository, times(1)).saveAndFlush(todoEntitySaved);
         assertEquals(expectedResult, result);
     }
 
@@ -303,22 +431,21 @@ class TodoServiceShould {
         // GIVEN
         UUID uuid = UUID.randomUUID();
         TodoPartialUpdateBody requestBody = new TodoPartialUpdateBody(null, null, 2);
-        TodoEntity todoFoundById = new TodoEntity(uuid, "Title", true, 1);
-        Todo expectedResult = new Todo(uuid, "Title", true, 2);
-        TodoEntity todoEntitySaved = new TodoEntity(uuid, "Title", true, 2);
+        TodoEntity todoFoundById = new TodoEntity(uuid, "Title", true, 1L);
+        Todo expectedResult = new Todo(uuid, "Title", true, 2L);
+        TodoEntity todoEntitySaved = new TodoEntity(uuid, "Title", true, 2L);
 
         when(todoRepository.findById(uuid)).thenReturn(Optional.of(todoFoundById));
-        when(todoRepository.save(todoEntitySaved)).thenReturn(todoEntitySaved);
+        when(todoRepository.saveAndFlush(todoEntitySaved)).thenReturn(todoEntitySaved);
 
         InOrder inOrder = inOrder(todoRepository);
 
         // WHEN
-        Todo result = todoService.patchTodo(uuid, requestBody);
+        Todo result = todoService.patchTodo(uuid, requestBody, Optional.empty());
 
         // THEN
         inOrder.verify(todoRepository, times(1)).findById(uuid);
-        inOrder.verify(todoRepository, times(1)).findTodoByOrder(2, uuid);
-        inOrder.verify(todoRepository, times(1)).save(todoEntitySaved);
+        inOrder.verify(todoRepository, times(1)).saveAndFlush(todoEntitySaved);
         assertEquals(expectedResult, result);
     }
 
@@ -335,13 +462,12 @@ class TodoServiceShould {
 
         // WHEN
         ResponseStatusException thrown = assertThrows( ResponseStatusException.class, () ->
-                todoService.patchTodo(uuid, requestBody));
+                todoService.patchTodo(uuid, requestBody, Optional.empty()));
 
         // THEN
         assertEquals(HttpStatus.NOT_FOUND, thrown.getStatus());
         inOrder.verify(todoRepository, times(1)).findById(uuid);
-        inOrder.verify(todoRepository, times(0)).findTodoByOrder(1, uuid);
-        inOrder.verify(todoRepository, times(0)).save(any());
+        inOrder.verify(todoRepository, times(0)).saveAndFlush(any());
     }
 
     @Test
@@ -352,23 +478,87 @@ class TodoServiceShould {
         TodoPartialUpdateBody requestBody = new TodoPartialUpdateBody("test", true, 1);
 
 
-        TodoEntity todoFoundById = new TodoEntity(uuid, "test", false, 1);
-        TodoEntity todoEntityToUpdateUpdated = new TodoEntity(uuid, "save Gotham", true, 1);
-        TodoEntity todoEntityFoundByOrder = new TodoEntity(uuid, "title4", true,  1);
+        TodoEntity todoFoundById = new TodoEntity(uuid, "test", false, 1L);
+        TodoEntity todoEntityToUpdateUpdated = new TodoEntity(uuid, "test", true, 1L);
 
         when(todoRepository.findById(uuid)).thenReturn(Optional.of(todoFoundById));
-        when(todoRepository.findTodoByOrder(1,  uuid)).thenReturn(Optional.of(todoEntityFoundByOrder));
+        when(todoRepository.saveAndFlush(todoEntityToUpdateUpdated)).thenThrow(rankConflict());
         InOrder inOrder = inOrder(todoRepository);
 
         // WHEN
         ResponseStatusException thrown = assertThrows( ResponseStatusException.class, () ->
-                todoService.patchTodo(uuid, requestBody));
+                todoService.patchTodo(uuid, requestBody, Optional.empty()));
 
         // THEN
         assertEquals(HttpStatus.CONFLICT, thrown.getStatus());
         inOrder.verify(todoRepository, times(1)).findById(uuid);
-        inOrder.verify(todoRepository, times(1)).findTodoByOrder(1, uuid);
-        inOrder.verify(todoRepository, times(0)).save(todoEntityToUpdateUpdated);
+        inOrder.verify(todoRepository, times(1)).saveAndFlush(todoEntityToUpdateUpdated);
+    }
+
+    @Test
+    @DisplayName("update a todo only when it still has an expected version and return the version the database gave it")
+    void updateTodoWithExpectedVersion() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        when(todoRepository.updateTodo(uuid, Set.of(3L), "test", true, 2L)).thenReturn(1);
+        when(todoRepository.findVersionById(uuid)).thenReturn(Optional.of(4L));
+
+        // WHEN
+        Todo result = todoService.updateTodo(uuid, new TodoUpdateBody("test", true, 2), Optional.of(Set.of(3L)));
+
+        // THEN
+        assertEquals(4L, result.getVersion());
+        verify(todoRepository, never()).updateTodo(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("throw PRECONDITION FAILED when the todo to update has another version")
+    void notUpdateTodoWithOtherVersion() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        when(todoRepository.updateTodo(uuid, Set.of(3L), "test", true, 2L)).thenReturn(0);
+
+        // WHEN
+        ResponseStatusException thrown = assertThrows(ResponseStatusException.class, () ->
+                todoService.updateTodo(uuid, new TodoUpdateBody("test", true, 2), Optional.of(Set.of(3L))));
+
+        // THEN
+        assertEquals(HttpStatus.PRECONDITION_FAILED, thrown.getStatus());
+    }
+
+    @Test
+    @DisplayName("throw PRECONDITION FAILED when the todo to patch has another version")
+    void notPartiallyUpdateTodoWithOtherVersion() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        TodoEntity todoFoundById = new TodoEntity(uuid, "test", false, 1L);
+        todoFoundById.setVersion(4L);
+        when(todoRepository.findById(uuid)).thenReturn(Optional.of(todoFoundById));
+
+        // WHEN
+        ResponseStatusException thrown = assertThrows(ResponseStatusException.class, () ->
+                todoService.patchTodo(uuid, new TodoPartialUpdateBody(null, true, null), Optional.of(Set.of(3L))));
+
+        // THEN
+        assertEquals(HttpStatus.PRECONDITION_FAILED, thrown.getStatus());
+        verify(todoRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    @DisplayName("throw CONFLICT when the todo to patch was written since it was read")
+    void notPartiallyUpdateTodoWrittenConcurrently() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        TodoEntity todoFoundById = new TodoEntity(uuid, "test", false, 1L);
+        when(todoRepository.findById(uuid)).thenReturn(Optional.of(todoFoundById));
+        when(todoRepository.saveAndFlush(todoFoundById)).thenThrow(new ObjectOptimisticLockingFailureException(TodoEntity.class, uuid));
+
+        // WHEN
+        ResponseStatusException thrown = assertThrows(ResponseStatusException.class, () ->
+                todoService.patchTodo(uuid, new TodoPartialUpdateBody(null, true, null), Optional.empty()));
+
+        // THEN
+        assertEquals(HttpStatus.CONFLICT, thrown.getStatus());
     }
 
     @Test
@@ -376,13 +566,14 @@ class TodoServiceShould {
     void deleteTodoById() {
         // GIVEN
         UUID uuid = UUID.randomUUID();
-        when(todoRepository.existsById(uuid)).thenReturn(true);
+        when(todoRepository.deleteTodo(uuid)).thenReturn(1);
 
         // WHEN
         todoService.deleteTodo(uuid);
 
         // THEN
-        verify(todoRepository, times(1)).deleteById(uuid);
+        verify(todoRepository, times(1)).deleteTodo(uuid);
+        verifyNoMoreInteractions(todoRepository);
     }
 
     @Test
@@ -390,7 +581,7 @@ class TodoServiceShould {
     void deleteTodoThrowNotFoundException() {
         // GIVEN
         UUID uuid = UUID.randomUUID();
-        when(todoRepository.existsById(uuid)).thenReturn(false);
+        when(todoRepository.deleteTodo(uuid)).thenReturn(0);
 
         // WHEN
 
@@ -400,7 +591,177 @@ class TodoServiceShould {
 
         // THEN
         assertEquals(HttpStatus.NOT_FOUND, thrown.getStatus());
-        verify(todoRepository, times(0)).deleteById(uuid);
+        verify(todoRepository, times(1)).deleteTodo(uuid);
         verifyNoMoreInteractions(todoRepository);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("retry a create with the next rank when the allocated rank is already taken")
+    void createTodoRetryOnRankConflict() {
+        // GIVEN
+        TodoEntity todoEntity = new TodoEntity(UUID.randomUUID(), "title", false, 2L);
+        when(todoRankAllocator.nextRank()).thenReturn(1L, 2L);
+        when(todoRepository.saveAndFlush(new TodoEntity("title", false, 1L))).thenThrow(rankConflict());
+        when(todoRepository.saveAndFlush(new TodoEntity("title", false, 2L))).thenReturn(todoEntity);
+
+        // WHEN
+        Todo result = todoService.createTodo("title");
+
+        // THEN
+        assertEquals(2, result.getOrder());
+    }
+
+    @Test
+    @DisplayName("move a todo to the middle of the gap between its new neighbours with a single write")
+    void moveTodo() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        TodoEntity todoEntity = new TodoEntity(uuid, "moved", false, 5 * TodoRankAllocator.RANK_GAP);
+        todoEntity.setVersion(3L);
+        TodoEntity after = new TodoEntity(UUID.randomUUID(), "after", false, TodoRankAllocator.RANK_GAP);
+        TodoEntity before = new TodoEntity(UUID.randomUUID(), "before", false, 2 * TodoRankAllocator.RANK_GAP);
+        when(todoRepository.findById(uuid)).thenReturn(Optional.of(todoEntity));
+        when(todoRepository.findTodosFromOrderOf(after.getId(), uuid, PageRequest.of(0, 2))).thenReturn(List.of(after, before));
+        long order = TodoRankAllocator.RANK_GAP + TodoRankAllocator.RANK_GAP / 2;
+        when(todoRepository.updateOrder(uuid, 3L, order)).thenReturn(1);
+
+        // WHEN
+        Todo result = todoService.moveTodo(uuid, new TodoMoveBody(before.getId(), after.getId()));
+
+        // THEN
+        assertEquals(new Todo(uuid, "moved", false, order, 4L), result);
+        verify(todoRepository, times(1)).updateOrder(uuid, 3L, order);
+        verifyNoInteractions(todoRankRebalancer);
+    }
+
+    @Test
+    @DisplayName("move a todo before the first one a gap below it")
+    void moveTodoFirst() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        TodoEntity todoEntity = new TodoEntity(uuid, "moved", false, 5 * TodoRankAllocator.RANK_GAP);
+        todoEntity.setVersion(0L);
+        TodoEntity first = new TodoEntity(UUID.randomUUID(), "first", false, 3 * TodoRankAllocator.RANK_GAP);
+        when(todoRepository.findById(uuid)).thenReturn(Optional.of(todoEntity));
+        when(todoRepository.findTodosUpToOrderOf(first.getId(), uuid, PageRequest.of(0, 2))).thenReturn(List.of(first));
+        when(todoRepository.updateOrder(uuid, 0L, 2 * TodoRankAllocator.RANK_GAP + 1)).thenReturn(1);
+
+        // WHEN
+        Todo result = todoService.moveTodo(uuid, new TodoMoveBody(first.getId(), null));
+
+        // THEN
+        // next to the middle of the gap, which the allocator may hand out
+        assertEquals(2 * TodoRankAllocator.RANK_GAP + 1, result.getOrder());
+    }
+
+    @Test
+    @DisplayName("move a todo after the last one to the next rank a new todo would take")
+    void moveTodoLast() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        TodoEntity todoEntity = new TodoEntity(uuid, "moved", false, TodoRankAllocator.RANK_GAP);
+        todoEntity.setVersion(0L);
+        TodoEntity last = new TodoEntity(UUID.randomUUID(), "last", false, 3 * TodoRankAllocator.RANK_GAP);
+        when(todoRepository.findById(uuid)).thenReturn(Optional.of(todoEntity));
+        when(todoRepository.findTodosFromOrderOf(last.getId(), uuid, PageRequest.of(0, 2))).thenReturn(List.of(last));
+        when(todoRankAllocator.nextRank()).thenReturn(7 * TodoRankAllocator.RANK_GAP);
+        when(todoRepository.updateOrder(uuid, 0L, 7 * TodoRankAllocator.RANK_GAP)).thenReturn(1);
+
+        // WHEN
+        Todo result = todoService.moveTodo(uuid, new TodoMoveBody(null, last.getId()));
+
+        // THEN
+        assertEquals(7 * TodoRankAllocator.RANK_GAP, result.getOrder());
+    }
+
+    @Test
+    @DisplayName("move a todo after a last one ranked past the allocator off the ranks it hands out")
+    void moveTodoLastPastAllocator() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        TodoEntity todoEntity = new TodoEntity(uuid, "moved", false, TodoRankAllocator.RANK_GAP);
+        todoEntity.setVersion(0L);
+        TodoEntity last = new TodoEntity(UUID.randomUUID(), "last", false, 9 * TodoRankAllocator.RANK_GAP);
+        when(todoRepository.findById(uuid)).thenReturn(Optional.of(todoEntity));
+        when(todoRepository.findTodosFromOrderOf(last.getId(), uuid, PageRequest.of(0, 2))).thenReturn(List.of(last));
+        when(todoRankAllocator.nextRank()).thenReturn(7 * TodoRankAllocator.RANK_GAP);
+        when(todoRepository.updateOrder(uuid, 0L, 10 * TodoRankAllocator.RANK_GAP + 1)).thenReturn(1);
+
+        // WHEN
+        Todo result = todoService.moveTodo(uuid, new TodoMoveBody(null, last.getId()));
+
+        // THEN
+        assertEquals(10 * TodoRankAllocator.RANK_GAP + 1, result.getOrder());
+    }
+
+    @Test
+    @DisplayName("respace the todos after the target before moving a todo into a gap with no room left")
+    void moveTodoIntoExhaustedGap() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        TodoEntity todoEntity = new TodoEntity(uuid, "moved", false, 5 * TodoRankAllocator.RANK_GAP);
+        todoEntity.setVersion(0L);
+        UUID afterId = UUID.randomUUID();
+        UUID beforeId = UUID.randomUUID();
+        when(todoRepository.findById(uuid)).thenReturn(Optional.of(todoEntity));
+        when(todoRepository.findTodosFromOrderOf(afterId, uuid, PageRequest.of(0, 2))).thenReturn(
+                List.of(new TodoEntity(afterId, "after", false, 10L), new TodoEntity(beforeId, "before", false, 11L)),
+                List.of(new TodoEntity(afterId, "after", false, 10L), new TodoEntity(beforeId, "before", false, 30L)));
+        when(todoRepository.updateOrder(uuid, 0L, 20L)).thenReturn(1);
+
+        // WHEN
+        Todo result = todoService.moveTodo(uuid, new TodoMoveBody(beforeId, afterId));
+
+        // THEN
+        assertEquals(20L, result.getOrder());
+        InOrder inOrder = inOrder(todoRankRebalancer, todoRepository);
+        inOrder.verify(todoRankRebalancer).respaceAfter(10L);
+        inOrder.verify(todoRepository).updateOrder(uuid, 0L, 20L);
+        verify(todoRankRebalancer, never()).rebalance();
+        // the rest of the list, and the gaps 10 apart from its neighbours, are to be respaced later
+        verify(todoRankRebalancer, times(2)).requestRebalance();
+    }
+
+    @Test
+    @DisplayName("throw BAD REQUEST when a move has no anchor or is anchored to the todo itself")
+    void rejectMoveWithoutAnchor() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+
+        // WHEN
+        ResponseStatusException withoutAnchor = assertThrows(ResponseStatusException.class, () ->
+                todoService.moveTodo(uuid, new TodoMoveBody(null, null)));
+        ResponseStatusException anchoredToItself = assertThrows(ResponseStatusException.class, () ->
+                todoService.moveTodo(uuid, new TodoMoveBody(null, uuid)));
+
+        // THEN
+        assertEquals(HttpStatus.BAD_REQUEST, withoutAnchor.getStatus());
+        assertEquals(HttpStatus.BAD_REQUEST, anchoredToItself.getStatus());
+        verifyNoInteractions(todoRepository);
+    }
+
+    @Test
+    @DisplayName("throw CONFLICT when the anchors of a move are no longer next to each other")
+    void rejectMoveBetweenSeparatedAnchors() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        TodoEntity todoEntity = new TodoEntity(uuid, "moved", false, 5 * TodoRankAllocator.RANK_GAP);
+        TodoEntity after = new TodoEntity(UUID.randomUUID(), "after", false, TodoRankAllocator.RANK_GAP);
+        TodoEntity between = new TodoEntity(UUID.randomUUID(), "between", false, 2 * TodoRankAllocator.RANK_GAP);
+        when(todoRepository.findById(uuid)).thenReturn(Optional.of(todoEntity));
+        when(todoRepository.findTodosFromOrderOf(after.getId(), uuid, PageRequest.of(0, 2))).thenReturn(List.of(after, between));
+
+        // WHEN
+        ResponseStatusException thrown = assertThrows(ResponseStatusException.class, () ->
+                todoService.moveTodo(uuid, new TodoMoveBody(UUID.randomUUID(), after.getId())));
+
+        // THEN
+        assertEquals(HttpStatus.CONFLICT, thrown.getStatus());
+        verify(todoRepository, never()).updateOrder(any(), any(), any());
+    }
+
+    private static DataIntegrityViolationException rankConflict() {
+        return new DataIntegrityViolationException("could not execute statement",
+                new RuntimeException("Unique index or primary key violation: \"PUBLIC.UK_TODO_RANK_INDEX_2 ON PUBLIC.TODO(RANK) VALUES 2\""));
+    }
+}
@@ -0,0 +1,203 @@
+package io.souvant.todobackend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.souvant.todobackend.controller.TodoListSnapshots;
+import io.souvant.todobackend.controller.model.response.TodoListSnapshot;
+import io.souvant.todobackend.repository.TodoRepository;
+import io.souvant.todobackend.service.model.Todo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TodoWriteBehindShould {
+
+    private static final Duration NO_SCHEDULED_FLUSH = Duration.ofHours(1);
+
+    @Mock
+    TodoRepository todoRepository;
+
+    TodoCache todoCache;
+    TodoListVersion todoListVersion;
+    TodoWriteBehind todoWriteBehind;
+
+    @BeforeEach
+    void setUp() {
+        todoCache = new TodoCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        todoListVersion = new TodoListVersion();
+        todoWriteBehind = writeBehind(2, TodoWriteBehind.Durability.BUFFERED);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        todoWriteBehind.shutdown();
+    }
+
+    @Test
+    @DisplayName("collapse the toggles of a period into one update per completed value")
+    void collapseToggles() {
+        // GIVEN
+        Todo first = todo();
+        Todo second = todo();
+        todoWriteBehind.toggle(first, true);
+        todoWriteBehind.toggle(first, false);
+        todoWriteBehind.toggle(first, true);
+        todoWriteBehind.toggle(second, false);
+
+        // WHEN
+        todoWriteBehind.flush();
+        todoWriteBehind.flush();
+
+        // THEN
+        verify(todoRepository).updateCompleted(List.of(first.getId()), true);
+        verify(todoRepository).updateCompleted(List.of(second.getId()), false);
+        verifyNoMoreInteractions(todoRepository);
+        assertEquals(first, todoWriteBehind.apply(first));
+    }
+
+    @Test
+    @DisplayName("read a todo with its pending completion and no version")
+    void applyPendingToggle() {
+        // GIVEN
+        Todo todo = todo();
+
+        // WHEN
+        Todo toggled = todoWriteBehind.toggle(todo, true);
+
+        // THEN
+        Todo expected = new Todo(todo.getId(), "title", true, 1L, null);
+        assertEquals(expected, toggled);
+        assertNull(toggled.getVersion());
+        assertEquals(expected, todoWriteBehind.apply(todo));
+        assertNull(todoWriteBehind.apply(todo).getVersion());
+    }
+
+    @Test
+    @DisplayName("leave the toggle to the caller when the buffer is full or the mode is off")
+    void refuseToggle() throws Exception {
+        // GIVEN
+        Todo first = todo();
+        todoWriteBehind.toggle(first, true);
+        todoWriteBehind.toggle(todo(), true);
+        TodoWriteBehind disabledWriteBehind = new TodoWriteBehind(todoRepository, todoCache, todoListVersion, false, NO_SCHEDULED_FLUSH, 2, TodoWriteBehind.Durability.BUFFERED);
+
+        // WHEN
+        Todo refused = todoWriteBehind.toggle(todo(), true);
+        Todo retoggled = todoWriteBehind.toggle(first, false);
+
+        // THEN
+        assertNull(refused);
+        assertNotNull(retoggled);
+        assertNull(disabledWriteBehind.toggle(todo(), true));
+        disabledWriteBehind.shutdown();
+    }
+
+    @Test
+    @DisplayName("keep the toggles a flush could not write for the next flush")
+    void keepTogglesOnFailedFlush() {
+        // GIVEN
+        Todo todo = todo();
+        todoWriteBehind.toggle(todo, true);
+        when(todoRepository.updateCompleted(any(), anyBoolean())).thenThrow(new QueryTimeoutException("timeout")).thenReturn(1);
+
+        // WHEN
+        assertThrows(QueryTimeoutException.class, todoWriteBehind::flush);
+        Todo pending = todoWriteBehind.apply(todo);
+        todoWriteBehind.flush();
+
+        // THEN
+        assertTrue(pending.getCompleted());
+        assertEquals(todo, todoWriteBehind.apply(todo));
+        verify(todoRepository, times(2)).updateCompleted(List.of(todo.getId()), true);
+    }
+
+    @Test
+    @DisplayName("write the pending toggle of a todo before a synchronous write")
+    void flushTodo() {
+        // GIVEN
+        Todo todo = todo();
+        Todo other = todo();
+        todoWriteBehind.toggle(todo, true);
+        todoWriteBehind.toggle(other, true);
+
+        // WHEN
+        todoWriteBehind.flush(Set.of(todo.getId()));
+
+        // THEN
+        verify(todoRepository).updateCompleted(List.of(todo.getId()), true);
+        assertEquals(todo, todoWriteBehind.apply(todo));
+        assertTrue(todoWriteBehind.apply(other).getCompleted());
+    }
+
+    @Test
+    @DisplayName("answer a toggle only once written with the flushed durability")
+    void awaitFlush() throws Exception {
+        // GIVEN
+        todoWriteBehind.shutdown();
+        todoWriteBehind = writeBehind(2, TodoWriteBehind.Durability.FLUSHED);
+        Todo todo = todo();
+
+        // WHEN
+        CompletableFuture<Todo> toggled = CompletableFuture.supplyAsync(() -> todoWriteBehind.toggle(todo, true));
+        while (!toggled.isDone()) {
+            todoWriteBehind.flush();
+            Thread.sleep(10);
+        }
+
+        // THEN
+        assertTrue(toggled.get(1, TimeUnit.SECONDS).getCompleted());
+        verify(todoRepository).updateCompleted(List.of(todo.getId()), true);
+    }
+
+    @Test
+    @DisplayName("outdate a snapshot that read a todo before a flush and its toggles after it")
+    void outdateSnapshotRacingFlush() {
+        // GIVEN
+        TodoListSnapshots todoListSnapshots = new TodoListSnapshots(10, false);
+        Todo todo = todo();
+        todoWriteBehind.toggle(todo, true);
+
+        // WHEN
+        TodoListSnapshot raced = todoListSnapshots.get("todos", todoListVersion::current, version -> {
+            // the row as read before the flush commits, the pending toggle looked up once it is dropped
+            Todo read = todo;
+            todoWriteBehind.flush();
+            return snapshot(version, todoWriteBehind.apply(read));
+        });
+        TodoListSnapshot rebuilt = todoListSnapshots.get("todos", todoListVersion::current, version ->
+                snapshot(version, todoWriteBehind.apply(new Todo(todo.getId(), "title", true, 1L, 1L))));
+
+        // THEN
+        assertEquals("false", new String(raced.getBody()));
+        assertEquals("true", new String(rebuilt.getBody()));
+        assertNotEquals(raced.getVersion(), rebuilt.getVersion());
+    }
+
+    private static TodoListSnapshot snapshot(long version, Todo todo) {
+        return new TodoListSnapshot(version, String.valueOf(todo.getCompleted()).getBytes(), null, null);
+    }
+
+    private TodoWriteBehind writeBehind(int maxPending, TodoWriteBehind.Durability durability) {
+        return new TodoWriteBehind(todoRepository, todoCache, todoListVersion, true, NO_SCHEDULED_FLUSH, maxPending, durability);
+    }
+
+    private static Todo todo() {
+        return new Todo(UUID.randomUUID(), "title", false, 1L, 0L);
+    }
+}
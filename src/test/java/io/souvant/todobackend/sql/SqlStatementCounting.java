@@ -0,0 +1,70 @@
+package io.souvant.todobackend.sql;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+import java.io.IOException;
+
+/**
+ * Records in a {@link SqlStatementRecorder} every statement sent to the database during an HTTP request, by
+ * wrapping the datasource in a proxy and each request in a filter naming it after the matched endpoint.
+ */
+@TestConfiguration
+public class SqlStatementCounting {
+
+    @Bean
+    public SqlStatementRecorder sqlStatementRecorder() {
+        return new SqlStatementRecorder();
+    }
+
+    @Bean
+    public static BeanPostProcessor sqlStatementRecordingDataSource(ObjectProvider<SqlStatementRecorder> sqlStatementRecorder) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource) || bean instanceof ProxyDataSource) {
+                    return bean;
+                }
+                return ProxyDataSourceBuilder.create(beanName, (DataSource) bean)
+                        .afterQuery((execution, queries) -> {
+                            // one execution is one round trip, a batch included
+                            String statement = queries.get(0).getQuery();
+                            sqlStatementRecorder.getObject().record(execution.isBatch() ? statement + " [batch of " + execution.getBatchSize() + "]" : statement);
+                        })
+                        .build();
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<OncePerRequestFilter> sqlStatementRecordingFilter(SqlStatementRecorder sqlStatementRecorder) {
+        FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+                    throws ServletException, IOException {
+                sqlStatementRecorder.startRequest();
+                try {
+                    filterChain.doFilter(request, response);
+                } finally {
+                    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                    sqlStatementRecorder.finishRequest(request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI()));
+                }
+            }
+        });
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -0,0 +1,90 @@
+package io.souvant.todobackend.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The SQL statements run by each HTTP request, recorded by {@link SqlStatementCounting}, and the most each
+ * endpoint may run: a change adding round trips to an endpoint fails the tests checking
+ * {@link #requestsOverBudget()}.
+ */
+public class SqlStatementRecorder {
+
+    // on H2, a JDBC batch counting as one statement; the endpoints not listed are not checked
+    private static final Map<String, Integer> BUDGETS = Map.of(
+            // the insert, and the next rank block once every 50 todos
+            "POST /todos", 2,
+            "GET /todos", 1,
+            "GET /todos/{id}", 1,
+            // the versioned update, then the version it wrote
+            "PUT /todos/{id}", 2,
+            // the read, then the versioned update
+            "PATCH /todos/{id}", 2,
+            // the read, the neighbours of the anchor, then the versioned update of the todo alone
+            "POST /todos/{id}/move", 3,
+            "DELETE /todos/{id}", 1,
+            "DELETE /todos", 1
+    );
+
+    private final ThreadLocal<List<String>> currentStatements = new ThreadLocal<>();
+    private final List<RecordedRequest> requests = Collections.synchronizedList(new ArrayList<>());
+
+    void startRequest() {
+        currentStatements.set(new ArrayList<>());
+    }
+
+    void finishRequest(String endpoint) {
+        requests.add(new RecordedRequest(endpoint, currentStatements.get()));
+        currentStatements.remove();
+    }
+
+    // statements run outside a request, by the tests themselves, are not recorded
+    void record(String statement) {
+        List<String> statements = currentStatements.get();
+        if (statements != null) {
+            statements.add(statement);
+        }
+    }
+
+    public void clear() {
+        requests.clear();
+    }
+
+    /**
+     * Returns the statements of the last request to the endpoint, "METHOD /path/{variable}".
+     */
+    public List<String> lastStatements(String endpoint) {
+        synchronized (requests) {
+            for (int i = requests.size() - 1; i >= 0; i--) {
+                if (requests.get(i).endpoint.equals(endpoint)) {
+                    return requests.get(i).statements;
+                }
+            }
+        }
+        throw new IllegalStateException("No request to " + endpoint + " was recorded");
+    }
+
+    public List<String> requestsOverBudget() {
+        synchronized (requests) {
+            return requests.stream()
+                    .filter(request -> request.statements.size() > BUDGETS.getOrDefault(request.endpoint, Integer.MAX_VALUE))
+                    .map(request -> request.endpoint + " ran " + request.statements.size() + " statements, at most "
+                            + BUDGETS.get(request.endpoint) + " expected: " + request.statements)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static final class RecordedRequest {
+
+        private final String endpoint;
+        private final List<String> statements;
+
+        private RecordedRequest(String endpoint, List<String> statements) {
+            this.endpoint = endpoint;
+            this.statements = statements;
+        }
+    }
+}
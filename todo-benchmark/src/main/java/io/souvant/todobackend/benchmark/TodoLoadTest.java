@@ -0,0 +1,268 @@
+package io.souvant.todobackend.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.souvant.todobackend.TodoBackEndApplication;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Boots the application on a random port, seeds it with todos through /todos/_bulk, then sends a mix of
+ * requests at a fixed arrival rate whatever the response times. Each latency runs from the time its request
+ * was due, not the time it was sent, so a stalled server is charged for the requests queued behind it
+ * (no coordinated omission). Reports HdrHistogram percentiles per operation, and writes the distribution of
+ * every request to target/load-&lt;mix&gt;.hgrm.
+ * Arguments: --mix=read-heavy|write-heavy|toggle-storm|bulk-delete --rate=&lt;requests/s&gt; --seconds=&lt;n&gt;
+ * --warmup=&lt;seconds&gt; --todos=&lt;n&gt; (default read-heavy 500 60 10 1000), any other is passed to the application,
+ * e.g. --spring.profiles.active=virtual-threads.
+ */
+public class TodoLoadTest {
+
+    private static final int SEED_CHUNK_SIZE = 1_000;
+    private static final int HOT_TODO_COUNT = 10;
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    enum Operation {
+        GET_TODO, LIST_TODOS, CREATE_TODO, RENAME_TODO, TOGGLE_HOT_TODO, COMPLETE_TODO, DELETE_COMPLETED
+    }
+
+    enum Mix {
+        READ_HEAVY(Map.of(Operation.GET_TODO, 80, Operation.LIST_TODOS, 15, Operation.RENAME_TODO, 5)),
+        WRITE_HEAVY(Map.of(Operation.CREATE_TODO, 40, Operation.RENAME_TODO, 40, Operation.GET_TODO, 20)),
+        // every toggle on a few todos, as when a list is shared by many clients
+        TOGGLE_STORM(Map.of(Operation.TOGGLE_HOT_TODO, 90, Operation.GET_TODO, 10)),
+        // the todos deleted are replaced by the ones created, requests on a deleted one answer 404
+        BULK_DELETE(Map.of(Operation.CREATE_TODO, 45, Operation.COMPLETE_TODO, 45, Operation.DELETE_COMPLETED, 10));
+
+        private final Operation[] operations = new Operation[100];
+
+        Mix(Map<Operation, Integer> weights) {
+            int i = 0;
+            for (Map.Entry<Operation, Integer> weight : new EnumMap<>(weights).entrySet()) {
+                for (int j = 0; j < weight.getValue(); j++) {
+                    operations[i++] = weight.getKey();
+                }
+            }
+        }
+
+        Operation next(ThreadLocalRandom random) {
+            return operations[random.nextInt(operations.length)];
+        }
+
+        static Mix parse(String name) {
+            return valueOf(name.toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final Mix mix;
+    private final String todosUrl;
+    private final AtomicReferenceArray<URI> todoUrls;
+
+    TodoLoadTest(Mix mix, String todosUrl, int todoCount) {
+        this.mix = mix;
+        this.todosUrl = todosUrl;
+        this.todoUrls = new AtomicReferenceArray<>(todoCount);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Mix mix = Mix.READ_HEAVY;
+        int rate = 500;
+        int seconds = 60;
+        int warmupSeconds = 10;
+        int todoCount = 1_000;
+        List<String> applicationArguments = new ArrayList<>(List.of("--server.port=0", "--logging.level.root=WARN"));
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--mix=")) {
+                mix = Mix.parse(value);
+            } else if (arg.startsWith("--rate=")) {
+                rate = Integer.parseInt(value);
+            } else if (arg.startsWith("--seconds=")) {
+                seconds = Integer.parseInt(value);
+            } else if (arg.startsWith("--warmup=")) {
+                warmupSeconds = Integer.parseInt(value);
+            } else if (arg.startsWith("--todos=")) {
+                todoCount = Integer.parseInt(value);
+            } else {
+                applicationArguments.add(arg);
+            }
+        }
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(TodoBackEndApplication.class)
+                .run(applicationArguments.toArray(new String[0]))) {
+            String todosUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/todos";
+            TodoLoadTest loadTest = new TodoLoadTest(mix, todosUrl, todoCount);
+            loadTest.seed();
+
+            loadTest.load(rate, warmupSeconds);
+            Results results = loadTest.load(rate, seconds);
+            results.print(System.out, mix, rate, seconds);
+            Path distribution = Path.of("target", "load-" + mix.name().toLowerCase(Locale.ROOT).replace('_', '-') + ".hgrm");
+            Files.createDirectories(distribution.getParent());
+            try (PrintStream output = new PrintStream(Files.newOutputStream(distribution))) {
+                results.all.outputPercentileDistribution(output, 1000.0);
+            }
+        }
+    }
+
+    private void seed() throws Exception {
+        for (int seeded = 0; seeded < todoUrls.length(); ) {
+            StringBuilder operations = new StringBuilder("[");
+            int chunkSize = Math.min(SEED_CHUNK_SIZE, todoUrls.length() - seeded);
+            for (int i = 0; i < chunkSize; i++) {
+                operations.append(i == 0 ? "" : ",").append("{\"op\":\"create\",\"title\":\"todo ").append(seeded + i).append("\"}");
+            }
+            HttpRequest request = HttpRequest.newBuilder(URI.create(todosUrl + "/_bulk"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(operations.append("]").toString()))
+                    .build();
+            for (JsonNode result : OBJECT_MAPPER.readTree(httpClient.send(request, HttpResponse.BodyHandlers.ofString()).body())) {
+                todoUrls.set(seeded++, URI.create(result.get("todo").get("url").asText()));
+            }
+        }
+    }
+
+    private Results load(int rate, int seconds) throws InterruptedException {
+        Results results = new Results();
+        AtomicInteger inFlight = new AtomicInteger();
+        long start = System.nanoTime();
+        long requestCount = (long) rate * seconds;
+        for (long i = 0; i < requestCount; i++) {
+            long dueTime = start + i * TimeUnit.SECONDS.toNanos(1) / rate;
+            long delay = dueTime - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            Operation operation = mix.next(ThreadLocalRandom.current());
+            inFlight.incrementAndGet();
+            httpClient.sendAsync(request(operation), HttpResponse.BodyHandlers.ofString()).whenComplete((response, failure) -> {
+                results.record(operation, dueTime, response, failure);
+                if (failure == null && operation == Operation.CREATE_TODO && response.statusCode() == 201) {
+                    replaceTodoUrl(response.body());
+                }
+                inFlight.decrementAndGet();
+            });
+        }
+        long drainEnd = System.nanoTime() + REQUEST_TIMEOUT.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainEnd) {
+            Thread.sleep(10);
+        }
+        return results;
+    }
+
+    private HttpRequest request(Operation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        URI todoUrl = todoUrls.get(random.nextInt(todoUrls.length()));
+        switch (operation) {
+            case GET_TODO:
+                return HttpRequest.newBuilder(todoUrl).timeout(REQUEST_TIMEOUT).GET().build();
+            case LIST_TODOS:
+                return HttpRequest.newBuilder(URI.create(todosUrl)).timeout(REQUEST_TIMEOUT).GET().build();
+            case CREATE_TODO:
+                return jsonRequest(URI.create(todosUrl), "POST", "{\"title\":\"created\"}");
+            case RENAME_TODO:
+                return jsonRequest(todoUrl, "PATCH", "{\"title\":\"renamed " + random.nextInt(1_000) + "\"}");
+            case TOGGLE_HOT_TODO:
+                URI hotTodoUrl = todoUrls.get(random.nextInt(Math.min(HOT_TODO_COUNT, todoUrls.length())));
+                return jsonRequest(hotTodoUrl, "PATCH", "{\"completed\":" + random.nextBoolean() + "}");
+            case COMPLETE_TODO:
+                return jsonRequest(todoUrl, "PATCH", "{\"completed\":true}");
+            case DELETE_COMPLETED:
+                return HttpRequest.newBuilder(URI.create(todosUrl + "?completed=true")).timeout(REQUEST_TIMEOUT).DELETE().build();
+            default:
+                throw new IllegalArgumentException(operation.name());
+        }
+    }
+
+    private static HttpRequest jsonRequest(URI uri, String method, String body) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    // the created todo takes the place of a random one but a hot one, so that a mix deleting todos keeps live
+    // ones to work on
+    private void replaceTodoUrl(String body) {
+        if (todoUrls.length() <= HOT_TODO_COUNT) {
+            return;
+        }
+        try {
+            URI todoUrl = URI.create(OBJECT_MAPPER.readTree(body).get("url").asText());
+            todoUrls.set(ThreadLocalRandom.current().nextInt(HOT_TODO_COUNT, todoUrls.length()), todoUrl);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unexpected todo " + body, e);
+        }
+    }
+
+    private static class Results {
+
+        private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+        private final Map<Operation, AtomicLong> failures = new EnumMap<>(Operation.class);
+        private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+        private final Histogram all = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+
+        Results() {
+            for (Operation operation : Operation.values()) {
+                latencies.put(operation, new ConcurrentHistogram(MAX_LATENCY_MICROS, 3));
+                failures.put(operation, new AtomicLong());
+                errors.put(operation, new AtomicLong());
+            }
+        }
+
+        void record(Operation operation, long dueTime, HttpResponse<String> response, Throwable failure) {
+            long latencyMicros = Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - dueTime), MAX_LATENCY_MICROS);
+            latencies.get(operation).recordValue(latencyMicros);
+            all.recordValue(latencyMicros);
+            if (failure != null) {
+                failures.get(operation).incrementAndGet();
+            } else if (response.statusCode() >= 400) {
+                errors.get(operation).incrementAndGet();
+            }
+        }
+
+        void print(PrintStream output, Mix mix, int rate, int seconds) {
+            output.printf("%s at %d requests/s for %d s, latencies from the due time of each request%n", mix, rate, seconds);
+            output.printf("%-17s %9s %9s %9s %9s %9s %9s %9s%n", "operation", "requests", "p50 ms", "p99 ms", "p999 ms", "max ms", ">=400", "failed");
+            for (Operation operation : Operation.values()) {
+                if (latencies.get(operation).getTotalCount() > 0) {
+                    print(output, operation.name(), latencies.get(operation), errors.get(operation).get(), failures.get(operation).get());
+                }
+            }
+            print(output, "ALL", all, errors.values().stream().mapToLong(AtomicLong::get).sum(),
+                    failures.values().stream().mapToLong(AtomicLong::get).sum());
+        }
+
+        private static void print(PrintStream output, String name, Histogram histogram, long errorCount, long failureCount) {
+            output.printf("%-17s %9d %9.2f %9.2f %9.2f %9.2f %9d %9d%n", name, histogram.getTotalCount(),
+                    histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0, histogram.getMaxValue() / 1000.0, errorCount, failureCount);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package io.souvant.todobackend.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.souvant.todobackend.controller.TodoJsonWriter;
+import io.souvant.todobackend.controller.model.response.TodoResponse;
+import io.souvant.todobackend.repository.entity.TodoEntity;
+import io.souvant.todobackend.repository.entity.TodoIdGenerator;
+import io.souvant.todobackend.service.model.Todo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The mapping of entities to todos and responses as TodoService and TodoController do it, and the
+ * serialization of a list of todos, through TodoResponse and through TodoJsonWriter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TodoMappingBenchmark {
+
+    private static final String TODOS_URL = "http://localhost:8080/todos";
+
+    @Param({"100", "1000"})
+    public int todoCount;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private List<TodoEntity> todoEntities;
+    private List<Todo> todos;
+    private List<TodoResponse> todoResponses;
+
+    @Setup
+    public void setUp() {
+        todoEntities = new ArrayList<>(todoCount);
+        for (int i = 1; i <= todoCount; i++) {
+            TodoEntity todoEntity = new TodoEntity(TodoIdGenerator.timeOrderedUuid(), "todo " + i, i % 2 == 0, (long) i);
+            todoEntity.setVersion(0L);
+            todoEntities.add(todoEntity);
+        }
+        todos = mapTodoEntitiesToTodos();
+        todoResponses = mapTodoEntitiesToTodoResponses();
+    }
+
+    @Benchmark
+    public List<Todo> mapTodoEntitiesToTodos() {
+        return todoEntities.stream().map(TodoMappingBenchmark::mapTodoEntityToTodo).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<TodoResponse> mapTodoEntitiesToTodoResponses() {
+        return todoEntities.stream().map(TodoMappingBenchmark::mapTodoEntityToTodo).map(TodoMappingBenchmark::generateTodoResponse)
+                .collect(Collectors.toList());
+    }
+
+    // both write to the same reused body, as to a response stream, so only the serialization is measured
+    @Benchmark
+    public int serializeTodoResponses() throws IOException {
+        body.reset();
+        objectMapper.writeValue(body, todoResponses);
+        return body.size();
+    }
+
+    @Benchmark
+    public int writeTodosWithTodoJsonWriter() throws IOException {
+        body.reset();
+        try (JsonGenerator jsonGenerator = objectMapper.getFactory().createGenerator(body)) {
+            new TodoJsonWriter(TODOS_URL).writeTodos(jsonGenerator, todos);
+        }
+        return body.size();
+    }
+
+    // TodoService and TodoController keep theirs private
+    private static Todo mapTodoEntityToTodo(TodoEntity todoEntity) {
+        return new Todo(todoEntity.getId(), todoEntity.getTitle(), todoEntity.getCompleted(), todoEntity.getOrder(), todoEntity.getVersion());
+    }
+
+    private static TodoResponse generateTodoResponse(Todo todo) {
+        return new TodoResponse(todo.getId().toString(), todo.getTitle(), todo.getCompleted(), todo.getOrder(), TODOS_URL + "/" + todo.getId());
+    }
+}
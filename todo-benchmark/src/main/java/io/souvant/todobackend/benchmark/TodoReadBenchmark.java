@@ -0,0 +1,101 @@
+package io.souvant.todobackend.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.souvant.todobackend.controller.TodoJsonWriter;
+import io.souvant.todobackend.controller.TodoListSnapshots;
+import io.souvant.todobackend.controller.model.response.TodoListSnapshot;
+import io.souvant.todobackend.service.TodoService;
+import io.souvant.todobackend.service.model.TodoPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /todos as TodoController serves it, on a table of 1k, 10k and 100k todos: the first page read with
+ * TodoService.getTodosPage and serialized into a snapshot, that snapshot served by TodoListSnapshots while
+ * the list is unchanged, and every page of the list read by following its cursor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TodoReadBenchmark {
+
+    private static final String TODOS_URL = "http://localhost:8080/todos";
+
+    @Param({"1000", "10000", "100000"})
+    public int rowCount;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private TodoBackEnd todoBackEnd;
+    private TodoService todoService;
+    private TodoListSnapshots todoListSnapshots;
+
+    @Setup
+    public void setUp() {
+        todoBackEnd = new TodoBackEnd(rowCount);
+        todoService = todoBackEnd.todoService();
+        todoListSnapshots = todoBackEnd.todoListSnapshots();
+    }
+
+    @TearDown
+    public void tearDown() {
+        todoBackEnd.close();
+    }
+
+    // what a GET /todos does once a write outdated the snapshot
+    @Benchmark
+    public int buildFirstPageSnapshot() {
+        return buildSnapshot(todoService.getListVersion()).getBody().length;
+    }
+
+    // what every other GET /todos does
+    @Benchmark
+    public int serveFirstPageSnapshot() {
+        return todoListSnapshots.get(TODOS_URL, todoService::getListVersion, this::buildSnapshot).getBody().length;
+    }
+
+    @Benchmark
+    public int readAllPages() {
+        int todoCount = 0;
+        Optional<Long> after = Optional.empty();
+        do {
+            TodoPage todoPage = todoService.getTodosPage(after, Optional.of(TodoService.MAX_PAGE_SIZE));
+            todoCount += todoPage.getTodos().size();
+            after = Optional.ofNullable(todoPage.getNextCursor());
+        } while (after.isPresent());
+        return todoCount;
+    }
+
+    // TodoController keeps its own private, and builds the next page url from the request
+    private TodoListSnapshot buildSnapshot(long version) {
+        TodoPage todoPage = todoService.getTodosPage(Optional.empty(), Optional.empty());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (JsonGenerator jsonGenerator = objectMapper.getFactory().createGenerator(body)) {
+            new TodoJsonWriter(TODOS_URL).writeTodos(jsonGenerator, todoPage.getTodos());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String nextPageUrl = todoPage.getNextCursor() == null ? null : TODOS_URL + "?after=" + todoPage.getNextCursor();
+        return new TodoListSnapshot(version, body.toByteArray(), todoPage.getNextCursor(), nextPageUrl);
+    }
+}
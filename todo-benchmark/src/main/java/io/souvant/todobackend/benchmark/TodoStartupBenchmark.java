@@ -0,0 +1,173 @@
+package io.souvant.todobackend.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Measures the time from the launch of a new JVM running the application to its first successful GET /todos,
+ * what an autoscaled instance takes to serve, with the default profile, the fast-startup profile, and the
+ * fast-startup profile with the class-data sharing archive of the appcds Maven profile. Reports the median
+ * and range of each, and writes every run to target/startup-result.json to be compared across releases.
+ * Arguments: --app=&lt;directory made by the appcds Maven profile&gt; --runs=&lt;n&gt; --warmup=&lt;n&gt;
+ * (default ../target/appcds 5 1), any other is passed to the application.
+ */
+public class TodoStartupBenchmark {
+
+    private static final String ARCHIVE = "todo-back-end.jsa";
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(10);
+
+    enum Configuration {
+        DEFAULT(List.of(), List.of()),
+        FAST_STARTUP(List.of(), List.of("--spring.profiles.active=fast-startup")),
+        FAST_STARTUP_CDS(List.of("-XX:SharedArchiveFile=" + ARCHIVE), List.of("--spring.profiles.active=fast-startup"));
+
+        private final List<String> jvmArguments;
+        private final List<String> applicationArguments;
+
+        Configuration(List<String> jvmArguments, List<String> applicationArguments) {
+            this.jvmArguments = jvmArguments;
+            this.applicationArguments = applicationArguments;
+        }
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+    private final Path applicationDirectory;
+    private final List<String> applicationArguments;
+
+    TodoStartupBenchmark(Path applicationDirectory, List<String> applicationArguments) {
+        this.applicationDirectory = applicationDirectory;
+        this.applicationArguments = applicationArguments;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path applicationDirectory = Path.of("../target/appcds");
+        int runs = 5;
+        int warmupRuns = 1;
+        List<String> applicationArguments = new ArrayList<>();
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--app=")) {
+                applicationDirectory = Path.of(value);
+            } else if (arg.startsWith("--runs=")) {
+                runs = Integer.parseInt(value);
+            } else if (arg.startsWith("--warmup=")) {
+                warmupRuns = Integer.parseInt(value);
+            } else {
+                applicationArguments.add(arg);
+            }
+        }
+        if (!Files.exists(applicationDirectory.resolve(ARCHIVE))) {
+            throw new IllegalStateException(applicationDirectory.toAbsolutePath() + " has no " + ARCHIVE + ", run ../mvnw -Pappcds package first");
+        }
+
+        TodoStartupBenchmark benchmark = new TodoStartupBenchmark(applicationDirectory, applicationArguments);
+        ObjectMapper objectMapper = new ObjectMapper();
+        ArrayNode results = objectMapper.createArrayNode();
+        for (Configuration configuration : Configuration.values()) {
+            for (int i = 0; i < warmupRuns; i++) {
+                benchmark.timeToFirstList(configuration);
+            }
+            long[] millis = new long[runs];
+            for (int i = 0; i < runs; i++) {
+                millis[i] = benchmark.timeToFirstList(configuration);
+            }
+            Arrays.sort(millis);
+            System.out.printf("%-18s median %6d ms, min %6d ms, max %6d ms%n", configuration.label(),
+                    millis[runs / 2], millis[0], millis[runs - 1]);
+            ObjectNode result = results.addObject()
+                    .put("configuration", configuration.label())
+                    .put("medianMillis", millis[runs / 2]);
+            Arrays.stream(millis).forEach(result.putArray("millis")::add);
+        }
+        Path resultFile = Path.of("target", "startup-result.json");
+        Files.createDirectories(resultFile.getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(resultFile.toFile(), results);
+    }
+
+    long timeToFirstList(Configuration configuration) throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(configuration.jvmArguments);
+        command.add("-cp");
+        command.add(classpath());
+        command.add("io.souvant.todobackend.TodoBackEndApplication");
+        command.add("--server.port=" + port);
+        command.addAll(configuration.applicationArguments);
+        command.addAll(applicationArguments);
+        HttpRequest list = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/todos"))
+                .timeout(Duration.ofSeconds(5))
+                .build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(applicationDirectory.toFile())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            while (System.nanoTime() - start < STARTUP_TIMEOUT.toNanos()) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(configuration.label() + " exited with " + process.exitValue() + ": " + String.join(" ", command));
+                }
+                try {
+                    if (httpClient.send(list, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                } catch (IOException e) {
+                    // not listening yet
+                }
+                Thread.sleep(POLL_INTERVAL.toMillis());
+            }
+            throw new IllegalStateException(configuration.label() + " did not answer GET /todos within " + STARTUP_TIMEOUT);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    // relative as in the training run, the archive is only used with the class path it was recorded with
+    private String classpath() throws IOException {
+        try (Stream<Path> jars = Files.list(applicationDirectory)) {
+            String applicationJar = jars.map(Path::getFileName)
+                    .map(Path::toString)
+                    .filter(name -> name.endsWith("-appcds.jar"))
+                    .collect(Collectors.joining(":"));
+            return applicationJar + ":lib/*";
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
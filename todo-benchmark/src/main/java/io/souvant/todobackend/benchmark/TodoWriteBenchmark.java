@@ -0,0 +1,76 @@
+package io.souvant.todobackend.benchmark;
+
+import io.souvant.todobackend.controller.model.request.TodoPartialUpdateBody;
+import io.souvant.todobackend.controller.model.request.TodoUpdateBody;
+import io.souvant.todobackend.repository.entity.TodoEntity;
+import io.souvant.todobackend.service.TodoService;
+import io.souvant.todobackend.service.model.Todo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The writes of TodoService on a table of 10k todos, from a single thread so that they never conflict.
+ * createTodo grows the table by the todos it creates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TodoWriteBenchmark {
+
+    private static final int ROW_COUNT = 10_000;
+
+    private TodoBackEnd todoBackEnd;
+    private TodoService todoService;
+    private List<TodoEntity> todoEntities;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        todoBackEnd = new TodoBackEnd(ROW_COUNT);
+        todoService = todoBackEnd.todoService();
+        todoEntities = todoBackEnd.seededTodos();
+    }
+
+    @TearDown
+    public void tearDown() {
+        todoBackEnd.close();
+    }
+
+    @Benchmark
+    public Todo createTodo() {
+        return todoService.createTodo("created");
+    }
+
+    // keeps the rank of the todo, another one would conflict
+    @Benchmark
+    public Todo updateTodo() {
+        TodoEntity todoEntity = nextTodo();
+        return todoService.updateTodo(todoEntity.getId(), new TodoUpdateBody("updated " + next, next % 2 == 0, todoEntity.getOrder()), Optional.empty());
+    }
+
+    @Benchmark
+    public Todo patchTodo() {
+        return todoService.patchTodo(nextTodo().getId(), new TodoPartialUpdateBody(null, next % 2 == 0, null), Optional.empty());
+    }
+
+    private TodoEntity nextTodo() {
+        next = (next + 1) % todoEntities.size();
+        return todoEntities.get(next);
+    }
+}
@@ -0,0 +1,20 @@
+package io.souvant.todobackend.reactive.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.config.CorsRegistry;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+@Configuration
+public class CorsConfiguration implements WebFluxConfigurer {
+
+    @Override
+    public void addCorsMappings(CorsRegistry registry) {
+        registry
+                .addMapping("/**")
+                .allowedOrigins(
+                        "https://www.todobackend.com",
+                        "http://localhost:4200"
+                        )
+                .exposedHeaders("X-Next-Cursor", "Link", "X-Deleted-Count", "ETag");
+    }
+}
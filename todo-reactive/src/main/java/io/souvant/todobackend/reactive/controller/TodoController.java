@@ -0,0 +1,150 @@
+package io.souvant.todobackend.reactive.controller;
+
+import io.souvant.todobackend.reactive.controller.model.request.TodoPartialUpdateBody;
+import io.souvant.todobackend.reactive.controller.model.request.TodoSaveBody;
+import io.souvant.todobackend.reactive.controller.model.request.TodoUpdateBody;
+import io.souvant.todobackend.reactive.controller.model.response.TodoResponse;
+import io.souvant.todobackend.reactive.service.TodoService;
+import io.souvant.todobackend.reactive.service.model.Todo;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * The /todos endpoints of the servlet TodoController, without the bulk endpoint and the list snapshots.
+ */
+@RestController
+@RequestMapping("/todos")
+@CrossOrigin
+public class TodoController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String DELETED_COUNT_HEADER = "X-Deleted-Count";
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private final TodoService todoService;
+
+    public TodoController(TodoService todoService) {
+        this.todoService = todoService;
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<TodoResponse> createTodo(@RequestBody @Valid TodoSaveBody todoSaveBody, ServerHttpRequest request) {
+        String todosUrl = formatTodosUrl(request);
+        return todoService.createTodo(todoSaveBody.getTitle()).map(todo -> generateTodoResponse(todo, todosUrl));
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<List<TodoResponse>>> getAllTodos(@RequestParam(required = false) Optional<Integer> after,
+                                                                @RequestParam(required = false) Optional<Integer> limit,
+                                                                ServerHttpRequest request) {
+        String todosUrl = formatTodosUrl(request);
+        return todoService.getTodosPage(after, limit).map(todoPage -> {
+            List<TodoResponse> todoResponses = todoPage.getTodos().stream().map(todo -> generateTodoResponse(todo, todosUrl)).collect(Collectors.toList());
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (todoPage.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, todoPage.getNextCursor().toString());
+                response.header(HttpHeaders.LINK, "<" + formatNextPageUrl(request, todoPage.getNextCursor()) + ">; rel=\"next\"");
+            }
+            return response.body(todoResponses);
+        });
+    }
+
+    // each todo is encoded and sent as it is read
+    @GetMapping(produces = APPLICATION_NDJSON_VALUE)
+    public Flux<TodoResponse> streamAllTodos(ServerHttpRequest request) {
+        String todosUrl = formatTodosUrl(request);
+        return todoService.streamAllTodos().map(todo -> generateTodoResponse(todo, todosUrl));
+    }
+
+    @DeleteMapping
+    public Mono<ResponseEntity<Void>> deleteTodos(@RequestParam(required = false) Optional<Boolean> completed) {
+        return todoService.deleteTodos(completed)
+                .map(deletedCount -> ResponseEntity.noContent().header(DELETED_COUNT_HEADER, String.valueOf(deletedCount)).build());
+    }
+
+    // an If-None-Match matching the etag is answered with 304 by the response entity handling
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<TodoResponse>> getTodo(@PathVariable UUID id, ServerHttpRequest request) {
+        String todosUrl = formatTodosUrl(request);
+        return todoService.getTodo(id).map(todo -> ResponseEntity.ok().eTag(formatTodoETag(todo)).body(generateTodoResponse(todo, todosUrl)));
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<TodoResponse>> updateTodo(@PathVariable UUID id, @RequestBody @Valid TodoUpdateBody todoUpdateBody,
+                                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                         ServerHttpRequest request) {
+        String todosUrl = formatTodosUrl(request);
+        return todoService.updateTodo(id, todoUpdateBody, parseIfMatch(ifMatch))
+                .map(todo -> ResponseEntity.ok().eTag(formatTodoETag(todo)).body(generateTodoResponse(todo, todosUrl)));
+    }
+
+    @PatchMapping("/{id}")
+    public Mono<ResponseEntity<TodoResponse>> patchTodo(@PathVariable UUID id, @RequestBody @Valid TodoPartialUpdateBody todoPartialUpdateBody,
+                                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                        ServerHttpRequest request) {
+        String todosUrl = formatTodosUrl(request);
+        return todoService.patchTodo(id, todoPartialUpdateBody, parseIfMatch(ifMatch))
+                .map(todo -> ResponseEntity.ok().eTag(formatTodoETag(todo)).body(generateTodoResponse(todo, todosUrl)));
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> deleteTodo(@PathVariable UUID id) {
+        return todoService.deleteTodo(id);
+    }
+
+    private static String formatTodoETag(Todo todo) {
+        return "\"" + todo.getVersion() + "\"";
+    }
+
+    // no header or * sets no condition, weak or unknown tags match no version
+    private static Optional<Set<Long>> parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return Optional.empty();
+        }
+        Set<Long> versions = new HashSet<>();
+        for (String eTag : ifMatch.split(",")) {
+            eTag = eTag.trim();
+            if (eTag.length() > 2 && eTag.startsWith("\"") && eTag.endsWith("\"")) {
+                try {
+                    versions.add(Long.parseLong(eTag.substring(1, eTag.length() - 1)));
+                } catch (NumberFormatException e) {
+                    // not an etag of a todo version
+                }
+            }
+        }
+        return Optional.of(versions);
+    }
+
+    private static String formatTodosUrl(ServerHttpRequest request) {
+        return UriComponentsBuilder.fromHttpRequest(request)
+                .replacePath(request.getPath().contextPath().value())
+                .replaceQuery(null)
+                .pathSegment("todos")
+                .toUriString();
+    }
+
+    private static String formatNextPageUrl(ServerHttpRequest request, Integer nextCursor) {
+        return UriComponentsBuilder.fromHttpRequest(request)
+                .replaceQueryParam("after", nextCursor)
+                .toUriString();
+    }
+
+    private static TodoResponse generateTodoResponse(Todo todo, String todosUrl) {
+        return new TodoResponse(todo.getId().toString(), todo.getTitle(), todo.getCompleted(), todo.getOrder(), todosUrl + "/" + todo.getId());
+    }
+}
@@ -0,0 +1,44 @@
+package io.souvant.todobackend.reactive.repository;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.dialect.H2Dialect;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.UUID;
+
+@Configuration
+@EnableR2dbcRepositories
+public class DataConfiguration {
+
+    // ids are stored as binary(16), like the servlet application does
+    @Bean
+    public R2dbcCustomConversions r2dbcCustomConversions() {
+        return R2dbcCustomConversions.of(H2Dialect.INSTANCE, List.of(new UuidToBytesConverter(), new BytesToUuidConverter()));
+    }
+
+    @WritingConverter
+    static class UuidToBytesConverter implements Converter<UUID, byte[]> {
+
+        @Override
+        public byte[] convert(UUID source) {
+            return ByteBuffer.allocate(16).putLong(source.getMostSignificantBits()).putLong(source.getLeastSignificantBits()).array();
+        }
+    }
+
+    @ReadingConverter
+    static class BytesToUuidConverter implements Converter<byte[], UUID> {
+
+        @Override
+        public UUID convert(byte[] source) {
+            ByteBuffer bytes = ByteBuffer.wrap(source);
+            return new UUID(bytes.getLong(), bytes.getLong());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package io.souvant.todobackend.reactive.repository;
+
+import io.souvant.todobackend.reactive.repository.entity.TodoEntity;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.UUID;
+
+@Repository
+public interface TodoRepository extends ReactiveCrudRepository<TodoEntity, UUID> {
+
+    @Query("select * from TODO where rank > :after order by rank asc limit :limit")
+    Flux<TodoEntity> findTodosAfterOrder(int after, int limit);
+
+    @Query("select * from TODO order by rank asc")
+    Flux<TodoEntity> findAllByOrderByOrderAsc();
+
+    @Query("select next value for TODO_RANK_SEQ")
+    Mono<Long> nextRankBlock();
+
+    @Modifying
+    @Query("delete from TODO where completed = true")
+    Mono<Integer> deleteCompletedTodos();
+
+    @Modifying
+    @Query("delete from TODO")
+    Mono<Integer> deleteAllTodos();
+
+    @Modifying
+    @Query("delete from TODO where id = :id")
+    Mono<Integer> deleteTodo(UUID id);
+
+    @Query("select version from TODO where id = :id")
+    Mono<Long> findVersionById(UUID id);
+
+    @Modifying
+    @Query("update TODO set title = :title, completed = :completed, rank = :order, version = version + 1 where id = :id")
+    Mono<Integer> updateTodo(UUID id, String title, Boolean completed, Integer order);
+
+    @Modifying
+    @Query("update TODO set title = :title, completed = :completed, rank = :order, version = version + 1 where id = :id and version in (:versions)")
+    Mono<Integer> updateTodo(UUID id, Collection<Long> versions, String title, Boolean completed, Integer order);
+}
@@ -0,0 +1,93 @@
+package io.souvant.todobackend.reactive.repository.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A row of the TODO table. The id is assigned before the insert, a null version marks the todo as new.
+ */
+@Table("TODO")
+public class TodoEntity {
+
+    public static final String RANK_CONSTRAINT = "UK_TODO_RANK";
+
+    @Id
+    private UUID id;
+    private String title;
+
+    private Boolean completed;
+
+    @Column("rank")
+    private Integer order;
+
+    @Version
+    private Long version;
+
+    public TodoEntity() {
+    }
+
+    public TodoEntity(UUID id, String title, Boolean isCompleted, Integer order) {
+        this.id = id;
+        this.title = title;
+        this.completed = isCompleted;
+        this.order = order;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public Integer getOrder() {
+        return order;
+    }
+
+    public Boolean getCompleted() {
+        return completed;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public void setCompleted(Boolean completed) {
+        this.completed = completed;
+    }
+
+    public void setOrder(Integer order) {
+        this.order = order;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TodoEntity that = (TodoEntity) o;
+        return Objects.equals(id, that.id) && Objects.equals(title, that.title) && Objects.equals(completed, that.completed) && Objects.equals(order, that.order);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, title, completed, order);
+    }
+}
@@ -0,0 +1,34 @@
+package io.souvant.todobackend.reactive.repository.entity;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates time-ordered UUIDv7 todo ids, the same as the servlet application.
+ */
+public final class TodoIdGenerator {
+
+    // last unix millis shifted left by 12, plus a counter keeping ids of the same millisecond ordered
+    private static final AtomicLong LAST_TIMESTAMP_AND_COUNTER = new AtomicLong();
+
+    private TodoIdGenerator() {
+    }
+
+    public static UUID timeOrderedUuid() {
+        long candidate = System.currentTimeMillis() << 12;
+        long last;
+        long next;
+        do {
+            last = LAST_TIMESTAMP_AND_COUNTER.get();
+            // a counter overflow carries into the timestamp, which keeps the ids increasing
+            next = candidate > last ? candidate : last + 1;
+        } while (!LAST_TIMESTAMP_AND_COUNTER.compareAndSet(last, next));
+
+        long timestamp = next >>> 12;
+        long counter = next & 0xFFFL;
+        long mostSigBits = (timestamp << 16) | 0x7000L | counter;
+        long leastSigBits = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
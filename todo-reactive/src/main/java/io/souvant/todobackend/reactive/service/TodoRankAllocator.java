@@ -0,0 +1,47 @@
+package io.souvant.todobackend.reactive.service;
+
+import io.souvant.todobackend.reactive.repository.TodoRepository;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Hands out ranks from blocks reserved on the TODO_RANK_SEQ sequence (hi/lo), so inserts never read
+ * the TODO table and several instances never get the same rank.
+ */
+@Component
+public class TodoRankAllocator {
+
+    // must match the INCREMENT BY of TODO_RANK_SEQ in schema.sql
+    public static final int BLOCK_SIZE = 50;
+
+    private final TodoRepository todoRepository;
+
+    private int nextRank;
+    private int blockEnd;
+
+    public TodoRankAllocator(TodoRepository todoRepository) {
+        this.todoRepository = todoRepository;
+    }
+
+    public Mono<Integer> nextRank() {
+        return Mono.defer(() -> {
+            synchronized (this) {
+                if (nextRank < blockEnd) {
+                    return Mono.just(nextRank++);
+                }
+            }
+            // nothing is held while the sequence is read: a block reserved by a concurrent caller in the
+            // meantime is kept and the rest of this one is given up, ranks only have to be unique
+            return todoRepository.nextRankBlock().map(blockStart -> {
+                synchronized (this) {
+                    if (nextRank < blockEnd) {
+                        return Math.toIntExact(blockStart);
+                    }
+                    nextRank = Math.toIntExact(blockStart);
+                    blockEnd = nextRank + BLOCK_SIZE;
+                    return nextRank++;
+                }
+            });
+        });
+    }
+}
@@ -0,0 +1,178 @@
+package io.souvant.todobackend.reactive.service;
+
+import io.souvant.todobackend.reactive.controller.model.request.TodoPartialUpdateBody;
+import io.souvant.todobackend.reactive.controller.model.request.TodoUpdateBody;
+import io.souvant.todobackend.reactive.repository.TodoRepository;
+import io.souvant.todobackend.reactive.repository.entity.TodoEntity;
+import io.souvant.todobackend.reactive.repository.entity.TodoIdGenerator;
+import io.souvant.todobackend.reactive.service.model.Todo;
+import io.souvant.todobackend.reactive.service.model.TodoPage;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * The create, read, update and delete rules of the TodoService of the servlet application, on non-blocking
+ * repository calls. Ranks are still dense ints, one per todo from the sequence blocks: there is no gap between
+ * them to move a todo into, hence no move and no respacing.
+ */
+@Service
+public class TodoService {
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_CREATE_ATTEMPTS = 3;
+
+    private final TodoRepository todoRepository;
+    private final TodoRankAllocator todoRankAllocator;
+
+    public TodoService(TodoRepository todoRepository, TodoRankAllocator todoRankAllocator) {
+        this.todoRepository = todoRepository;
+        this.todoRankAllocator = todoRankAllocator;
+    }
+
+    public Mono<Todo> createTodo(String title) {
+        // deferred so that every attempt allocates a new rank
+        return Mono.defer(todoRankAllocator::nextRank)
+                .flatMap(todoOrder -> todoRepository.save(new TodoEntity(TodoIdGenerator.timeOrderedUuid(), title, false, todoOrder)))
+                .map(TodoService::mapTodoEntityToTodo)
+                // the allocated rank was already taken by an update, the next one is tried
+                .retryWhen(Retry.max(MAX_CREATE_ATTEMPTS - 1)
+                        .filter(e -> e instanceof DataIntegrityViolationException && isRankConflict((DataIntegrityViolationException) e))
+                        .onRetryExhaustedThrow((retrySpec, retrySignal) -> retrySignal.failure()))
+                .onErrorMap(DataIntegrityViolationException.class, TodoService::conflictOrRethrow);
+    }
+
+    public Flux<Todo> streamAllTodos() {
+        return todoRepository.findAllByOrderByOrderAsc().map(TodoService::mapTodoEntityToTodo);
+    }
+
+    public Mono<TodoPage> getTodosPage(Optional<Integer> after, Optional<Integer> limit) {
+        int pageSize = limit.orElse(DEFAULT_PAGE_SIZE);
+        if (pageSize < 1) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST));
+        }
+        int boundedPageSize = Math.min(pageSize, MAX_PAGE_SIZE);
+
+        // one extra row tells whether a next page exists without a count query
+        return todoRepository.findTodosAfterOrder(after.orElse(Integer.MIN_VALUE), boundedPageSize + 1)
+                .collectList()
+                .map(todoEntities -> {
+                    List<Todo> todos = todoEntities.stream().limit(boundedPageSize).map(TodoService::mapTodoEntityToTodo).collect(Collectors.toList());
+                    Integer nextCursor = todoEntities.size() > boundedPageSize ? todos.get(todos.size() - 1).getOrder() : null;
+                    return new TodoPage(todos, nextCursor);
+                });
+    }
+
+    public Mono<Integer> deleteTodos(Optional<Boolean> isCompleted) {
+        return isCompleted.isPresent() && isCompleted.get() ? todoRepository.deleteCompletedTodos() : todoRepository.deleteAllTodos();
+    }
+
+    public Mono<Todo> getTodo(UUID id) {
+        return todoRepository.findById(id)
+                .map(TodoService::mapTodoEntityToTodo)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+
+    /**
+     * Replaces a todo, only when its version is one of the expected versions if any are given. The database
+     * increments the version, which is read back and returned.
+     */
+    @Transactional
+    public Mono<Todo> updateTodo(UUID id, TodoUpdateBody todoUpdateBody, Optional<Set<Long>> expectedVersions) {
+        if (todoUpdateBody.getOrder() == null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST));
+        }
+        String title = todoUpdateBody.getTitle();
+        Boolean completed = todoUpdateBody.getCompleted();
+        Integer order = todoUpdateBody.getOrder().intValue();
+        // a single conditional update: no row means no todo or another version, a rank violation means a conflict
+        Mono<Integer> updatedCount;
+        if (expectedVersions.isEmpty()) {
+            updatedCount = todoRepository.updateTodo(id, title, completed, order);
+        } else if (expectedVersions.get().isEmpty()) {
+            updatedCount = Mono.just(0);
+        } else {
+            updatedCount = todoRepository.updateTodo(id, expectedVersions.get(), title, completed, order);
+        }
+        return updatedCount
+                .onErrorMap(DataIntegrityViolationException.class, TodoService::conflictOrRethrow)
+                .flatMap(count -> count == 0
+                        ? Mono.error(new ResponseStatusException(expectedVersions.isPresent() ? HttpStatus.PRECONDITION_FAILED : HttpStatus.NOT_FOUND))
+                        // the version the database incremented, read back in the transaction that wrote it
+                        : todoRepository.findVersionById(id).map(version -> new Todo(id, title, completed, order, version)));
+    }
+
+    /**
+     * Merges the given fields into a todo, only when its version is one of the expected versions if any are
+     * given. The update is checked against the version read, a concurrent write is never overwritten.
+     */
+    @Transactional
+    public Mono<Todo> patchTodo(UUID id, TodoPartialUpdateBody todoRequestBody, Optional<Set<Long>> expectedVersions) {
+        return todoRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(expectedVersions.isPresent() ? HttpStatus.PRECONDITION_FAILED : HttpStatus.NOT_FOUND)))
+                .flatMap(todoEntityToUpdate -> {
+                    if (expectedVersions.isPresent() && !expectedVersions.get().contains(todoEntityToUpdate.getVersion())) {
+                        return Mono.error(new ResponseStatusException(HttpStatus.PRECONDITION_FAILED));
+                    }
+                    return todoRepository.save(mergeTodoEntityAndTodoRequest(todoEntityToUpdate, todoRequestBody));
+                })
+                .map(TodoService::mapTodoEntityToTodo)
+                .onErrorMap(OptimisticLockingFailureException.class,
+                        e -> new ResponseStatusException(expectedVersions.isPresent() ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT))
+                .onErrorMap(DataIntegrityViolationException.class, TodoService::conflictOrRethrow);
+    }
+
+    // an empty title is rejected like the servlet application does, a blank one is kept
+    static TodoEntity mergeTodoEntityAndTodoRequest(TodoEntity todoEntityToUpdate, TodoPartialUpdateBody todoRequestBody) {
+        if (todoRequestBody.getTitle() != null) {
+            if (todoRequestBody.getTitle().isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+            }
+            todoEntityToUpdate.setTitle(todoRequestBody.getTitle());
+        }
+
+        if (todoRequestBody.getCompleted() != null) {
+            todoEntityToUpdate.setCompleted(todoRequestBody.getCompleted());
+        }
+
+        if (todoRequestBody.getOrder() != null) {
+            if (todoRequestBody.getOrder().intValue() < 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+            }
+            todoEntityToUpdate.setOrder(todoRequestBody.getOrder().intValue());
+        }
+        return todoEntityToUpdate;
+    }
+
+    public Mono<Void> deleteTodo(UUID id) {
+        return todoRepository.deleteTodo(id)
+                .flatMap(deletedCount -> deletedCount == 0 ? Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)) : Mono.empty());
+    }
+
+    // utils functions
+    static boolean isRankConflict(DataIntegrityViolationException e) {
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.toUpperCase().contains(TodoEntity.RANK_CONSTRAINT);
+    }
+
+    private static RuntimeException conflictOrRethrow(DataIntegrityViolationException e) {
+        return isRankConflict(e) ? new ResponseStatusException(HttpStatus.CONFLICT) : e;
+    }
+
+    private static Todo mapTodoEntityToTodo(TodoEntity todoEntity) {
+        return new Todo(todoEntity.getId(), todoEntity.getTitle(), todoEntity.getCompleted(), todoEntity.getOrder(), todoEntity.getVersion());
+    }
+}
@@ -0,0 +1,58 @@
+package io.souvant.todobackend.reactive.service.model;
+
+import java.util.Objects;
+import java.util.UUID;
+
+public class Todo {
+
+    private final UUID id;
+
+    private final String title;
+
+    private final Integer order;
+
+    private final Boolean completed;
+
+    private final Long version;
+
+    public Todo(UUID id, String title, Boolean completed, Integer order, Long version) {
+        this.id = id;
+        this.title = title;
+        this.completed = completed;
+        this.order = order;
+        this.version = version;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Todo todo = (Todo) o;
+        return Objects.equals(id, todo.id) && Objects.equals(title, todo.title) && Objects.equals(completed, todo.completed) && Objects.equals(order, todo.order);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public Integer getOrder() {
+        return order;
+    }
+
+    public Boolean getCompleted() {
+        return completed;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+}
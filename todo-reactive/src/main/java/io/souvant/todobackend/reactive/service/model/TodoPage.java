@@ -0,0 +1,37 @@
+package io.souvant.todobackend.reactive.service.model;
+
+import java.util.List;
+import java.util.Objects;
+
+public class TodoPage {
+
+    private final List<Todo> todos;
+
+    private final Integer nextCursor;
+
+    public TodoPage(List<Todo> todos, Integer nextCursor) {
+        this.todos = todos;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Todo> getTodos() {
+        return todos;
+    }
+
+    public Integer getNextCursor() {
+        return nextCursor;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TodoPage todoPage = (TodoPage) o;
+        return Objects.equals(todos, todoPage.todos) && Objects.equals(nextCursor, todoPage.nextCursor);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(todos, nextCursor);
+    }
+}
@@ -0,0 +1,13 @@
+-- the table of the JPA mapping of the servlet application, but with int ranks handed out one after the other
+CREATE TABLE IF NOT EXISTS TODO (
+    id binary(16) NOT NULL,
+    completed boolean,
+    rank integer,
+    title varchar(255),
+    version bigint NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT UK_TODO_RANK UNIQUE (rank)
+);
+CREATE INDEX IF NOT EXISTS IDX_TODO_COMPLETED ON TODO (completed);
+-- INCREMENT BY must match TodoRankAllocator.BLOCK_SIZE: each value reserves a block of ranks
+CREATE SEQUENCE IF NOT EXISTS TODO_RANK_SEQ START WITH 1 INCREMENT BY 50;
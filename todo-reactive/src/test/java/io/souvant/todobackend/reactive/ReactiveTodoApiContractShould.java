@@ -0,0 +1,17 @@
+package io.souvant.todobackend.reactive;
+
+import io.souvant.todobackend.contract.TodoApiContract;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ReactiveTodoApiContractShould extends TodoApiContract {
+
+    @LocalServerPort
+    int port;
+
+    @Override
+    protected String baseUrl() {
+        return "http://localhost:" + port;
+    }
+}
@@ -0,0 +1,121 @@
+package io.souvant.todobackend.reactive.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a fixed number of requests in flight against running todo applications, one after the other: half
+ * GET /todos/{id}, half PATCH /todos/{id} toggling completed, plus one GET /todos?limit=100 in twenty.
+ * Start the servlet and the reactive jars on two ports, then run from the test classpath:
+ * TodoStackBenchmark concurrency seconds servlet=http://localhost:8080 reactive=http://localhost:8081
+ */
+public class TodoStackBenchmark {
+
+    private static final int TODO_COUNT = 1_000;
+    private static final int WARMUP_SECONDS = 10;
+    private static final int MAX_RECORDED_LATENCIES = 20_000_000;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = Integer.parseInt(args[0]);
+        int seconds = Integer.parseInt(args[1]);
+
+        System.out.printf("%-9s %11s %10s %10s %10s %10s %8s%n", "stack", "concurrency", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+        for (String stack : Arrays.asList(args).subList(2, args.length)) {
+            String[] nameAndUrl = stack.split("=", 2);
+            run(nameAndUrl[0], nameAndUrl[1], concurrency, seconds);
+        }
+    }
+
+    private static void run(String name, String baseUrl, int concurrency, int seconds) throws Exception {
+        HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + "/todos")).DELETE().build(), HttpResponse.BodyHandlers.discarding());
+        List<URI> todoUrls = seed(httpClient, baseUrl + "/todos");
+        URI pageUrl = URI.create(baseUrl + "/todos?limit=100");
+
+        load(httpClient, todoUrls, pageUrl, concurrency, WARMUP_SECONDS, new long[0], new AtomicInteger(), new AtomicLong());
+        long[] latencies = new long[MAX_RECORDED_LATENCIES];
+        AtomicInteger recorded = new AtomicInteger();
+        AtomicLong errors = new AtomicLong();
+        load(httpClient, todoUrls, pageUrl, concurrency, seconds, latencies, recorded, errors);
+
+        int count = Math.min(recorded.get(), latencies.length);
+        Arrays.sort(latencies, 0, count);
+        System.out.printf("%-9s %11d %10.0f %10.2f %10.2f %10.2f %8d%n", name, concurrency, (double) count / seconds,
+                millis(latencies, count, 0.50), millis(latencies, count, 0.99), millis(latencies, count, 1.0), errors.get());
+    }
+
+    private static List<URI> seed(HttpClient httpClient, String todosUrl) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<URI> todoUrls = new ArrayList<>(TODO_COUNT);
+        for (int i = 0; i < TODO_COUNT; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(todosUrl))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"title\":\"todo " + i + "\"}"))
+                    .build();
+            String body = httpClient.send(request, HttpResponse.BodyHandlers.ofString()).body();
+            todoUrls.add(URI.create(objectMapper.readTree(body).get("url").asText()));
+        }
+        return todoUrls;
+    }
+
+    private static void load(HttpClient httpClient, List<URI> todoUrls, URI pageUrl, int concurrency, int seconds,
+                             long[] latencies, AtomicInteger recorded, AtomicLong errors) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(concurrency);
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        while (System.nanoTime() < end) {
+            inFlight.acquire();
+            HttpRequest request = nextRequest(todoUrls, pageUrl);
+            long start = System.nanoTime();
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+                long latency = System.nanoTime() - start;
+                inFlight.release();
+                // a 409 is a lost race between two toggles of the same todo, not a failure of the stack
+                if (failure != null || (response.statusCode() >= 400 && response.statusCode() != 409)) {
+                    errors.incrementAndGet();
+                    return;
+                }
+                int index = recorded.getAndIncrement();
+                if (index < latencies.length) {
+                    latencies[index] = latency;
+                }
+            });
+        }
+        inFlight.acquire(concurrency);
+    }
+
+    private static HttpRequest nextRequest(List<URI> todoUrls, URI pageUrl) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextInt(20) == 0) {
+            return HttpRequest.newBuilder(pageUrl).timeout(REQUEST_TIMEOUT).GET().build();
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(todoUrls.get(random.nextInt(todoUrls.size()))).timeout(REQUEST_TIMEOUT);
+        if (random.nextBoolean()) {
+            return request.GET().build();
+        }
+        return request.header("Content-Type", "application/json")
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"completed\":" + random.nextBoolean() + "}"))
+                .build();
+    }
+
+    private static double millis(long[] sortedLatencies, int count, double percentile) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        int index = Math.min(count - 1, (int) Math.ceil(percentile * count) - 1);
+        return sortedLatencies[Math.max(index, 0)] / 1e6;
+    }
+}
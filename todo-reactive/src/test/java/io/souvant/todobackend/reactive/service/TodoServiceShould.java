@@ -0,0 +1,111 @@
+package io.souvant.todobackend.reactive.service;
+
+import io.souvant.todobackend.reactive.controller.model.request.TodoPartialUpdateBody;
+import io.souvant.todobackend.reactive.repository.TodoRepository;
+import io.souvant.todobackend.reactive.repository.entity.TodoEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TodoServiceShould {
+
+    @Mock
+    TodoRepository todoRepository;
+
+    @Mock
+    TodoRankAllocator todoRankAllocator;
+
+    TodoService todoService;
+
+    @BeforeEach
+    void setUp() {
+        todoService = new TodoService(todoRepository, todoRankAllocator);
+    }
+
+    @Test
+    @DisplayName("retry the creation with the next rank when the allocated one is taken")
+    void retryCreationOnRankConflict() {
+        // GIVEN
+        when(todoRankAllocator.nextRank()).thenReturn(Mono.just(1), Mono.just(2));
+        when(todoRepository.save(any(TodoEntity.class))).thenAnswer(invocation -> {
+            TodoEntity todoEntity = invocation.getArgument(0);
+            return todoEntity.getOrder() == 1 ? Mono.error(rankConflict()) : Mono.just(todoEntity);
+        });
+
+        // WHEN
+        // THEN
+        StepVerifier.create(todoService.createTodo("title"))
+                .expectNextMatches(todo -> todo.getOrder() == 2 && todo.getTitle().equals("title"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("answer 409 when every allocated rank is taken")
+    void conflictWhenRanksAreTaken() {
+        // GIVEN
+        when(todoRankAllocator.nextRank()).thenReturn(Mono.just(1), Mono.just(2), Mono.just(3));
+        when(todoRepository.save(any(TodoEntity.class))).thenReturn(Mono.error(rankConflict()));
+
+        // WHEN
+        // THEN
+        StepVerifier.create(todoService.createTodo("title"))
+                .expectErrorMatches(e -> e instanceof ResponseStatusException && ((ResponseStatusException) e).getStatus() == HttpStatus.CONFLICT)
+                .verify();
+        verify(todoRepository, times(3)).save(any(TodoEntity.class));
+    }
+
+    @Test
+    @DisplayName("answer 409 when a todo patched without If-Match was written concurrently")
+    void conflictOnConcurrentPatch() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        TodoEntity todoEntity = new TodoEntity(uuid, "title", false, 1);
+        todoEntity.setVersion(0L);
+        when(todoRepository.findById(uuid)).thenReturn(Mono.just(todoEntity));
+        when(todoRepository.save(todoEntity)).thenReturn(Mono.error(new OptimisticLockingFailureException("outdated")));
+
+        // WHEN
+        // THEN
+        StepVerifier.create(todoService.patchTodo(uuid, new TodoPartialUpdateBody(null, true, null), Optional.empty()))
+                .expectErrorMatches(e -> e instanceof ResponseStatusException && ((ResponseStatusException) e).getStatus() == HttpStatus.CONFLICT)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("not patch a todo whose version is not expected")
+    void notPatchOtherVersion() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        TodoEntity todoEntity = new TodoEntity(uuid, "title", false, 1);
+        todoEntity.setVersion(3L);
+        when(todoRepository.findById(uuid)).thenReturn(Mono.just(todoEntity));
+
+        // WHEN
+        // THEN
+        StepVerifier.create(todoService.patchTodo(uuid, new TodoPartialUpdateBody(null, true, null), Optional.of(Set.of(2L))))
+                .expectErrorMatches(e -> e instanceof ResponseStatusException && ((ResponseStatusException) e).getStatus() == HttpStatus.PRECONDITION_FAILED)
+                .verify();
+        verify(todoRepository, never()).save(any(TodoEntity.class));
+    }
+
+    private static DataIntegrityViolationException rankConflict() {
+        return new DataIntegrityViolationException("Unique index or primary key violation: \"PUBLIC.UK_TODO_RANK_INDEX_2 ON PUBLIC.TODO(RANK)\"");
+    }
+}